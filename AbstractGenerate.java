@@ -10,8 +10,43 @@
  *
  **/
 
+import java.util.* ;
+
 public abstract class AbstractGenerate
 {
+    /** Where the parse events go; the 312 text trace on System.out unless told otherwise. */
+    private EventSink sink ;
+    /** Names of the nonterminals commenced but not yet finished, innermost last, as runs of the
+     * same name: a long list is nested once per item, and this keeps it to one entry. */
+    private String[] open = new String[32] ;
+    /** Length of each run in open. */
+    private int[] openRuns = new int[32] ;
+    /** Number of runs in open. */
+    private int openCount ;
+    /** Number of nonterminals open. */
+    private int openTotal ;
+
+    /**
+    *
+    * setEventSink - redirects the parse events, e.g. into a per-file buffer
+    *
+    **/
+
+    public void setEventSink( EventSink s ) {
+        sink = s ;
+    } // end of method setEventSink
+
+    /**
+    *
+    * getEventSink
+    *
+    **/
+
+    public EventSink getEventSink() {
+        if( sink == null )
+            sink = new TextEventSink( System.out ) ;
+        return sink ;
+    } // end of method getEventSink
 
     /**
     *
@@ -20,14 +55,17 @@ public abstract class AbstractGenerate
     **/
 
     public void insertTerminal( Token token ) {
-        String tt = Token.getName( token.symbol );
-        
-        if( (token.symbol == Token.identifier) || (token.symbol == Token.numberConstant) || (token.symbol == Token.stringConstant) )
-            tt += " '" + token.text + "'";
+        insertTerminal( token.symbol, token.text, token.lineNumber );
+    } // end of method insertTerminal
 
-        tt += " on line " + token.lineNumber;
+    /**
+    *
+    * insertTerminal - for a token that has no Token object, e.g. from a TokenCursor
+    *
+    **/
 
-        System.out.println( "312TOKEN " + tt );
+    public void insertTerminal( int symbol, CharSequence text, int lineNumber ) {
+        getEventSink().insertTerminal( symbol, text, lineNumber );
     } // end of method insertTerminal
 
     /**
@@ -37,7 +75,18 @@ public abstract class AbstractGenerate
     **/
 
     public void commenceNonterminal( String name ) {
-        System.out.println( "312BEGIN " + name );
+        if( (openCount > 0) && open[openCount - 1].equals( name ) )
+            openRuns[openCount - 1]++ ;
+        else {
+            if( openCount == open.length ) {
+                open = Arrays.copyOf( open, 2 * openCount ) ;
+                openRuns = Arrays.copyOf( openRuns, 2 * openCount ) ;
+            }
+            open[openCount] = name ;
+            openRuns[openCount++] = 1 ;
+        }
+        openTotal++ ;
+        getEventSink().commenceNonterminal( name );
     } // end of method commenceNonterminal
 
     /**
@@ -47,9 +96,36 @@ public abstract class AbstractGenerate
     **/
 
     public void finishNonterminal( String name ) {
-        System.out.println( "312END " + name );
+        if( openCount > 0 ) {
+            if( --openRuns[openCount - 1] == 0 )
+                openCount-- ;
+            openTotal-- ;
+        }
+        getEventSink().finishNonterminal( name );
     } // end of method finishNonterminal
 
+    /**
+    *
+    * openNonterminals - how many nonterminals are commenced but not finished
+    *
+    **/
+
+    public int openNonterminals() {
+        return openTotal ;
+    } // end of method openNonterminals
+
+    /**
+    *
+    * finishNonterminalsTo - finishes the innermost open nonterminals, e.g. those
+    * abandoned by a syntax error, until only the given number are open
+    *
+    **/
+
+    public void finishNonterminalsTo( int depth ) {
+        while( openTotal > depth )
+            finishNonterminal( open[openCount - 1] );
+    } // end of method finishNonterminalsTo
+
     /**
     *
     * reportSuccess
@@ -58,7 +134,7 @@ public abstract class AbstractGenerate
 
     public void reportSuccess()
     {
-        System.out.println( "312SUCCESS" );
+        getEventSink().reportSuccess();
     } // end of method reportSuccess
 
 
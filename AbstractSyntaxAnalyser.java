@@ -11,16 +11,191 @@
  **/
 
 import java.io.* ;
+import java.util.* ;
 
 public abstract class AbstractSyntaxAnalyser
 {
 	/** The lexical analyser to process input using. */
 	LexicalAnalyser lex ;
-	/** A cache of the token to be processed next. */
-	Token nextToken ;
+	/** The tokens being parsed, positioned on the token to be processed next.  The lexer itself unless set otherwise. */
+	TokenCursor tokens ;
 	/** A code generator, descendant of AbstractGenerate. */
 	Generate myGenerate = null;
 
+	/** Carry on after a syntax error, collecting every error, instead of stopping at the first? */
+	boolean recovering = false ;
+	/** The errors found so far by a parse in recovery mode. */
+	List<Diagnostic> diagnostics = new ArrayList<Diagnostic>() ;
+	/** Number of tokens accepted or skipped so far. */
+	int tokensRead ;
+	/** The value of tokensRead when the last error was recorded, so errors cascading from it are not. */
+	private int lastErrorAt = -1 ;
+	/** Number of if, while, for and until statements being parsed, kept by the parser for error recovery. */
+	int openBlocks ;
+
+	/** Chooses between stopping at the first error (the default) and reporting them all.
+
+	  @param on true to resynchronise after each error and keep going.
+	*/
+	public void setErrorRecovery( boolean on )
+	{
+		recovering = on ;
+	} // end of method setErrorRecovery
+
+	/** @return the errors found by the last parse in recovery mode. */
+	public List<Diagnostic> getDiagnostics()
+	{
+		return diagnostics ;
+	} // end of method getDiagnostics
+
+	/** Records an error found in recovery mode, unless nothing has been read since the last one. */
+	void addDiagnostic( CompilationException ex )
+	{
+		if( tokensRead == lastErrorAt )
+			return ;
+		lastErrorAt = tokensRead ;
+		diagnostics.add( new Diagnostic( tokens.lineNumber(), ex ) ) ;
+	} // end of method addDiagnostic
+
+	/** Panic-mode resynchronisation after an error in a statement of a statement list:
+	  skips tokens until the ; after the statement, or the end, else, until or end of
+	  file that closes the list, skipping whole nested blocks on the way.  With no
+	  block open an else or until closes nothing, and is skipped too.
+
+	  @param blocks How many if, while or for statements the error left in their
+	    header, whose body and end are still to come and are skipped first.
+	  @throws IOException in the event that the tokens can no longer be read.
+	*/
+	void resynchronise( int blocks ) throws IOException
+	{
+		int previous = 0 ;
+		while( true )
+		{
+			int symbol = tokens.symbol() ;
+			if( symbol == Token.eofSymbol )
+				return ;
+			if( blocks == 0 && (symbol == Token.semicolonSymbol || symbol == Token.endSymbol) )
+				return ;
+			if( blocks == 0 && (symbol == Token.elseSymbol || symbol == Token.untilSymbol) )
+			{
+				if( openBlocks > 0 )
+					return ;
+				skipToken() ;
+				previous = symbol ;
+				continue ;
+			}
+			switch( symbol )
+			{
+				case Token.endSymbol:
+					// end if and end loop close a block together
+					blocks-- ;
+					skipToken() ;
+					if( tokens.symbol() == Token.ifSymbol || tokens.symbol() == Token.loopSymbol )
+						skipToken() ;
+					previous = Token.endSymbol ;
+					continue ;
+				case Token.untilSymbol:
+					blocks-- ;
+					break ;
+				case Token.ifSymbol:
+				case Token.whileSymbol:
+				case Token.forSymbol:
+					blocks++ ;
+					break ;
+				case Token.doSymbol:
+					// do after ) belongs to a for, any other starts an until statement
+					if( previous != Token.rightParenthesis )
+						blocks++ ;
+					break ;
+				default:
+					break ;
+			}
+			previous = symbol ;
+			skipToken() ;
+		}
+	} // end of method resynchronise
+
+	/** In error recovery mode, after a statement with no block open: an else or until
+	  there closes nothing, and rather than end the top-level list, leaving the rest
+	  of the program unparsed, it is recorded as an error and skipped along with the
+	  rest of its statement.
+
+	  @throws IOException in the event that the tokens can no longer be read.
+	*/
+	void skipStray() throws IOException
+	{
+		int symbol = tokens.symbol() ;
+		if( openBlocks > 0 || (symbol != Token.elseSymbol && symbol != Token.untilSymbol) )
+			return ;
+		addDiagnostic( stray( symbol ) ) ;
+		skipToken() ;
+		resynchronise( 0 ) ;
+	} // end of method skipStray
+
+	/** In error recovery mode, takes what the top-level statement list stopped at, which
+	  should be the end of the program.  That is so unless an if or loop follows it: an end
+	  if or end loop with no block open is recorded as an error and skipped along with the
+	  rest of its statement and the ; after that, for the list to go on.  Anything else is
+	  recorded as the error the end would have got, and the list goes on from it if it can
+	  start a statement, taking it for a missing ;, else after the ; that ends it.
+
+	  @return true once the end of the program has been accepted, false if the list goes on
+	    or the input has run out.
+	  @throws IOException in the event that the tokens can no longer be read.
+	*/
+	boolean acceptProgramEnd() throws IOException
+	{
+		while( true )
+		{
+			int symbol = tokens.symbol() ;
+			if( symbol == Token.eofSymbol )
+				return false ;
+			if( symbol == Token.endSymbol )
+			{
+				Token end = tokens.token() ;
+				skipToken() ;
+				if( tokens.symbol() != Token.ifSymbol && tokens.symbol() != Token.loopSymbol )
+				{
+					myGenerate.insertTerminal( end ) ;
+					return true ;
+				}
+				addDiagnostic( stray( Token.endSymbol ) ) ;
+				skipToken() ;
+			}
+			else
+			{
+				addDiagnostic( new CompilationException( "Token that was accepted is " + Token.getName( symbol ) ) ) ;
+				if( startsStatement( symbol ) )
+					return false ;
+			}
+			resynchronise( 0 ) ;
+			if( tokens.symbol() == Token.semicolonSymbol )
+			{
+				skipToken() ;
+				return false ;
+			}
+		}
+	} // end of method acceptProgramEnd
+
+	private static boolean startsStatement( int symbol )
+	{
+		return symbol == Token.identifier || symbol == Token.ifSymbol || symbol == Token.whileSymbol
+			|| symbol == Token.callSymbol || symbol == Token.doSymbol || symbol == Token.forSymbol ;
+	} // end of method startsStatement
+
+	private static CompilationException stray( int symbol )
+	{
+		return new CompilationException( "Error! Got a token that is " + Token.getName( symbol )
+			+ ", but there is no if, while, for or do statement for it to close" ) ;
+	} // end of method stray
+
+	/** Moves past a token without putting it in the trace. */
+	void skipToken() throws IOException
+	{
+		tokens.advance() ;
+		tokensRead++ ;
+	} // end of method skipToken
+
 	/** Begin processing the first (top level) token.*/
 	public abstract void _statementPart_() throws IOException, CompilationException;
 
@@ -33,18 +208,51 @@ public abstract class AbstractSyntaxAnalyser
 	  @throws IOException in the event that the PrintStream object can no longer read.
 	*/
 	public void parse( PrintStream ps ) throws IOException
+	{
+		parse( ps, new TextEventSink( System.out ) ) ;
+	} // end of method parse
+
+	/** Parses with this instance's LexicalAnalyser, sending the parse events to a given sink.
+		
+	  @param ps The PrintStream errors are reported to.
+	  @param events The sink the generator reports parse events to; flushed before returning.
+	  @throws IOException in the event that the PrintStream object can no longer read.
+	*/
+	public void parse( PrintStream ps, EventSink events ) throws IOException
 	{
 		myGenerate = new Generate();
+		myGenerate.setEventSink( events ) ;
+		diagnostics.clear() ;
+		tokensRead = 0 ;
+		lastErrorAt = -1 ;
+		openBlocks = 0 ;
 		try {
-			nextToken = lex.getNextToken() ;
+			if( tokens == null )
+				tokens = lex ;
+			tokens.advance() ;
 			_statementPart_() ;
 			acceptTerminal(Token.eofSymbol) ;
-			myGenerate.reportSuccess() ;
+			if( diagnostics.isEmpty() )
+				myGenerate.reportSuccess() ;
 		}
 		catch( CompilationException ex )
 		{
-			ps.println( "Compilation Exception" );
-			ps.println( ex.toTraceString() );
+			if( recovering )
+			{
+				addDiagnostic( ex ) ;
+				myGenerate.finishNonterminalsTo( 0 ) ;
+			}
+			else
+			{
+				ps.println( "Compilation Exception" );
+				ps.println( ex.toTraceString() );
+			}
+		}
+		finally
+		{
+			for( Diagnostic d : diagnostics )
+				d.report( ps ) ;
+			events.flush() ;
 		}
 	} // end of method parse
 } // end of class AbstractSyntaxAnalyser
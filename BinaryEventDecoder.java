@@ -0,0 +1,156 @@
+
+/**
+ *
+ * Reads a binary trace written by BinaryEventSink and replays its events
+ * into any EventSink; into a TextEventSink they come out as the exact
+ * text trace.
+ *
+ *   java BinaryEventDecoder [file]
+ *
+ * prints a binary trace, from the file or standard input, as text: each
+ * file's events after the blank line and 312FILE line Compile puts before
+ * them.
+ *
+ **/
+
+import java.io.* ;
+import java.nio.charset.StandardCharsets ;
+import java.util.* ;
+
+public class BinaryEventDecoder
+{
+    private final InputStream in ;
+    /** The next record's opcode, read ahead by nextFile(), or -1 if none is. */
+    private int pending = -1 ;
+    /** Line number of the last terminal. */
+    private int line ;
+    /** Nonterminal names and texts by id. */
+    private final List<String> nonterminals = new ArrayList<String>() ;
+    private final List<String> texts = new ArrayList<String>() ;
+
+    /** Starts reading a binary trace, checking its header.
+
+      @param is The trace.
+      @throws IOException in the event that it cannot be read or is not a binary trace.
+     */
+    public BinaryEventDecoder( InputStream is ) throws IOException {
+        in = new BufferedInputStream( is ) ;
+        for( byte b : BinaryEventSink.MAGIC )
+            if( in.read() != b )
+                throw new IOException( "not a binary 312 trace" ) ;
+        int version = in.read() ;
+        if( version != BinaryEventSink.FORMAT_VERSION )
+            throw new IOException( "unknown binary 312 trace version " + version ) ;
+    } // end of constructor method
+
+    /** Moves on to the next file's records.
+
+      @throws IOException in the event that the trace cannot be read.
+      @return the file's name; "" if the trace's first events belong to no file; null at the end.
+     */
+    public String nextFile() throws IOException {
+        if( pending < 0 )
+            pending = readVarint( true ) ;
+        if( pending < 0 )
+            return null ;
+        if( pending != ((BinaryEventSink.FILE << 2) | BinaryEventSink.CONTROL) )
+            return "" ;
+        pending = -1 ;
+        line = 0 ;
+        nonterminals.clear() ;
+        texts.clear() ;
+        return readString() ;
+    } // end of method nextFile
+
+    /** Replays the current file's events, up to the next file or the end of the trace.
+
+      @param sink Where the events go.
+      @throws IOException in the event that the trace cannot be read or is malformed.
+     */
+    public void replay( EventSink sink ) throws IOException {
+        while( true ) {
+            int op = (pending >= 0) ? pending : readVarint( true ) ;
+            pending = -1 ;
+            if( op < 0 )
+                break ;
+            int value = op >>> 2 ;
+            switch( op & 3 ) {
+                case BinaryEventSink.TERMINAL:
+                    int delta = readVarint( false ) ;
+                    line += (delta >>> 1) ^ -(delta & 1) ;
+                    String text = "" ;
+                    if( (value == Token.identifier) || (value == Token.numberConstant) || (value == Token.stringConstant) )
+                        text = lookup( texts, readVarint( false ) ) ;
+                    sink.insertTerminal( value, text, line ) ;
+                    break ;
+                case BinaryEventSink.BEGIN:
+                    sink.commenceNonterminal( lookup( nonterminals, value ) ) ;
+                    break ;
+                case BinaryEventSink.END:
+                    sink.finishNonterminal( lookup( nonterminals, value ) ) ;
+                    break ;
+                default:
+                    if( value == BinaryEventSink.SUCCESS )
+                        sink.reportSuccess() ;
+                    else if( value == BinaryEventSink.FILE ) {
+                        pending = op ;
+                        sink.flush() ;
+                        return ;
+                    } else
+                        throw new IOException( "unknown control record " + value ) ;
+                    break ;
+            }
+        }
+        sink.flush() ;
+    } // end of method replay
+
+    /** Finds the string an id stands for, reading it in if this is its first use. */
+    private String lookup( List<String> table, int id ) throws IOException {
+        if( id < table.size() )
+            return table.get( id ) ;
+        if( id > table.size() )
+            throw new IOException( "string id " + id + " used before it was defined" ) ;
+        String s = readString() ;
+        table.add( s ) ;
+        return s ;
+    } // end of method lookup
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[readVarint( false )] ;
+        new DataInputStream( in ).readFully( bytes ) ;
+        return new String( bytes, StandardCharsets.UTF_8 ) ;
+    } // end of method readString
+
+    /** Reads an unsigned varint; at the end of the input returns -1 if that is allowed here. */
+    private int readVarint( boolean endAllowed ) throws IOException {
+        int v = 0 ;
+        for( int shift = 0; shift < 35; shift += 7 ) {
+            int b = in.read() ;
+            if( b < 0 ) {
+                if( endAllowed && (shift == 0) )
+                    return -1 ;
+                throw new EOFException( "binary 312 trace ends inside a record" ) ;
+            }
+            v |= (b & 0x7F) << shift ;
+            if( (b & 0x80) == 0 )
+                return v ;
+        }
+        throw new IOException( "malformed varint in binary 312 trace" ) ;
+    } // end of method readVarint
+
+    public static void main( String[] args ) throws IOException {
+        InputStream is = (args.length > 0) ? new FileInputStream( args[0] ) : System.in ;
+        BinaryEventDecoder d = new BinaryEventDecoder( is ) ;
+        PrintStream out = System.out ;
+        TextEventSink text = new TextEventSink( out ) ;
+        for( String file = d.nextFile(); file != null; file = d.nextFile() ) {
+            if( !file.isEmpty() ) {
+                out.println() ;
+                out.println( "312FILE " + file ) ;
+            }
+            d.replay( text ) ;
+        }
+        out.flush() ;
+    } // end of main method
+
+} // end of class BinaryEventDecoder
@@ -0,0 +1,249 @@
+
+/**
+ *
+ * An EventSink writing the 312 trace in a compact binary form, which
+ * BinaryEventDecoder turns back into the exact text.
+ *
+ * The stream starts with the four bytes "312B" and a format version, then
+ * holds one record per event.  A record starts with a varint opcode
+ * (value << 2 | kind):
+ *
+ *   kind 0  terminal      value is the token's symbol; then the zigzag
+ *                         varint change of line number since the last
+ *                         terminal and, for identifiers, numbers and
+ *                         strings, the id of its text
+ *   kind 1  BEGIN         value is the nonterminal's id
+ *   kind 2  END           value is the nonterminal's id
+ *   kind 3  control       value 0 is SUCCESS; value 1 starts a file, and
+ *                         is followed by its name as a string
+ *
+ * Texts and nonterminal names are numbered from 0 in order of first use;
+ * a record using the next unused id is followed by the string it stands
+ * for (a varint byte length and UTF-8), and later records refer to it by
+ * id alone.  A file record forgets all ids and sets the line back to 0, so
+ * each file's records stand on their own and can be written separately
+ * and joined.  Only the texts the text trace shows are kept.
+ *
+ **/
+
+import java.io.* ;
+import java.nio.charset.StandardCharsets ;
+import java.util.* ;
+
+public class BinaryEventSink implements EventSink
+{
+    /** The first bytes of a binary trace. */
+    static final byte[] MAGIC = { '3', '1', '2', 'B' } ;
+    /** Written after the magic; changes whenever the record layout does. */
+    static final int FORMAT_VERSION = 1 ;
+
+    /* Record kinds, in the low two bits of an opcode. */
+    static final int TERMINAL = 0, BEGIN = 1, END = 2, CONTROL = 3 ;
+    /* Control record values. */
+    static final int SUCCESS = 0, FILE = 1 ;
+
+    /** Where the records end up. */
+    private final OutputStream out ;
+    /** Records waiting to be written. */
+    private final byte[] buffer = new byte[1 << 16] ;
+    private int count ;
+
+    /** Line number of the last terminal. */
+    private int line ;
+    /** Nonterminal names by id. */
+    private final HashMap<String, Integer> nonterminals = new HashMap<String, Integer>() ;
+    /** Texts by id, and an open-addressed index of them holding id + 1, 0 when empty. */
+    private String[] texts = new String[64] ;
+    private int textCount ;
+    private int[] slots = new int[128] ;
+
+    /** Creates a sink writing a complete binary trace, header first.
+
+      @param os The stream to write to.
+     */
+    public BinaryEventSink( OutputStream os ) {
+        this( os, true ) ;
+    } // end of constructor method
+
+    /** Creates a sink, optionally leaving out the header, e.g. for one of several
+      files compiled separately whose records are joined after a single header.
+
+      @param os The stream to write to.
+      @param header Write the magic and version first?
+     */
+    public BinaryEventSink( OutputStream os, boolean header ) {
+        out = os ;
+        if( header ) {
+            for( byte b : MAGIC )
+                buffer[count++] = b ;
+            buffer[count++] = (byte) FORMAT_VERSION ;
+        }
+    } // end of constructor method
+
+    /** Writes the magic and version a binary trace starts with, for
+      records written by sinks made without them and joined afterwards.
+
+      @param os The stream to write to.
+      @throws IOException in the event that it cannot be written.
+     */
+    public static void writeHeader( OutputStream os ) throws IOException {
+        os.write( MAGIC ) ;
+        os.write( FORMAT_VERSION ) ;
+    } // end of method writeHeader
+
+    /** Starts the records of a new file, forgetting every id so far.
+
+      @param name The file's name.
+     */
+    public void beginFile( String name ) {
+        writeVarint( (FILE << 2) | CONTROL ) ;
+        writeString( name ) ;
+        line = 0 ;
+        nonterminals.clear() ;
+        Arrays.fill( texts, 0, textCount, null ) ;
+        textCount = 0 ;
+        Arrays.fill( slots, 0 ) ;
+    } // end of method beginFile
+
+    public void insertTerminal( int symbol, CharSequence text, int lineNumber ) {
+        writeVarint( (symbol << 2) | TERMINAL ) ;
+        int delta = lineNumber - line ;
+        writeVarint( (delta << 1) ^ (delta >> 31) ) ;
+        line = lineNumber ;
+        if( (symbol == Token.identifier) || (symbol == Token.numberConstant) || (symbol == Token.stringConstant) )
+            writeText( text ) ;
+    } // end of method insertTerminal
+
+    public void commenceNonterminal( String name ) {
+        writeNonterminal( BEGIN, name ) ;
+    } // end of method commenceNonterminal
+
+    public void finishNonterminal( String name ) {
+        writeNonterminal( END, name ) ;
+    } // end of method finishNonterminal
+
+    public void reportSuccess() {
+        writeVarint( (SUCCESS << 2) | CONTROL ) ;
+    } // end of method reportSuccess
+
+    public void flush() {
+        try {
+            drain() ;
+            out.flush() ;
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e ) ;
+        }
+    } // end of method flush
+
+    /** Writes out what is buffered and closes the underlying stream. */
+    public void close() {
+        try {
+            drain() ;
+            out.close() ;
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e ) ;
+        }
+    } // end of method close
+
+    private void writeNonterminal( int kind, String name ) {
+        Integer id = nonterminals.get( name ) ;
+        if( id != null )
+            writeVarint( (id << 2) | kind ) ;
+        else {
+            id = nonterminals.size() ;
+            nonterminals.put( name, id ) ;
+            writeVarint( (id << 2) | kind ) ;
+            writeString( name ) ;
+        }
+    } // end of method writeNonterminal
+
+    /** Writes a text's id, with the text itself the first time it is seen. */
+    private void writeText( CharSequence text ) {
+        int h = 0 ;
+        for( int i = 0; i < text.length(); i++ )
+            h = 31 * h + text.charAt(i) ;
+        int mask = slots.length - 1 ;
+        int i = (h ^ (h >>> 16)) & mask ;
+        for( int id = slots[i]; id != 0; id = slots[i] ) {
+            if( contentEquals( texts[id - 1], text ) ) {
+                writeVarint( id - 1 ) ;
+                return ;
+            }
+            i = (i + 1) & mask ;
+        }
+
+        String s = text.toString() ;
+        if( textCount == texts.length )
+            texts = Arrays.copyOf( texts, 2 * textCount ) ;
+        texts[textCount] = s ;
+        slots[i] = ++textCount ;
+        if( 2 * textCount > slots.length )
+            rehash() ;
+        writeVarint( textCount - 1 ) ;
+        writeString( s ) ;
+    } // end of method writeText
+
+    private static boolean contentEquals( String s, CharSequence text ) {
+        if( s.length() != text.length() )
+            return false ;
+        for( int i = 0; i < s.length(); i++ )
+            if( s.charAt(i) != text.charAt(i) )
+                return false ;
+        return true ;
+    } // end of method contentEquals
+
+    private void rehash() {
+        slots = new int[2 * slots.length] ;
+        int mask = slots.length - 1 ;
+        for( int id = 0; id < textCount; id++ ) {
+            int h = texts[id].hashCode() ;
+            int i = (h ^ (h >>> 16)) & mask ;
+            while( slots[i] != 0 )
+                i = (i + 1) & mask ;
+            slots[i] = id + 1 ;
+        }
+    } // end of method rehash
+
+    private void writeString( String s ) {
+        byte[] bytes = s.getBytes( StandardCharsets.UTF_8 ) ;
+        writeVarint( bytes.length ) ;
+        reserve( bytes.length ) ;
+        if( bytes.length > buffer.length ) {
+            try {
+                out.write( bytes ) ;
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e ) ;
+            }
+            return ;
+        }
+        System.arraycopy( bytes, 0, buffer, count, bytes.length ) ;
+        count += bytes.length ;
+    } // end of method writeString
+
+    /** Writes an unsigned varint: seven bits a byte, low first, the top bit set on all but the last. */
+    private void writeVarint( int v ) {
+        reserve( 5 ) ;
+        while( (v & ~0x7F) != 0 ) {
+            buffer[count++] = (byte) ((v & 0x7F) | 0x80) ;
+            v >>>= 7 ;
+        }
+        buffer[count++] = (byte) v ;
+    } // end of method writeVarint
+
+    /** Makes room for at least the given number of bytes, draining the buffer if need be. */
+    private void reserve( int n ) {
+        if( buffer.length - count < n ) {
+            try {
+                drain() ;
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e ) ;
+            }
+        }
+    } // end of method reserve
+
+    private void drain() throws IOException {
+        out.write( buffer, 0, count ) ;
+        count = 0 ;
+    } // end of method drain
+
+} // end of class BinaryEventSink
@@ -10,24 +10,98 @@
  *
  **/
 
+import java.util.Arrays;
+
 public class CompilationException extends Exception
 {
 	private static final int MAX_TRACE_DEPTH = 20;
 
+	/* Context added by the productions the error unwound through, innermost
+	   first.  Each frame stands for count identical "Caused by" lines and is
+	   only turned into text by toTraceString. */
+	private String[] frameFiles;
+	private String[] frameExpected;
+	private int[] frameLines;
+	private int[] frameSymbols;
+	private int[] frameCounts;
+	private int frames;
+
+	/* Compilation errors are reported through toTraceString, never through a
+	   Java stack trace, so none is filled in. */
+
 	public CompilationException( String message ) {
-		super( message );
+		super( message, null, true, false );
 	}
 
 	public CompilationException( String message, CompilationException cause ) {
-		super( message, cause );
+		super( message, cause, true, false );
+	}
+
+	/** Records that the error passed out through a production, instead of wrapping it in a new exception.
+
+	  @param file The program being parsed.
+	  @param expected What the production was trying to recognise.
+	  @param line The line of the token the error was found at.
+	  @param symbol The symbol of that token.
+	  @param count How many times the same context applies, e.g. once per nested list.
+	  @return this exception, to be rethrown.
+	 */
+	public CompilationException within( String file, String expected, int line, int symbol, int count ) {
+		if( count <= 0 )
+			return this;
+		if( frameFiles == null ) {
+			frameFiles = new String[8];
+			frameExpected = new String[8];
+			frameLines = new int[8];
+			frameSymbols = new int[8];
+			frameCounts = new int[8];
+		} else if( frames == frameFiles.length ) {
+			frameFiles = Arrays.copyOf( frameFiles, 2 * frames );
+			frameExpected = Arrays.copyOf( frameExpected, 2 * frames );
+			frameLines = Arrays.copyOf( frameLines, 2 * frames );
+			frameSymbols = Arrays.copyOf( frameSymbols, 2 * frames );
+			frameCounts = Arrays.copyOf( frameCounts, 2 * frames );
+		}
+		frameFiles[frames] = file;
+		frameExpected[frames] = expected;
+		frameLines[frames] = line;
+		frameSymbols[frames] = symbol;
+		frameCounts[frames] = count;
+		frames++;
+		return this;
+	}
+
+	/** @return the outermost message, as the first "Caused by" line of toTraceString shows it. */
+	public String getMessage() {
+		if( frames == 0 )
+			return super.getMessage();
+		return frameMessage( frames - 1 );
+	}
+
+	private String frameMessage( int frame ) {
+		return "Error on line " + frameLines[frame] + " in " 
+			+ frameFiles[frame] + " - Token expected: " + frameExpected[frame] + " || Token accepted: " 
+			+ Token.getName( frameSymbols[frame] ) + " !\n";
 	}
 
 	public String toTraceString() {
-		StringBuffer buffer = new StringBuffer();
+		StringBuilder buffer = new StringBuilder();
 		Throwable err = this;
 		int maxDepth = MAX_TRACE_DEPTH;
-		while( err != null && maxDepth-- > 0 ) {
-			buffer.append( "\tCaused by " ).append( err.getMessage() ).append( "\r\n" );
+		while( err != null && maxDepth > 0 ) {
+			if( err instanceof CompilationException ) {
+				CompilationException ce = (CompilationException) err;
+				for( int f = ce.frames - 1; f >= 0 && maxDepth > 0; f-- ) {
+					String message = ce.frameMessage( f );
+					for( int i = 0; i < ce.frameCounts[f] && maxDepth > 0; i++, maxDepth-- )
+						buffer.append( "\tCaused by " ).append( message ).append( "\r\n" );
+				}
+				if( maxDepth == 0 )
+					break;
+				buffer.append( "\tCaused by " ).append( ce.getRootMessage() ).append( "\r\n" );
+			} else
+				buffer.append( "\tCaused by " ).append( err.getMessage() ).append( "\r\n" );
+			maxDepth--;
 			err = err.getCause();
 		}
 
@@ -36,4 +110,9 @@ public class CompilationException extends Exception
 
 		return buffer.toString();
 	}
+
+	/** @return the message this exception was created with, before any context was added. */
+	public String getRootMessage() {
+		return super.getMessage();
+	}
 } // end of class CompilationException
\ No newline at end of file
@@ -11,10 +11,59 @@
  **/
 
 import java.io.* ;
+import java.util.* ;
+import java.util.concurrent.* ;
 
 public class Compile {
 
-	public static String fileName;
+	/** Compile the files concurrently rather than one after another. */
+	private boolean parallel = false;
+	/** Number of worker threads used in parallel mode. */
+	private int threads = Runtime.getRuntime().availableProcessors();
+	/** Drop the 312 trace and only report accept/reject. */
+	private boolean quiet = false;
+	/** Report every syntax error in a program instead of stopping at the first. */
+	private boolean recover = false;
+	/** Read the programs from standard input instead of the programs folder. */
+	private boolean stream = false;
+	/** Are the programs on standard input length prefixed rather than separated? */
+	private boolean lengthPrefixed = false;
+	/** Where to listen as a compile server, or null to compile once and exit. */
+	private String server = null;
+	/** Longest source the server compiles, in bytes. */
+	private int maxSource = CompileServer.DEFAULT_MAX_SOURCE;
+	/** Results of earlier compiles, or null to compile every program afresh. */
+	private ParseCache cache = null;
+	/** How many bytes of results the cache keeps in memory. */
+	private static final long CACHE_MEMORY = 64L << 20;
+	/** How many bytes of results the cache keeps on disk. */
+	private static final long CACHE_DISK = 1L << 30;
+	/** Write the 312 trace to this file in binary, see BinaryEventSink, or null for text on stdout. */
+	private String binary = null;
+	/** Parse with TableParser rather than SyntaxAnalyser. */
+	private boolean table = false;
+	/** Where to write the metrics summary at 312FINISH, or null for none. */
+	private String metricsFile = null;
+	/** Every program's metrics, if they are to be written. */
+	private CompileMetrics metrics = null;
+	/** Lex large programs on a thread of their own, ahead of the parser; see TokenPipeline. */
+	private boolean pipeline = false;
+	/** The smallest file worth a lexer thread. */
+	private static final long PIPELINE_BYTES = 64 << 10;
+	/** Parse large programs on several cores, in pieces; see ParallelParser. */
+	private boolean split = false;
+	/** The smallest file worth parsing in pieces. */
+	private static final long SPLIT_BYTES = 1 << 20;
+
+	/** The buffered output of compiling one file in parallel mode. */
+	private static class Result {
+		/** The 312 trace the generator produced. */
+		ByteArrayOutputStream trace = new ByteArrayOutputStream();
+		/** The diagnostics destined for res.txt. */
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		/** What compiling it measured, or null. */
+		CompileMetrics.Program metrics;
+	} // end of class Result
 
 	/**
 	 *
@@ -25,6 +74,7 @@ public class Compile {
 	private void go() throws IOException {
 		String prefix = "Programs Folder" + File.separator + "program";
 		int fileNumber = -1;
+		String fileName;
 		int exitFlag = 0;
 		System.out.println( "312START" );
 		PrintStream out = null;
@@ -38,28 +88,332 @@ public class Compile {
 			System.exit(0);
 		}
 
+		if( stream ) {
+			goStream( out );
+			goon = false;
+		} else if( parallel ) {
+			goParallel( prefix, out );
+			goon = false;
+		}
+
+		BinaryEventSink binaryEvents = (goon && binary != null && !quiet) ? new BinaryEventSink( binaryFile() ) : null;
+		EventSink events = quiet ? new NullEventSink() : binaryEvents != null ? binaryEvents : new TextEventSink( System.out );
 		while( goon ) {
 			fileNumber++ ;
 			fileName = prefix + fileNumber;
 			goon = ((new File(fileName)).exists());
 			if( goon ) {
-				System.out.println();
-				System.out.println( "312FILE " + fileName );
-
-				SyntaxAnalyser syn = new SyntaxAnalyser(fileName) ;
-				syn.parse( out ) ;
+				if( binaryEvents != null ) binaryEvents.beginFile( fileName );
+				compile( fileName, System.out, out, events );
 			} else System.out.println(fileName+" does not exist");
 		}
+		if( binaryEvents != null ) binaryEvents.close();
 
 		System.out.println() ;
 		System.out.println("312FINISH") ;
+		if( metrics != null ) {
+			try( Writer w = new BufferedWriter( new FileWriter(metricsFile) ) ) {
+				metrics.write( w );
+			}
+		}
 		out.flush();out.close();
 		System.exit(exitFlag) ;
 	} // end of main method
 
+	/**
+	 *
+	 * compileFile - the whole pipeline for one program: its 312FILE header
+	 * and trace go to stdout (events should write there too), its errors
+	 * to out
+	 *
+	 **/
+
+	public static void compileFile( String file, PrintStream stdout, PrintStream out, EventSink events ) throws IOException {
+		new Compile().compile( file, stdout, out, events );
+	} // end of method compileFile
+
+	/** compileFile with this driver's options applied. */
+	private void compile( String file, PrintStream stdout, PrintStream out, EventSink events ) throws IOException {
+		stdout.println();
+		stdout.println( "312FILE " + file );
+
+		if( cache != null ) {
+			ParseCache.Entry e = cached( file );
+			stdout.write( e.trace );
+			out.write( e.errors );
+		} else if( splits( file ) ) {
+			ParallelParser.parse( file, recover, out, events );
+		} else {
+			CompileMetrics.Program m = measure( file, new File(file).length() );
+			AbstractSyntaxAnalyser syn = analyser( file );
+			if( m != null ) m.read();
+			TokenPipeline pipe = pipeline( syn, syn.lex, new File(file).length() );
+			try {
+				parse( syn, m, out, events );
+			} finally {
+				if( pipe != null ) pipe.close();
+			}
+			if( m != null && metrics != null ) metrics.add( m );
+		}
+	} // end of method compile
+
+	/** What compiling a file produces, from the cache if it has not changed since. */
+	private ParseCache.Entry cached( String file ) throws IOException {
+		byte[] source = java.nio.file.Files.readAllBytes( new File(file).toPath() );
+		return cache.compile( file, source, recover, !quiet );
+	} // end of method cached
+
+	/** @return whether -split asks for a file to be parsed in pieces and it is big enough. */
+	private boolean splits( String file ) {
+		return split && new File(file).length() >= SPLIT_BYTES;
+	} // end of method splits
+
+	/** Opens the -binary file. */
+	private OutputStream binaryFile() throws IOException {
+		return new FileOutputStream( binary );
+	} // end of method binaryFile
+
+	/** @return a program to measure the compiling of, or null if metrics are off and JFR is not recording them. */
+	private CompileMetrics.Program measure( String file, long bytes ) {
+		return (metrics != null || CompileMetrics.recording()) ? new CompileMetrics.Program( file, bytes ) : null;
+	} // end of method measure
+
+	/** Parses with an analyser, sending what is measured to m unless it is null. */
+	private static void parse( AbstractSyntaxAnalyser syn, CompileMetrics.Program m, PrintStream out, EventSink events ) throws IOException {
+		if( m == null ) {
+			syn.parse( out, events );
+			return;
+		}
+		syn.tokens = m.tokens( (syn.tokens != null) ? syn.tokens : syn.lex );
+		syn.parse( out, m.events( events ) );
+		m.finish();
+	} // end of method parse
+
+	/** Sets an analyser reading its tokens through a TokenPipeline, if -pipeline asks for it and the source is big enough.
+
+	  @param lex The lexer the analyser would otherwise read.
+	  @param bytes The size of the source, or -1 if it is not known in advance.
+	  @return the pipeline, to be closed once the parse is done, or null.
+	 */
+	private TokenPipeline pipeline( AbstractSyntaxAnalyser syn, LexicalAnalyser lex, long bytes ) {
+		if( !pipeline || (bytes >= 0 && bytes < PIPELINE_BYTES) )
+			return null;
+		TokenPipeline pipe = new TokenPipeline( lex );
+		syn.tokens = pipe;
+		return pipe;
+	} // end of method pipeline
+
+	/** A new analyser for one file, set up with this driver's options. */
+	private AbstractSyntaxAnalyser analyser( String file ) throws IOException {
+		AbstractSyntaxAnalyser syn = table ? new TableParser(file) : new SyntaxAnalyser(file) ;
+		syn.setErrorRecovery( recover ) ;
+		return syn ;
+	} // end of method analyser
+
+	/**
+	 *
+	 * goParallel - compiles every program on a work-stealing pool, each with
+	 * its own analyser and buffers, then writes the results back in file
+	 * order so the output matches the sequential run.
+	 *
+	 **/
+
+	private void goParallel( String prefix, PrintStream out ) throws IOException {
+		List<String> files = new ArrayList<String>();
+		while( (new File(prefix + files.size())).exists() )
+			files.add( prefix + files.size() );
+
+		ExecutorService pool = Executors.newWorkStealingPool( threads );
+		List<Future<Result>> results = new ArrayList<Future<Result>>();
+		for( final String file : files ) {
+			results.add( pool.submit( new Callable<Result>() {
+				public Result call() throws IOException {
+					Result r = new Result();
+					if( cache != null ) {
+						ParseCache.Entry e = cached( file );
+						r.trace.write( e.trace );
+						r.errors.write( e.errors );
+						return r;
+					}
+					EventSink events = quiet ? new NullEventSink() : new TextEventSink( r.trace );
+					if( binary != null && !quiet ) {
+						BinaryEventSink b = new BinaryEventSink( r.trace, false );
+						b.beginFile( file );
+						events = b;
+					}
+					PrintStream errors = new PrintStream( r.errors );
+					if( splits( file ) ) {
+						// its pieces are forked into this same pool
+						ParallelParser.parse( file, recover, errors, events );
+						errors.flush();
+						return r;
+					}
+					r.metrics = measure( file, new File(file).length() );
+					AbstractSyntaxAnalyser syn = analyser( file );
+					if( r.metrics != null ) r.metrics.read();
+					TokenPipeline pipe = pipeline( syn, syn.lex, new File(file).length() );
+					try {
+						parse( syn, r.metrics, errors, events );
+					} finally {
+						if( pipe != null ) pipe.close();
+					}
+					errors.flush();
+					return r;
+				}
+			} ) );
+		}
+
+		OutputStream trace = System.out;
+		try {
+			if( binary != null && !quiet ) {
+				trace = new BufferedOutputStream( binaryFile() );
+				BinaryEventSink.writeHeader( trace );
+			}
+			for( int i = 0; i < files.size(); i++ ) {
+				System.out.println();
+				System.out.println( "312FILE " + files.get(i) );
+
+				Result r = await( results.get(i) );
+				r.trace.writeTo( trace );
+				r.errors.writeTo( out );
+				if( r.metrics != null && metrics != null ) metrics.add( r.metrics );
+			}
+		} finally {
+			pool.shutdownNow();
+			if( trace != System.out ) trace.close();
+		}
+
+		System.out.println(prefix + files.size() + " does not exist");
+	} // end of method goParallel
+
+	/**
+	 *
+	 * goStream - compiles the programs piped in on standard input one at a
+	 * time, each named stdin:N, writing out each one's trace and errors as
+	 * soon as it is done
+	 *
+	 **/
+
+	private void goStream( PrintStream out ) throws IOException {
+		ProgramStream programs = new ProgramStream( System.in, lengthPrefixed );
+		BinaryEventSink binaryEvents = (binary != null && !quiet) ? new BinaryEventSink( binaryFile() ) : null;
+		EventSink events = quiet ? new NullEventSink() : binaryEvents != null ? binaryEvents : new TextEventSink( System.out );
+		for( Reader program = programs.next(); program != null; program = programs.next() ) {
+			String fileName = "stdin:" + (programs.count() - 1);
+			System.out.println();
+			System.out.println( "312FILE " + fileName );
+			if( binaryEvents != null ) binaryEvents.beginFile( fileName );
+
+			CompileMetrics.Program m = measure( fileName, 0 );
+			LexicalAnalyser lex = new LexicalAnalyser( (m != null) ? m.source(program) : program );
+			AbstractSyntaxAnalyser syn = table ? new TableParser( lex, fileName ) : new SyntaxAnalyser( lex, fileName );
+			syn.setErrorRecovery( recover );
+			TokenPipeline pipe = pipeline( syn, lex, -1 );
+			try {
+				parse( syn, m, out, events );
+			} finally {
+				if( pipe != null ) pipe.close();
+			}
+			if( m != null && metrics != null ) metrics.add( m );
+			System.out.flush();
+			out.flush();
+		}
+		if( binaryEvents != null ) binaryEvents.close();
+	} // end of method goStream
+
+	/**
+	 *
+	 * goServer - runs as a compile server until told to shut down, see
+	 * CompileServer
+	 *
+	 **/
+
+	private void goServer() throws IOException {
+		try( CompileServer s = new CompileServer( CompileServer.address(server), threads, recover, quiet, maxSource ) ) {
+			System.err.println( "312SERVER listening on " + s.localAddress() );
+			s.serve();
+		}
+	} // end of method goServer
+
+	/** Waits for a parallel result, rethrowing whatever the compile itself threw. */
+	private static Result await( Future<Result> f ) throws IOException {
+		try {
+			return f.get();
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "interrupted waiting for compile" );
+		} catch( ExecutionException e ) {
+			Throwable cause = e.getCause();
+			if( cause instanceof IOException ) throw (IOException) cause;
+			if( cause instanceof RuntimeException ) throw (RuntimeException) cause;
+			if( cause instanceof Error ) throw (Error) cause;
+			throw new IOException( cause );
+		}
+	} // end of method await
+
+	private static void usage() {
+		System.err.println( "usage: java Compile [-parallel] [-threads n] [-quiet] [-recover] [-table] [-pipeline] [-split] [-metrics file] [-binary file | -cache dir] [-stream | -stream-length | -server [port|unix:path] [-max-source bytes]]" );
+		System.exit(1);
+	} // end of method usage
+
 	public static void main(String args[]) throws IOException {
 		Compile c = new Compile();
-		c.go();
+		String cacheDirectory = null;
+		for( int i = 0; i < args.length; i++ ) {
+			if( args[i].equals("-parallel") )
+				c.parallel = true;
+			else if( args[i].equals("-quiet") )
+				c.quiet = true;
+			else if( args[i].equals("-recover") )
+				c.recover = true;
+			else if( args[i].equals("-table") )
+				c.table = true;
+			else if( args[i].equals("-pipeline") )
+				c.pipeline = true;
+			else if( args[i].equals("-split") )
+				c.split = true;
+			else if( args[i].equals("-metrics") && i + 1 < args.length ) {
+				c.metricsFile = args[++i];
+				c.metrics = new CompileMetrics();
+			}
+			else if( args[i].equals("-stream") )
+				c.stream = true;
+			else if( args[i].equals("-stream-length") ) {
+				c.stream = true;
+				c.lengthPrefixed = true;
+			} else if( args[i].equals("-binary") && i + 1 < args.length ) {
+				c.binary = args[++i];
+			} else if( args[i].equals("-cache") && i + 1 < args.length ) {
+				cacheDirectory = args[++i];
+			} else if( args[i].equals("-server") ) {
+				boolean given = i + 1 < args.length && !args[i + 1].startsWith("-");
+				c.server = given ? args[++i] : Integer.toString( CompileServer.DEFAULT_PORT );
+			}
+			else if( args[i].equals("-max-source") && i + 1 < args.length ) {
+				c.maxSource = Integer.parseInt( args[++i] );
+			}
+			else if( args[i].equals("-threads") && i + 1 < args.length ) {
+				c.parallel = true;
+				c.threads = Integer.parseInt( args[++i] );
+			} else {
+				usage();
+			}
+		}
+		// the cache and the server hold text traces, from SyntaxAnalyser, and do not parse every time
+		if( (c.binary != null || c.table || c.metrics != null || c.pipeline) && (cacheDirectory != null || c.server != null) )
+			usage();
+		// a program parsed in pieces is parsed by SyntaxAnalyser, from tokens read up front, and is not measured
+		if( c.split && (c.table || c.metrics != null || cacheDirectory != null || c.server != null) )
+			usage();
+		// only the programs folder is looked up in the cache
+		if( cacheDirectory != null && (c.stream || c.server != null) )
+			usage();
+		if( cacheDirectory != null )
+			c.cache = new ParseCache( CACHE_MEMORY, new File(cacheDirectory).toPath(), CACHE_DISK );
+		if( c.server != null )
+			c.goServer();
+		else
+			c.go();
 	};
 
 } // end of class Compile
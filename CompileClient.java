@@ -0,0 +1,151 @@
+
+/**
+ *
+ * A thin client for CompileServer.
+ *
+ *   java CompileClient [-connect port|unix:path] [-path] [-shutdown] file...
+ *
+ * Each file is read here and sent as source, so the output is the same as
+ * Compile's for that file: the trace on standard output and the errors on
+ * standard error.  With -path the server reads the files itself, by the
+ * names given.  A file named - is standard input.  The exit status is 0 if
+ * every program compiled without errors, 1 if any had errors and 2 if the
+ * server could not compile one at all.
+ *
+ **/
+
+import java.io.* ;
+import java.net.* ;
+import java.nio.channels.* ;
+import java.nio.file.* ;
+
+public class CompileClient implements Closeable
+{
+    private final SocketChannel channel ;
+    private final DataInputStream in ;
+    private final OutputStream out ;
+
+    /** What the server made of one program. */
+    public static class Result {
+        /** The 312FILE line and trace, as Compile writes to standard output. */
+        public final byte[] trace ;
+        /** The errors, as Compile writes to res.txt; empty if there were none. */
+        public final byte[] errors ;
+
+        Result( byte[] trace, byte[] errors ) {
+            this.trace = trace ;
+            this.errors = errors ;
+        } // end of constructor method
+    } // end of class Result
+
+    /** Connects to a server.
+
+      @param address The server's address, see CompileServer.address(String).
+      @throws IOException if the server cannot be reached.
+     */
+    public CompileClient( SocketAddress address ) throws IOException {
+        channel = SocketChannel.open( address ) ;
+        in = new DataInputStream( new BufferedInputStream( Channels.newInputStream( channel ) ) ) ;
+        out = new BufferedOutputStream( Channels.newOutputStream( channel ) ) ;
+    } // end of constructor method
+
+    /** Compiles source text held by the client.
+
+      @param name The program's name, used in its 312FILE line and error messages.
+      @param source The program, in the platform's default charset.
+      @throws IOException if the server cannot compile it.
+      @return the result.
+     */
+    public Result compileSource( String name, byte[] source ) throws IOException {
+        out.write( ("SOURCE " + source.length + " " + name + "\n").getBytes() ) ;
+        out.write( source ) ;
+        out.flush() ;
+        return response() ;
+    } // end of method compileSource
+
+    /** Compiles a file the server reads itself.
+
+      @param path The file, as the server sees it.
+      @throws IOException if the server cannot compile it.
+      @return the result.
+     */
+    public Result compileFile( String path ) throws IOException {
+        out.write( ("FILE " + path + "\n").getBytes() ) ;
+        out.flush() ;
+        return response() ;
+    } // end of method compileFile
+
+    /** Asks the server to stop. */
+    public void shutdown() throws IOException {
+        out.write( "SHUTDOWN\n".getBytes() ) ;
+        out.flush() ;
+    } // end of method shutdown
+
+    private Result response() throws IOException {
+        String status = CompileServer.readLine( in ) ;
+        if( status == null )
+            throw new EOFException( "server closed the connection" ) ;
+        if( !status.startsWith( "OK " ) )
+            throw new IOException( status.startsWith( "ERROR " ) ? status.substring( 6 ) : status ) ;
+        String[] sizes = status.split( " " ) ;
+        byte[] trace = new byte[Integer.parseInt( sizes[1] )] ;
+        byte[] errors = new byte[Integer.parseInt( sizes[2] )] ;
+        in.readFully( trace ) ;
+        in.readFully( errors ) ;
+        return new Result( trace, errors ) ;
+    } // end of method response
+
+    public void close() throws IOException {
+        channel.close() ;
+    } // end of method close
+
+    public static void main( String[] args ) throws IOException {
+        String connect = Integer.toString( CompileServer.DEFAULT_PORT ) ;
+        boolean paths = false, shutdown = false ;
+        int first = 0 ;
+        for( ; (first < args.length) && args[first].startsWith( "-" ) && !args[first].equals( "-" ); first++ ) {
+            if( args[first].equals( "-connect" ) && (first + 1 < args.length) )
+                connect = args[++first] ;
+            else if( args[first].equals( "-path" ) )
+                paths = true ;
+            else if( args[first].equals( "-shutdown" ) )
+                shutdown = true ;
+            else {
+                System.err.println( "usage: java CompileClient [-connect port|unix:path] [-path] [-shutdown] file..." ) ;
+                System.exit( 2 ) ;
+            }
+        }
+
+        int status = 0 ;
+        try( CompileClient client = new CompileClient( CompileServer.address( connect ) ) ) {
+            for( int i = first; i < args.length; i++ ) {
+                Result r ;
+                try {
+                    if( args[i].equals( "-" ) )
+                        r = client.compileSource( "stdin", System.in.readAllBytes() ) ;
+                    else if( paths )
+                        r = client.compileFile( args[i] ) ;
+                    else
+                        r = client.compileSource( args[i], Files.readAllBytes( Paths.get( args[i] ) ) ) ;
+                } catch( NoSuchFileException e ) {
+                    System.err.println( args[i] + " does not exist" ) ;
+                    status = 2 ;
+                    continue ;
+                }
+                System.out.write( r.trace ) ;
+                System.out.flush() ;
+                System.err.write( r.errors ) ;
+                System.err.flush() ;
+                if( r.errors.length > 0 )
+                    status = Math.max( status, 1 ) ;
+            }
+            if( shutdown )
+                client.shutdown() ;
+        } catch( IOException e ) {
+            System.err.println( "compile failed: " + e.getMessage() ) ;
+            status = 2 ;
+        }
+        System.exit( status ) ;
+    } // end of main method
+
+} // end of class CompileClient
@@ -0,0 +1,51 @@
+
+/**
+ *
+ * A JFR event for each program compiled, with where its time went; see
+ * CompileMetrics.  It is only measured and committed while a recording
+ * enables it, e.g.
+ *
+ *   java -XX:StartFlightRecording:filename=compile.jfr Compile
+ *   jfr print --events compiler312.CompileFile compile.jfr
+ *
+ **/
+
+import jdk.jfr.* ;
+
+@Name( "compiler312.CompileFile" )
+@Label( "Compile File" )
+@Category( "312 Compiler" )
+@Description( "One program lexed, parsed and its trace written" )
+public class CompileFileEvent extends Event
+{
+    @Label( "File" )
+    String file ;
+
+    @Label( "Source Size" )
+    @DataAmount
+    long bytes ;
+
+    @Label( "Lex Time" )
+    @Timespan
+    long lexTime ;
+
+    @Label( "Parse Time" )
+    @Description( "Time in the parser itself, leaving out lexing and writing the trace" )
+    @Timespan
+    long parseTime ;
+
+    @Label( "Output Time" )
+    @Timespan
+    long outputTime ;
+
+    @Label( "Tokens" )
+    long tokens ;
+
+    @Label( "Nonterminals Entered" )
+    long nonterminals ;
+
+    @Label( "Maximum Depth" )
+    @Description( "The most instances of any one nonterminal open at once" )
+    long maxDepth ;
+
+} // end of class CompileFileEvent
@@ -0,0 +1,287 @@
+
+/**
+ *
+ * Where the time goes in a compile, file by file: lexing, parsing and
+ * writing the trace, the tokens of each kind, how often each nonterminal
+ * is entered and how deeply it nests, and the size of the source.
+ *
+ * A file is measured by putting a Tokens cursor between the parser and
+ * its lexer and an Events sink between the parser and its output, which
+ * time and count what passes through them; parse time is what is left
+ * of the whole.  Nothing is put in the way unless metrics are wanted,
+ * with Compile -metrics or by a JFR recording that enables
+ * CompileFileEvent, so otherwise they cost nothing.
+ *
+ * Compile -metrics writes the summary as JSON: one object per file in
+ * the order compiled, and the totals.
+ *
+ **/
+
+import java.io.* ;
+import java.util.* ;
+
+public class CompileMetrics
+{
+    /** Every file measured, in the order they were added. */
+    private final List<Program> files = new ArrayList<Program>() ;
+
+    /** @return whether a JFR recording wants CompileFileEvents, so files must be measured. */
+    public static boolean recording() {
+        return new CompileFileEvent().isEnabled() ;
+    } // end of method recording
+
+    /** Adds a finished file to the summary. */
+    public synchronized void add( Program f ) {
+        files.add( f ) ;
+    } // end of method add
+
+    /** Writes the summary as JSON. */
+    public synchronized void write( Writer out ) throws IOException {
+        Program total = new Program( null, 0 ) ;
+        out.write( "{\n  \"files\": [" ) ;
+        for( int i = 0; i < files.size(); i++ ) {
+            Program f = files.get( i ) ;
+            out.write( (i > 0) ? ",\n    " : "\n    " ) ;
+            f.write( out, "    " ) ;
+            total.addTo( f ) ;
+        }
+        out.write( "\n  ],\n  \"total\": " ) ;
+        total.write( out, "  " ) ;
+        out.write( "\n}\n" ) ;
+        out.flush() ;
+    } // end of method write
+
+    /** The measurements of one program. */
+    public static class Program {
+        final String name ;
+        long bytes ;
+        long lexNanos, parseNanos, outputNanos ;
+        /** Number of tokens of each Token symbol. */
+        final long[] tokens = new long[64] ;
+        /** Each nonterminal's entries, the number of it open now, and the most ever open at once. */
+        final Map<String, long[]> nonterminals = new LinkedHashMap<String, long[]>() ;
+        /** Where the source is counted when it is read from a Reader, or null. */
+        private CountingReader source ;
+        private final CompileFileEvent event = new CompileFileEvent() ;
+        private long start ;
+
+        /** Starts measuring a program.
+
+          @param name The program's file name.
+          @param bytes The size of its source, or 0 if it is read with source().
+         */
+        public Program( String name, long bytes ) {
+            this.name = name ;
+            this.bytes = bytes ;
+            event.begin() ;
+            start = System.nanoTime() ;
+        } // end of constructor method
+
+        /** @return a Reader over the source that counts its size, for a source not read from a file;
+          it counts chars, which for ASCII source are bytes. */
+        public Reader source( Reader in ) {
+            source = new CountingReader( in ) ;
+            return source ;
+        } // end of method source
+
+        /** Counts the time since this program was started on as lexing, for a source read up front. */
+        public void read() {
+            lexNanos += System.nanoTime() - start ;
+        } // end of method read
+
+        /** @return a cursor passing tokens through from another, timing and counting them. */
+        public TokenCursor tokens( TokenCursor in ) {
+            return new Tokens( in ) ;
+        } // end of method tokens
+
+        /** @return a sink passing events through to another, timing their output and counting nonterminals. */
+        public EventSink events( EventSink out ) {
+            return new Events( out ) ;
+        } // end of method events
+
+        /** Stops the clock once the file is compiled, and reports it to JFR if it is recording. */
+        public void finish() {
+            parseNanos = System.nanoTime() - start - lexNanos - outputNanos ;
+            if( source != null )
+                bytes = source.count ;
+            event.end() ;
+            if( event.shouldCommit() ) {
+                event.file = name ;
+                event.bytes = bytes ;
+                event.lexTime = lexNanos ;
+                event.parseTime = parseNanos ;
+                event.outputTime = outputNanos ;
+                long count = 0, entries = 0, depth = 0 ;
+                for( long n : tokens )
+                    count += n ;
+                for( long[] n : nonterminals.values() ) {
+                    entries += n[0] ;
+                    depth = Math.max( depth, n[2] ) ;
+                }
+                event.tokens = count ;
+                event.nonterminals = entries ;
+                event.maxDepth = depth ;
+                event.commit() ;
+            }
+        } // end of method finish
+
+        /** Adds another file's measurements to these, as totals. */
+        private void addTo( Program f ) {
+            bytes += f.bytes ;
+            lexNanos += f.lexNanos ;
+            parseNanos += f.parseNanos ;
+            outputNanos += f.outputNanos ;
+            for( int s = 0; s < tokens.length; s++ )
+                tokens[s] += f.tokens[s] ;
+            for( Map.Entry<String, long[]> e : f.nonterminals.entrySet() ) {
+                long[] n = nonterminals.computeIfAbsent( e.getKey(), k -> new long[3] ) ;
+                n[0] += e.getValue()[0] ;
+                n[2] = Math.max( n[2], e.getValue()[2] ) ;
+            }
+        } // end of method addTo
+
+        private void write( Writer out, String indent ) throws IOException {
+            out.write( "{" ) ;
+            if( name != null )
+                out.write( "\"file\": " + quote( name ) + ", " ) ;
+            out.write( "\"bytes\": " + bytes + ", \"lexNanos\": " + lexNanos + ", \"parseNanos\": " + parseNanos
+                + ", \"outputNanos\": " + outputNanos + ",\n" + indent + "  \"tokens\": {" ) ;
+            String separator = "" ;
+            for( int s = 0; s < tokens.length; s++ ) {
+                if( tokens[s] == 0 )
+                    continue ;
+                out.write( separator + quote( Token.getName( s ) ) + ": " + tokens[s] ) ;
+                separator = ", " ;
+            }
+            out.write( "},\n" + indent + "  \"nonterminals\": {" ) ;
+            separator = "" ;
+            for( Map.Entry<String, long[]> e : nonterminals.entrySet() ) {
+                out.write( separator + "\n" + indent + "    " + quote( e.getKey() ) + ": { \"entries\": " + e.getValue()[0]
+                    + ", \"maxDepth\": " + e.getValue()[2] + " }" ) ;
+                separator = "," ;
+            }
+            out.write( (separator.isEmpty() ? "" : "\n" + indent + "  ") + "}}" ) ;
+        } // end of method write
+
+        /** Times the lexer and counts the tokens it gives. */
+        private class Tokens implements TokenCursor {
+            private final TokenCursor in ;
+            private boolean ended ;
+
+            Tokens( TokenCursor in ) {
+                this.in = in ;
+            } // end of constructor method
+
+            public int symbol() {
+                return in.symbol() ;
+            } // end of method symbol
+
+            public CharSequence text() {
+                return in.text() ;
+            } // end of method text
+
+            public int lineNumber() {
+                return in.lineNumber() ;
+            } // end of method lineNumber
+
+            public Token token() {
+                return in.token() ;
+            } // end of method token
+
+            public void advance() throws IOException {
+                long t = System.nanoTime() ;
+                in.advance() ;
+                lexNanos += System.nanoTime() - t ;
+                // the parser moves past EOF once it has accepted it, which gives EOF again
+                if( !ended )
+                    tokens[in.symbol()]++ ;
+                ended = in.symbol() == Token.eofSymbol ;
+            } // end of method advance
+        } // end of class Tokens
+
+        /** Times the output and counts the nonterminals and how deeply each nests. */
+        private class Events implements EventSink {
+            private final EventSink out ;
+
+            Events( EventSink out ) {
+                this.out = out ;
+            } // end of constructor method
+
+            public void insertTerminal( int symbol, CharSequence text, int lineNumber ) {
+                long t = System.nanoTime() ;
+                out.insertTerminal( symbol, text, lineNumber ) ;
+                outputNanos += System.nanoTime() - t ;
+            } // end of method insertTerminal
+
+            public void commenceNonterminal( String name ) {
+                long[] n = nonterminals.get( name ) ;
+                if( n == null )
+                    nonterminals.put( name, n = new long[3] ) ;
+                n[0]++ ;
+                n[2] = Math.max( n[2], ++n[1] ) ;
+                long t = System.nanoTime() ;
+                out.commenceNonterminal( name ) ;
+                outputNanos += System.nanoTime() - t ;
+            } // end of method commenceNonterminal
+
+            public void finishNonterminal( String name ) {
+                long[] n = nonterminals.get( name ) ;
+                if( n != null )
+                    n[1]-- ;
+                long t = System.nanoTime() ;
+                out.finishNonterminal( name ) ;
+                outputNanos += System.nanoTime() - t ;
+            } // end of method finishNonterminal
+
+            public void reportSuccess() {
+                long t = System.nanoTime() ;
+                out.reportSuccess() ;
+                outputNanos += System.nanoTime() - t ;
+            } // end of method reportSuccess
+
+            public void flush() {
+                long t = System.nanoTime() ;
+                out.flush() ;
+                outputNanos += System.nanoTime() - t ;
+            } // end of method flush
+        } // end of class Events
+    } // end of class Program
+
+    /** Counts the chars read through it. */
+    private static class CountingReader extends FilterReader {
+        long count ;
+
+        CountingReader( Reader in ) {
+            super( in ) ;
+        } // end of constructor method
+
+        public int read() throws IOException {
+            int c = super.read() ;
+            if( c >= 0 )
+                count++ ;
+            return c ;
+        } // end of method read
+
+        public int read( char[] buf, int off, int len ) throws IOException {
+            int n = super.read( buf, off, len ) ;
+            if( n > 0 )
+                count += n ;
+            return n ;
+        } // end of method read
+    } // end of class CountingReader
+
+    private static String quote( String s ) {
+        StringBuilder b = new StringBuilder( "\"" ) ;
+        for( int i = 0; i < s.length(); i++ ) {
+            char c = s.charAt( i ) ;
+            if( (c == '"') || (c == '\\') )
+                b.append( '\\' ).append( c ) ;
+            else if( c < ' ' )
+                b.append( String.format( "\\u%04x", (int) c ) ) ;
+            else
+                b.append( c ) ;
+        }
+        return b.append( '"' ).toString() ;
+    } // end of method quote
+
+} // end of class CompileMetrics
@@ -0,0 +1,265 @@
+
+/**
+ *
+ * A long-running compiler, so that the JVM starts, loads and warms up once
+ * rather than once per program.
+ *
+ * It listens on a loopback TCP port or a Unix domain socket.  Each
+ * connection sends any number of requests, one after another:
+ *
+ *   FILE <path>\n                   compile the file at path, as the server sees it
+ *   SOURCE <length> <name>\n<bytes> compile the next length bytes, calling them name
+ *   SHUTDOWN\n                      stop the server
+ *
+ * and gets one response to each compile:
+ *
+ *   OK <trace length> <error length>\n<trace bytes><error bytes>
+ *   ERROR <message>\n
+ *
+ * The trace is what Compile writes to standard output for the program,
+ * from its 312FILE line on, and the errors are what it writes to res.txt.
+ * Text is in the platform's default charset.  Requests are compiled by a
+ * fixed pool of analysers which are reset and reused, and only rebuilt if
+ * a compile fails outright, e.g. by running out of memory.  A source
+ * longer than the server's limit is refused unread.
+ *
+ **/
+
+import java.io.* ;
+import java.net.* ;
+import java.nio.* ;
+import java.nio.channels.* ;
+import java.nio.charset.* ;
+import java.nio.file.* ;
+import java.util.concurrent.* ;
+
+public class CompileServer implements Closeable
+{
+    /** The loopback port used when none is given. */
+    public static final int DEFAULT_PORT = 7312 ;
+    /** Longest request line accepted, in bytes. */
+    private static final int MAX_LINE = 1 << 16 ;
+    /** Longest source compiled when no limit is given, in bytes. */
+    public static final int DEFAULT_MAX_SOURCE = 64 << 20 ;
+
+    private final ServerSocketChannel server ;
+    /** The analysers free to take a request. */
+    private final BlockingQueue<Analyser> pool ;
+    /** Runs one thread per open connection: a virtual thread where the runtime has them. */
+    private final ExecutorService connections ;
+    private final boolean recover, quiet ;
+    /** Longest source compiled, in bytes. */
+    private final int maxSource ;
+
+    /** One reusable compiler: analysers, event sink and buffers for a request's results. */
+    private static class Analyser {
+        final LexicalAnalyser lex = new LexicalAnalyser( new char[0], 0 ) ;
+        final SyntaxAnalyser syn = new SyntaxAnalyser( lex, "" ) ;
+        final ByteArrayOutputStream trace = new ByteArrayOutputStream() ;
+        final ByteArrayOutputStream errors = new ByteArrayOutputStream() ;
+        final PrintStream traceStream = new PrintStream( trace ) ;
+        final PrintStream errorStream = new PrintStream( errors ) ;
+        final EventSink events ;
+
+        Analyser( boolean recover, boolean quiet ) {
+            syn.setErrorRecovery( recover ) ;
+            events = quiet ? new NullEventSink() : new TextEventSink( trace ) ;
+        } // end of constructor method
+
+        void compile( String name, char[] source, int length ) throws IOException {
+            trace.reset() ;
+            errors.reset() ;
+            traceStream.println() ;
+            traceStream.println( "312FILE " + name ) ;
+            traceStream.flush() ;
+
+            lex.reset( source, length ) ;
+            syn.reset( lex, name ) ;
+            syn.parse( errorStream, events ) ;
+            errorStream.flush() ;
+        } // end of method compile
+    } // end of class Analyser
+
+    /** Starts listening; call serve() to take requests.
+
+      @param address Where to listen, see address(String).
+      @param analysers How many programs can be compiled at once.
+      @param recover Report every syntax error rather than the first, as Compile -recover.
+      @param quiet Leave out the 312 trace, as Compile -quiet.
+      @param maxSource Longest source compiled, in bytes; longer ones are answered with ERROR.
+      @throws IOException if the address cannot be bound.
+     */
+    public CompileServer( SocketAddress address, int analysers, boolean recover, boolean quiet, int maxSource ) throws IOException {
+        this.recover = recover ;
+        this.quiet = quiet ;
+        this.maxSource = maxSource ;
+        server = (address instanceof UnixDomainSocketAddress)
+                ? ServerSocketChannel.open( StandardProtocolFamily.UNIX )
+                : ServerSocketChannel.open() ;
+        server.bind( address ) ;
+        ExecutorService threads = CompilerService.virtualThreads() ;
+        connections = (threads != null) ? threads : Executors.newCachedThreadPool() ;
+        pool = new ArrayBlockingQueue<Analyser>( analysers ) ;
+        for( int i = 0; i < analysers; i++ )
+            pool.add( new Analyser( recover, quiet ) ) ;
+    } // end of constructor method
+
+    /** Turns an address given on the command line into a socket address.
+
+      @param spec A port number, taken on the loopback interface, or unix:path for a Unix domain socket.
+      @return the address.
+     */
+    public static SocketAddress address( String spec ) {
+        if( spec.startsWith( "unix:" ) )
+            return UnixDomainSocketAddress.of( spec.substring( 5 ) ) ;
+        return new InetSocketAddress( InetAddress.getLoopbackAddress(), Integer.parseInt( spec ) ) ;
+    } // end of method address
+
+    /** @return the address actually listened on, e.g. to find the port when 0 was asked for. */
+    public SocketAddress localAddress() throws IOException {
+        return server.getLocalAddress() ;
+    } // end of method localAddress
+
+    /** Takes connections until the server is closed or sent SHUTDOWN. */
+    public void serve() throws IOException {
+        try {
+            while( true ) {
+                final SocketChannel channel ;
+                try {
+                    channel = server.accept() ;
+                } catch( ClosedChannelException e ) {
+                    return ;
+                }
+                connections.execute( new Runnable() {
+                    public void run() {
+                        converse( channel ) ;
+                    }
+                } ) ;
+            }
+        } finally {
+            close() ;
+        }
+    } // end of method serve
+
+    public void close() throws IOException {
+        SocketAddress address = server.isOpen() ? server.getLocalAddress() : null ;
+        server.close() ;
+        connections.shutdown() ;
+        if( address instanceof UnixDomainSocketAddress )
+            Files.deleteIfExists( ((UnixDomainSocketAddress) address).getPath() ) ;
+    } // end of method close
+
+    /** Answers one connection's requests until it closes. */
+    private void converse( SocketChannel channel ) {
+        try( SocketChannel c = channel ) {
+            InputStream in = new BufferedInputStream( Channels.newInputStream( c ) ) ;
+            OutputStream out = new BufferedOutputStream( Channels.newOutputStream( c ) ) ;
+            for( String request = readLine( in ); request != null; request = readLine( in ) ) {
+                if( request.equals( "SHUTDOWN" ) ) {
+                    close() ;
+                    return ;
+                }
+                answer( request, in, out ) ;
+                out.flush() ;
+            }
+        } catch( IOException e ) {
+            // the client went away; nothing to tell it
+        }
+    } // end of method converse
+
+    /** Reads a request's source, compiles it and writes the response. */
+    private void answer( String request, InputStream in, OutputStream out ) throws IOException {
+        String name ;
+        byte[] bytes ;
+        if( request.startsWith( "FILE " ) ) {
+            name = request.substring( 5 ) ;
+            try {
+                Path path = Paths.get( name ) ;
+                if( Files.size( path ) > maxSource ) {
+                    refuse( out, name + " is longer than " + maxSource + " bytes" ) ;
+                    return ;
+                }
+                bytes = Files.readAllBytes( path ) ;
+            } catch( IOException | InvalidPathException e ) {
+                refuse( out, "cannot read " + name + ": " + e ) ;
+                return ;
+            }
+        } else if( request.startsWith( "SOURCE " ) ) {
+            int space = request.indexOf( ' ', 7 ) ;
+            int length ;
+            try {
+                length = Integer.parseInt( request.substring( 7, (space < 0) ? request.length() : space ) ) ;
+            } catch( NumberFormatException e ) {
+                length = -1 ;
+            }
+            if( (space < 0) || (length < 0) ) {
+                refuse( out, "malformed request: " + request ) ;
+                return ;
+            }
+            name = request.substring( space + 1 ) ;
+            if( length > maxSource ) {
+                // skipped rather than read, so the next request is still found
+                in.skipNBytes( length ) ;
+                refuse( out, name + " is longer than " + maxSource + " bytes" ) ;
+                return ;
+            }
+            bytes = new byte[length] ;
+            new DataInputStream( in ).readFully( bytes ) ;
+        } else {
+            refuse( out, "unknown request: " + request ) ;
+            return ;
+        }
+
+        CharBuffer text = Charset.defaultCharset().decode( ByteBuffer.wrap( bytes ) ) ;
+        char[] source = new char[text.remaining()] ;
+        text.get( source ) ;
+
+        Analyser a = take() ;
+        try {
+            try {
+                a.compile( name, source, source.length ) ;
+            } catch( Throwable e ) {
+                // out of memory, say: whatever the analyser was holding when it failed is let go
+                a = new Analyser( recover, quiet ) ;
+                refuse( out, "cannot compile " + name + ": " + e ) ;
+                return ;
+            }
+            out.write( ("OK " + a.trace.size() + " " + a.errors.size() + "\n").getBytes() ) ;
+            a.trace.writeTo( out ) ;
+            a.errors.writeTo( out ) ;
+        } finally {
+            pool.add( a ) ;
+        }
+    } // end of method answer
+
+    private static void refuse( OutputStream out, String message ) throws IOException {
+        out.write( ("ERROR " + message.replace( '\n', ' ' ) + "\n").getBytes() ) ;
+    } // end of method refuse
+
+    /** Waits for a free analyser. */
+    private Analyser take() throws IOException {
+        try {
+            return pool.take() ;
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt() ;
+            throw new InterruptedIOException( "interrupted waiting for an analyser" ) ;
+        }
+    } // end of method take
+
+    /** Reads one '\n' terminated line, returning null at the end of the input. */
+    static String readLine( InputStream in ) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream() ;
+        for( int b = in.read(); b != '\n'; b = in.read() ) {
+            if( b < 0 ) {
+                if( line.size() == 0 )
+                    return null ;
+                throw new EOFException( "input ended inside a line" ) ;
+            }
+            if( line.size() == MAX_LINE )
+                throw new IOException( "line too long" ) ;
+            line.write( b ) ;
+        }
+        return line.toString() ;
+    } // end of method readLine
+
+} // end of class CompileServer
@@ -0,0 +1,124 @@
+
+/**
+ *
+ * A thread-safe front end to the compiler, for checking many programs
+ * held in memory at once.
+ *
+ * compile() may be called from any number of threads together.  Each call
+ * builds its own LexicalAnalyser, SyntaxAnalyser and Generate, which keep
+ * their per-parse state in instance fields and so must not be shared
+ * between threads; the only state calls have in common is the Token and
+ * ReservedWords tables, which are fixed once their classes are loaded.
+ *
+ * submit() runs a compile on a virtual thread of its own where the Java
+ * runtime has them (21 on), so any number of requests can be in flight
+ * without sizing a thread pool.  Older runtimes get a work-stealing pool
+ * instead, which serves as well since a compile never blocks.
+ *
+ **/
+
+import java.io.* ;
+import java.util.concurrent.* ;
+
+public class CompilerService implements AutoCloseable
+{
+    /** What compiling one program produced. */
+    public static class Result {
+        /** The program's name. */
+        public final String name ;
+        /** The 312 trace, or empty if the service was made without one. */
+        public final String trace ;
+        /** The errors, as Compile writes to res.txt; empty if it compiled. */
+        public final String errors ;
+
+        Result( String name, String trace, String errors ) {
+            this.name = name ;
+            this.trace = trace ;
+            this.errors = errors ;
+        } // end of constructor method
+
+        /** @return true if the program had no errors. */
+        public boolean succeeded() {
+            return errors.isEmpty() ;
+        } // end of method succeeded
+    } // end of class Result
+
+    /** Report every error rather than the first? */
+    private final boolean recover ;
+    /** Produce the 312 trace, or only the errors? */
+    private final boolean trace ;
+    /** Runs submitted compiles. */
+    private final ExecutorService executor ;
+
+    /** Creates a service producing the trace and stopping at the first error. */
+    public CompilerService() {
+        this( false, true ) ;
+    } // end of constructor method
+
+    /** Creates a service.
+
+      @param recover Report every syntax error rather than the first, as Compile -recover.
+      @param trace Produce the 312 trace; without it only the errors are reported, as Compile -quiet.
+     */
+    public CompilerService( boolean recover, boolean trace ) {
+        this.recover = recover ;
+        this.trace = trace ;
+        ExecutorService threads = virtualThreads() ;
+        executor = (threads != null) ? threads : Executors.newWorkStealingPool() ;
+    } // end of constructor method
+
+    /** Compiles a program on the calling thread.
+
+      @param name The program's name, used in error messages.
+      @param source The program's text.
+      @return what the compile produced.
+     */
+    public Result compile( String name, CharSequence source ) {
+        char[] text = new char[source.length()] ;
+        for( int i = 0; i < text.length; i++ )
+            text[i] = source.charAt(i) ;
+
+        ByteArrayOutputStream events = new ByteArrayOutputStream() ;
+        ByteArrayOutputStream errors = new ByteArrayOutputStream() ;
+        PrintStream ps = new PrintStream( errors ) ;
+        SyntaxAnalyser syn = new SyntaxAnalyser( new LexicalAnalyser( text, text.length ), name ) ;
+        syn.setErrorRecovery( recover ) ;
+        try {
+            syn.parse( ps, trace ? new TextEventSink( events ) : new NullEventSink() ) ;
+        } catch( IOException e ) {
+            // the text is in memory, so it cannot fail to be read
+            throw new UncheckedIOException( e ) ;
+        }
+        ps.flush() ;
+        return new Result( name, events.toString(), errors.toString() ) ;
+    } // end of method compile
+
+    /** Compiles a program on a thread of its own.
+
+      @param name The program's name, used in error messages.
+      @param source The program's text, which must not change until the compile is done.
+      @return the result to come.
+     */
+    public Future<Result> submit( final String name, final CharSequence source ) {
+        return executor.submit( new Callable<Result>() {
+            public Result call() {
+                return compile( name, source ) ;
+            }
+        } ) ;
+    } // end of method submit
+
+    /** Stops taking submissions; those already submitted still complete. */
+    public void close() {
+        executor.shutdown() ;
+    } // end of method close
+
+    /** @return an executor starting a virtual thread per task, or null if this Java runtime has none. */
+    static ExecutorService virtualThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null ) ;
+        } catch( ReflectiveOperationException | UnsupportedOperationException e ) {
+            return null ;
+        }
+    } // end of method virtualThreads
+
+} // end of class CompilerService
@@ -0,0 +1,28 @@
+
+/**
+ *
+ * One syntax error found by a parse in error recovery mode.
+ *
+ **/
+
+import java.io.* ;
+
+public class Diagnostic
+{
+    /** The line of the token the error was found at. */
+    public final int lineNumber ;
+    /** The error, with the context of the productions it was found in. */
+    public final CompilationException error ;
+
+    public Diagnostic( int lineNumber, CompilationException error ) {
+        this.lineNumber = lineNumber ;
+        this.error = error ;
+    } // end of constructor method
+
+    /** Writes the error in the same form as a single-error parse does, plus its line. */
+    public void report( PrintStream ps ) {
+        ps.println( "Compilation Exception on line " + lineNumber );
+        ps.println( error.toTraceString() );
+    } // end of method report
+
+} // end of class Diagnostic
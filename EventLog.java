@@ -0,0 +1,245 @@
+
+/**
+ *
+ * An EventSink that keeps the events of a parse so they can be replayed.
+ *
+ * Terminals are recorded as indices into the TokenStream being parsed, not
+ * as text, so a log stays valid while the stream is edited around it.  The
+ * log also indexes every <statement>: its token range, its events and the
+ * statement it is nested in, which is what IncrementalParser re-parses and
+ * splices back in after an edit.
+ *
+ **/
+
+import java.util.* ;
+
+public class EventLog implements EventSink
+{
+    /* Event kinds, held in the low two bits of an event. */
+    private static final int TERMINAL = 0, COMMENCE = 1, FINISH = 2, SUCCESS = 3 ;
+    /** The nonterminal whose extent is indexed. */
+    private static final String STATEMENT = "<statement>" ;
+
+    /** The cursor the parser reads, giving the token each event happens at. */
+    private final TokenStream.Cursor cursor ;
+
+    /** Each event: its kind, and for a terminal the token index shifted left two bits. */
+    private int[] events = new int[256] ;
+    /** The nonterminal named by each COMMENCE or FINISH event. */
+    private String[] names = new String[256] ;
+    /** Number of events recorded. */
+    private int count ;
+
+    /* One entry per statement, in the order they begin. */
+    /** First token of the statement. */
+    private int[] firsts = new int[64] ;
+    /** The token after the statement, i.e. the lookahead that ended it. */
+    private int[] ends = new int[64] ;
+    /** The statement's BEGIN event. */
+    private int[] begins = new int[64] ;
+    /** The event just past the statement's END. */
+    private int[] finishes = new int[64] ;
+    /** The statement this one is nested in, or -1. */
+    private int[] parents = new int[64] ;
+    /** Number of statements. */
+    private int statements ;
+
+    /** Statements begun but not finished, innermost last. */
+    private int[] open = new int[16] ;
+    private int openCount ;
+
+    /** Creates a log for a parse reading the given cursor.
+
+      @param cursor The cursor the parser reads.
+     */
+    public EventLog( TokenStream.Cursor cursor ) {
+        this.cursor = cursor ;
+    } // end of constructor method
+
+    public void insertTerminal( int symbol, CharSequence text, int lineNumber ) {
+        add( TERMINAL | (cursor.index() << 2), null ) ;
+    } // end of method insertTerminal
+
+    public void commenceNonterminal( String name ) {
+        if( name.equals( STATEMENT ) ) {
+            if( statements == firsts.length ) {
+                int capacity = 2 * statements ;
+                firsts = Arrays.copyOf( firsts, capacity ) ;
+                ends = Arrays.copyOf( ends, capacity ) ;
+                begins = Arrays.copyOf( begins, capacity ) ;
+                finishes = Arrays.copyOf( finishes, capacity ) ;
+                parents = Arrays.copyOf( parents, capacity ) ;
+            }
+            firsts[statements] = cursor.index() ;
+            begins[statements] = count ;
+            parents[statements] = (openCount == 0) ? -1 : open[openCount - 1] ;
+            if( openCount == open.length )
+                open = Arrays.copyOf( open, 2 * openCount ) ;
+            open[openCount++] = statements++ ;
+        }
+        add( COMMENCE, name ) ;
+    } // end of method commenceNonterminal
+
+    public void finishNonterminal( String name ) {
+        add( FINISH, name ) ;
+        if( name.equals( STATEMENT ) ) {
+            int s = open[--openCount] ;
+            ends[s] = cursor.index() ;
+            finishes[s] = count ;
+        }
+    } // end of method finishNonterminal
+
+    public void reportSuccess() {
+        add( SUCCESS, null ) ;
+    } // end of method reportSuccess
+
+    public void flush() {
+    } // end of method flush
+
+    private void add( int event, String name ) {
+        if( count == events.length ) {
+            events = Arrays.copyOf( events, 2 * count ) ;
+            names = Arrays.copyOf( names, 2 * count ) ;
+        }
+        events[count] = event ;
+        names[count] = name ;
+        count++ ;
+    } // end of method add
+
+    /** @return true if the parse got as far as reporting success. */
+    public boolean succeeded() {
+        return (count > 0) && (events[count - 1] == SUCCESS) ;
+    } // end of method succeeded
+
+    /** Sends the recorded events to a sink, taking terminals from the given tokens.
+
+      A terminal's text is handed over as a view on the source, as a parse
+      reading the tokens would, rather than made into a String.
+
+      @param sink Where the events go.
+      @param tokens The stream the log's token indices refer to.
+     */
+    public void replay( EventSink sink, TokenStream tokens ) {
+        TokenStream.Cursor terminal = tokens.cursor() ;
+        for( int i = 0; i < count; i++ ) {
+            int event = events[i] ;
+            switch( event & 3 ) {
+                case TERMINAL:
+                    terminal.moveTo( event >>> 2 ) ;
+                    sink.insertTerminal( terminal.symbol(), terminal.text(), terminal.lineNumber() ) ;
+                    break ;
+                case COMMENCE:
+                    sink.commenceNonterminal( names[i] ) ;
+                    break ;
+                case FINISH:
+                    sink.finishNonterminal( names[i] ) ;
+                    break ;
+                default:
+                    sink.reportSuccess() ;
+                    break ;
+            }
+        }
+    } // end of method replay
+
+    /** @return the number of statements logged. */
+    int statements() {
+        return statements ;
+    } // end of method statements
+
+    /** @return the first token of statement s. */
+    int first( int s ) {
+        return firsts[s] ;
+    } // end of method first
+
+    /** @return the token just after statement s. */
+    int end( int s ) {
+        return ends[s] ;
+    } // end of method end
+
+    /** @return the statement s is nested in, or -1. */
+    int parent( int s ) {
+        return parents[s] ;
+    } // end of method parent
+
+    /** @return the last statement beginning at or before the given token, or -1. */
+    int lastStatementFrom( int token ) {
+        int low = 0, high = statements - 1 ;
+        while( low <= high ) {
+            int mid = (low + high) >>> 1 ;
+            if( firsts[mid] <= token )
+                low = mid + 1 ;
+            else
+                high = mid - 1 ;
+        }
+        return high ;
+    } // end of method lastStatementFrom
+
+    /** Replaces statement s, and everything logged inside it, with a statement parsed again on its own.
+
+      @param s The statement to replace.
+      @param fresh A log holding just the new statement, with token indices in the edited stream.
+      @param tokenDelta How far the edit moved the tokens after the statement.
+     */
+    void replaceStatement( int s, EventLog fresh, int tokenDelta ) {
+        int begin = begins[s], finish = finishes[s] ;
+        int eventDelta = fresh.count - (finish - begin) ;
+        int last = s + 1 ;
+        while( (last < statements) && (begins[last] < finish) )
+            last++ ;
+        int statementDelta = fresh.statements - (last - s) ;
+
+        for( int p = parents[s]; p >= 0; p = parents[p] ) {
+            ends[p] += tokenDelta ;
+            finishes[p] += eventDelta ;
+        }
+
+        int tail = count - finish ;
+        if( count + eventDelta > events.length ) {
+            int capacity = Math.max( count + eventDelta, 2 * events.length ) ;
+            events = Arrays.copyOf( events, capacity ) ;
+            names = Arrays.copyOf( names, capacity ) ;
+        }
+        System.arraycopy( events, finish, events, finish + eventDelta, tail ) ;
+        System.arraycopy( names, finish, names, finish + eventDelta, tail ) ;
+        System.arraycopy( fresh.events, 0, events, begin, fresh.count ) ;
+        System.arraycopy( fresh.names, 0, names, begin, fresh.count ) ;
+        count += eventDelta ;
+        for( int i = begin + fresh.count; i < count; i++ )
+            if( (events[i] & 3) == TERMINAL )
+                events[i] += tokenDelta << 2 ;
+
+        int parent = parents[s] ;
+        int statementTail = statements - last ;
+        if( statements + statementDelta > firsts.length ) {
+            int capacity = Math.max( statements + statementDelta, 2 * firsts.length ) ;
+            firsts = Arrays.copyOf( firsts, capacity ) ;
+            ends = Arrays.copyOf( ends, capacity ) ;
+            begins = Arrays.copyOf( begins, capacity ) ;
+            finishes = Arrays.copyOf( finishes, capacity ) ;
+            parents = Arrays.copyOf( parents, capacity ) ;
+        }
+        int moved = last + statementDelta ;
+        System.arraycopy( firsts, last, firsts, moved, statementTail ) ;
+        System.arraycopy( ends, last, ends, moved, statementTail ) ;
+        System.arraycopy( begins, last, begins, moved, statementTail ) ;
+        System.arraycopy( finishes, last, finishes, moved, statementTail ) ;
+        System.arraycopy( parents, last, parents, moved, statementTail ) ;
+        for( int i = 0; i < fresh.statements; i++ ) {
+            firsts[s + i] = fresh.firsts[i] ;
+            ends[s + i] = fresh.ends[i] ;
+            begins[s + i] = fresh.begins[i] + begin ;
+            finishes[s + i] = fresh.finishes[i] + begin ;
+            parents[s + i] = (i == 0) ? parent : fresh.parents[i] + s ;
+        }
+        statements += statementDelta ;
+        for( int i = moved; i < statements; i++ ) {
+            firsts[i] += tokenDelta ;
+            ends[i] += tokenDelta ;
+            begins[i] += eventDelta ;
+            finishes[i] += eventDelta ;
+            if( parents[i] >= last )
+                parents[i] += statementDelta ;
+        }
+    } // end of method replaceStatement
+
+} // end of class EventLog
@@ -0,0 +1,34 @@
+
+/**
+ *
+ * Receives the parse events reported through AbstractGenerate.
+ *
+ * Implementations decide what to do with them: the default TextEventSink
+ * writes the 312 trace, NullEventSink discards it when only the
+ * accept/reject outcome is needed.
+ *
+ **/
+
+public interface EventSink
+{
+    /** A terminal was accepted.
+
+      @param symbol The type of symbol, a class constant from Token.
+      @param text The original text of the token.
+      @param lineNumber The line the token was found on.
+     */
+    void insertTerminal( int symbol, CharSequence text, int lineNumber ) ;
+
+    /** The parser entered the nonterminal with the given name. */
+    void commenceNonterminal( String name ) ;
+
+    /** The parser left the nonterminal with the given name. */
+    void finishNonterminal( String name ) ;
+
+    /** The whole input was recognised. */
+    void reportSuccess() ;
+
+    /** Pushes any buffered events through to the underlying output. */
+    void flush() ;
+
+} // end of interface EventSink
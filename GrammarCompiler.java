@@ -0,0 +1,458 @@
+
+/**
+ *
+ * Turns a grammar description into the LL(1) tables TableParser runs on.
+ *
+ *   java GrammarCompiler grammar.txt ParseTable.java
+ *
+ * It works out each nonterminal's FIRST and FOLLOW sets, and from them a
+ * predict table giving, for a nonterminal and the next token, the
+ * production to expand it with.  A grammar that is not LL(1), or that
+ * leaves a nonterminal with no way to report an error, is refused.  The
+ * tables are written out as a Java class, with the sets they came from in
+ * its doc comment; see grammar.txt for the notation.
+ *
+ **/
+
+import java.io.* ;
+import java.lang.reflect.* ;
+import java.nio.file.* ;
+import java.util.* ;
+import java.util.regex.* ;
+
+public class GrammarCompiler
+{
+    /** Nonterminals are numbered from here up in the tables; Token symbols are below. */
+    static final int NONTERMINAL = 64 ;
+    /** Flags of a symbol in a production. */
+    static final int RECOVER = 1, HEADER_END = 2 ;
+
+    /** The Token constants, by name. */
+    private final Map<String, Integer> terminals = new LinkedHashMap<String, Integer>() ;
+    private int symbols ;
+
+    private final List<String> nonterminals = new ArrayList<String>() ;
+    /** Each nonterminal's productions, and the one taken when the next token fits none, or -1. */
+    private final List<List<Integer>> alternatives = new ArrayList<List<Integer>>() ;
+    private final List<Integer> defaults = new ArrayList<Integer>() ;
+    private final Map<String, String> wraps = new HashMap<String, String>() ;
+    private final Map<String, String> errors = new HashMap<String, String>() ;
+
+    /** Each production's left-hand side and its symbols, as indices into the occurrence lists. */
+    private final List<Integer> lefts = new ArrayList<Integer>() ;
+    private final List<int[]> productions = new ArrayList<int[]>() ;
+    /** Every symbol of every production, with its context (or null) and flags; the first is the start symbol. */
+    private final List<String> occurrenceNames = new ArrayList<String>() ;
+    private final List<String> occurrenceContexts = new ArrayList<String>() ;
+    private final List<Integer> occurrenceFlags = new ArrayList<Integer>() ;
+    private int[] occurrenceSymbols ;
+
+    private BitSet[] first, follow ;
+    private boolean[] nullable ;
+    private int[][] predict ;
+
+    public static void main( String[] args ) throws IOException {
+        if( args.length != 2 ) {
+            System.err.println( "usage: java GrammarCompiler grammar output" ) ;
+            System.exit( 1 ) ;
+        }
+        GrammarCompiler g = new GrammarCompiler() ;
+        try {
+            g.read( Files.readAllLines( Paths.get( args[0] ) ) ) ;
+            g.resolve() ;
+            g.computeSets() ;
+            g.buildTable() ;
+        } catch( IllegalArgumentException e ) {
+            System.err.println( args[0] + ": " + e.getMessage() ) ;
+            System.exit( 1 ) ;
+        }
+        try( PrintWriter out = new PrintWriter( Files.newBufferedWriter( Paths.get( args[1] ) ) ) ) {
+            g.write( out, new File( args[0] ).getName() ) ;
+        }
+    } // end of main method
+
+    private GrammarCompiler() {
+        for( Field f : Token.class.getFields() ) {
+            if( (f.getType() != int.class) || !Modifier.isStatic( f.getModifiers() ) )
+                continue ;
+            try {
+                int value = f.getInt( null ) ;
+                terminals.put( f.getName(), value ) ;
+                symbols = Math.max( symbols, value + 1 ) ;
+            } catch( IllegalAccessException e ) {
+                throw new IllegalStateException( e ) ;
+            }
+        }
+        if( symbols > NONTERMINAL )
+            throw new IllegalStateException( "too many Token symbols" ) ;
+        occurrence( null, null, 0 ) ;      // the start symbol, filled in once it is known
+    } // end of constructor method
+
+    private static final Pattern WORD = Pattern.compile( "\"[^\"]*\"|\\S+" ) ;
+
+    /** Reads the productions and directives, joining continuation lines onto their production. */
+    private void read( List<String> lines ) {
+        List<String> statements = new ArrayList<String>() ;
+        for( String line : lines ) {
+            String s = line.trim() ;
+            if( s.isEmpty() || s.startsWith( "#" ) )
+                continue ;
+            if( Character.isWhitespace( line.charAt( 0 ) ) && !statements.isEmpty() )
+                statements.set( statements.size() - 1, statements.get( statements.size() - 1 ) + " " + s ) ;
+            else
+                statements.add( s ) ;
+        }
+        for( String s : statements ) {
+            List<String> words = new ArrayList<String>() ;
+            for( Matcher m = WORD.matcher( s ); m.find(); )
+                words.add( m.group() ) ;
+            if( words.get( 0 ).equals( "wrap" ) || words.get( 0 ).equals( "error" ) ) {
+                if( (words.size() != 3) || !quoted( words.get( 2 ) ) )
+                    throw new IllegalArgumentException( "expected " + words.get( 0 ) + " nonterminal \"text\": " + s ) ;
+                Map<String, String> m = words.get( 0 ).equals( "wrap" ) ? wraps : errors ;
+                m.put( words.get( 1 ), unquote( words.get( 2 ) ) ) ;
+            } else if( (words.size() >= 2) && words.get( 1 ).equals( "::=" ) )
+                production( words.get( 0 ), words.subList( 2, words.size() ) ) ;
+            else
+                throw new IllegalArgumentException( "not a production or directive: " + s ) ;
+        }
+        if( nonterminals.isEmpty() )
+            throw new IllegalArgumentException( "no productions" ) ;
+        occurrenceNames.set( 0, nonterminals.get( 0 ) ) ;
+    } // end of method read
+
+    private void production( String left, List<String> words ) {
+        if( terminals.containsKey( left ) )
+            throw new IllegalArgumentException( left + " is a terminal" ) ;
+        if( nonterminals.contains( left ) )
+            throw new IllegalArgumentException( left + " has two sets of productions" ) ;
+        int n = nonterminals.size() ;
+        nonterminals.add( left ) ;
+        alternatives.add( new ArrayList<Integer>() ) ;
+        defaults.add( -1 ) ;
+
+        List<Integer> symbols = new ArrayList<Integer>() ;
+        boolean starred = false ;
+        for( int i = 0; i <= words.size(); i++ ) {
+            String w = (i < words.size()) ? words.get( i ) : "|" ;
+            if( w.equals( "|" ) ) {
+                int p = productions.size() ;
+                int[] rhs = new int[symbols.size()] ;
+                for( int j = 0; j < rhs.length; j++ )
+                    rhs[j] = symbols.get( j ) ;
+                productions.add( rhs ) ;
+                lefts.add( n ) ;
+                alternatives.get( n ).add( p ) ;
+                if( starred ) {
+                    if( defaults.get( n ) >= 0 )
+                        throw new IllegalArgumentException( left + " has two alternatives marked *" ) ;
+                    defaults.set( n, p ) ;
+                }
+                symbols.clear() ;
+                starred = false ;
+            } else if( w.equals( "*" ) && symbols.isEmpty() )
+                starred = true ;
+            else if( w.equals( "empty" ) )
+                continue ;
+            else if( quoted( w ) ) {
+                if( symbols.isEmpty() )
+                    throw new IllegalArgumentException( "context " + w + " follows no symbol in " + left ) ;
+                occurrenceContexts.set( symbols.get( symbols.size() - 1 ), unquote( w ) ) ;
+            } else {
+                int flags = 0 ;
+                for( ; w.endsWith( "!" ) || w.endsWith( "^" ); w = w.substring( 0, w.length() - 1 ) )
+                    flags |= w.endsWith( "!" ) ? RECOVER : HEADER_END ;
+                symbols.add( occurrence( w, null, flags ) ) ;
+            }
+        }
+    } // end of method production
+
+    private int occurrence( String name, String context, int flags ) {
+        occurrenceNames.add( name ) ;
+        occurrenceContexts.add( context ) ;
+        occurrenceFlags.add( flags ) ;
+        return occurrenceNames.size() - 1 ;
+    } // end of method occurrence
+
+    private static boolean quoted( String w ) {
+        return (w.length() >= 2) && w.startsWith( "\"" ) && w.endsWith( "\"" ) ;
+    } // end of method quoted
+
+    private static String unquote( String w ) {
+        return w.substring( 1, w.length() - 1 ) ;
+    } // end of method unquote
+
+    /** Turns every symbol's name into its number, checking they are all known. */
+    private void resolve() {
+        occurrenceSymbols = new int[occurrenceNames.size()] ;
+        for( int o = 0; o < occurrenceSymbols.length; o++ ) {
+            String name = occurrenceNames.get( o ) ;
+            Integer t = terminals.get( name ) ;
+            int n = nonterminals.indexOf( name ) ;
+            if( t != null )
+                occurrenceSymbols[o] = t ;
+            else if( n >= 0 )
+                occurrenceSymbols[o] = NONTERMINAL + n ;
+            else
+                throw new IllegalArgumentException( name + " is neither a Token constant nor a nonterminal" ) ;
+            int flags = occurrenceFlags.get( o ) ;
+            if( ((flags & HEADER_END) != 0) && (t == null) )
+                throw new IllegalArgumentException( name + "^ is not a terminal" ) ;
+            if( ((flags & RECOVER) != 0) && (t != null) )
+                throw new IllegalArgumentException( name + "! is not a nonterminal" ) ;
+        }
+        for( String n : wraps.keySet() )
+            if( !nonterminals.contains( n ) )
+                throw new IllegalArgumentException( "wrap for unknown nonterminal " + n ) ;
+        for( String n : errors.keySet() )
+            if( !nonterminals.contains( n ) )
+                throw new IllegalArgumentException( "error for unknown nonterminal " + n ) ;
+    } // end of method resolve
+
+    /** Works out which nonterminals can be empty, and every FIRST and FOLLOW set, to a fixed point. */
+    private void computeSets() {
+        int count = nonterminals.size() ;
+        nullable = new boolean[count] ;
+        first = new BitSet[count] ;
+        follow = new BitSet[count] ;
+        for( int n = 0; n < count; n++ ) {
+            first[n] = new BitSet() ;
+            follow[n] = new BitSet() ;
+        }
+        follow[0].set( Token.eofSymbol ) ;
+
+        for( boolean changed = true; changed; ) {
+            changed = false ;
+            for( int p = 0; p < productions.size(); p++ ) {
+                int n = lefts.get( p ) ;
+                int[] rhs = productions.get( p ) ;
+                BitSet f = firstOf( rhs, 0 ) ;
+                if( !contains( first[n], f ) ) {
+                    first[n].or( f ) ;
+                    changed = true ;
+                }
+                if( !nullable[n] && nullable( rhs, 0 ) ) {
+                    nullable[n] = true ;
+                    changed = true ;
+                }
+                // what can follow a nonterminal is what can start the rest of the production after it,
+                // and what can follow the left-hand side if the rest can be empty
+                for( int i = 0; i < rhs.length; i++ ) {
+                    int s = occurrenceSymbols[rhs[i]] ;
+                    if( s < NONTERMINAL )
+                        continue ;
+                    BitSet after = firstOf( rhs, i + 1 ) ;
+                    if( nullable( rhs, i + 1 ) )
+                        after.or( follow[n] ) ;
+                    if( !contains( follow[s - NONTERMINAL], after ) ) {
+                        follow[s - NONTERMINAL].or( after ) ;
+                        changed = true ;
+                    }
+                }
+            }
+        }
+    } // end of method computeSets
+
+    private BitSet firstOf( int[] rhs, int from ) {
+        BitSet f = new BitSet() ;
+        for( int i = from; i < rhs.length; i++ ) {
+            int s = occurrenceSymbols[rhs[i]] ;
+            if( s < NONTERMINAL ) {
+                f.set( s ) ;
+                break ;
+            }
+            f.or( first[s - NONTERMINAL] ) ;
+            if( !nullable[s - NONTERMINAL] )
+                break ;
+        }
+        return f ;
+    } // end of method firstOf
+
+    private boolean nullable( int[] rhs, int from ) {
+        for( int i = from; i < rhs.length; i++ ) {
+            int s = occurrenceSymbols[rhs[i]] ;
+            if( (s < NONTERMINAL) || !nullable[s - NONTERMINAL] )
+                return false ;
+        }
+        return true ;
+    } // end of method nullable
+
+    private static boolean contains( BitSet a, BitSet b ) {
+        BitSet missing = (BitSet) b.clone() ;
+        missing.andNot( a ) ;
+        return missing.isEmpty() ;
+    } // end of method contains
+
+    /** Fills in the predict table, then each nonterminal's row for the tokens no alternative predicts. */
+    private void buildTable() {
+        int count = nonterminals.size() ;
+        predict = new int[count][symbols] ;
+        for( int[] row : predict )
+            Arrays.fill( row, -1 ) ;
+        for( int p = 0; p < productions.size(); p++ ) {
+            int n = lefts.get( p ) ;
+            int[] rhs = productions.get( p ) ;
+            BitSet predicts = firstOf( rhs, 0 ) ;
+            if( nullable( rhs, 0 ) )
+                predicts.or( follow[n] ) ;
+            for( int t = predicts.nextSetBit( 0 ); t >= 0; t = predicts.nextSetBit( t + 1 ) ) {
+                if( predict[n][t] >= 0 )
+                    throw new IllegalArgumentException( "not LL(1): " + nonterminals.get( n ) + " has two alternatives for " + Token.getName( t ) ) ;
+                predict[n][t] = p ;
+            }
+        }
+
+        for( int n = 0; n < count; n++ ) {
+            List<Integer> alts = alternatives.get( n ) ;
+            int fallback = defaults.get( n ) ;
+            for( int p : alts )
+                if( (fallback < 0) && (productions.get( p ).length == 0) )
+                    fallback = p ;
+            if( (fallback < 0) && (alts.size() == 1) )
+                fallback = alts.get( 0 ) ;
+            if( fallback < 0 ) {
+                if( !errors.containsKey( nonterminals.get( n ) ) )
+                    throw new IllegalArgumentException( nonterminals.get( n ) + " needs an error message or a default alternative" ) ;
+                continue ;
+            }
+            for( int t = 0; t < symbols; t++ )
+                if( predict[n][t] < 0 )
+                    predict[n][t] = fallback ;
+        }
+    } // end of method buildTable
+
+    /** Writes the tables out as the class ParseTable. */
+    private void write( PrintWriter out, String source ) {
+        List<String> texts = new ArrayList<String>() ;
+        out.println( "// Generated by GrammarCompiler from " + source + "; edit that and run make, not this." ) ;
+        out.println() ;
+        out.println( "/**" ) ;
+        out.println( " *" ) ;
+        out.println( " * The LL(1) tables TableParser runs on, for the grammar in " + source + "." ) ;
+        out.println( " *" ) ;
+        out.println( " * The predict table came from these FIRST and FOLLOW sets:" ) ;
+        out.println( " *" ) ;
+        int width = 0 ;
+        for( String n : nonterminals )
+            width = Math.max( width, n.length() ) ;
+        for( int n = 0; n < nonterminals.size(); n++ ) {
+            out.println( " *   " + pad( nonterminals.get( n ), width ) + "  FIRST  " + names( first[n] ) + (nullable[n] ? " (can be empty)" : "") ) ;
+            out.println( " *   " + pad( "", width ) + "  FOLLOW " + names( follow[n] ) ) ;
+        }
+        out.println( " *" ) ;
+        out.println( " **/" ) ;
+        out.println() ;
+        out.println( "final class ParseTable" ) ;
+        out.println( "{" ) ;
+        out.println( "    /** Nonterminals are numbered from here up in SYMBOLS; Token symbols are below. */" ) ;
+        out.println( "    static final int NONTERMINAL = " + NONTERMINAL + " ;" ) ;
+        out.println( "    /** FLAGS: an error inside the symbol is recovered from in its list; the terminal ends a statement's header. */" ) ;
+        out.println( "    static final int RECOVER = " + RECOVER + ", HEADER_END = " + HEADER_END + " ;" ) ;
+        out.println() ;
+
+        out.println( "    /** Each nonterminal's name, reported in the trace if it is in angle brackets. */" ) ;
+        out.print( "    static final String[] NAMES = {" ) ;
+        for( int n = 0; n < nonterminals.size(); n++ )
+            out.print( ((n % 6 == 0) ? "\n        " : " ") + quote( nonterminals.get( n ) ) + (n + 1 < nonterminals.size() ? "," : "") ) ;
+        out.println( "\n    } ;" ) ;
+
+        int[] wrap = new int[nonterminals.size()], error = new int[nonterminals.size()] ;
+        for( int n = 0; n < nonterminals.size(); n++ ) {
+            wrap[n] = text( texts, wraps.get( nonterminals.get( n ) ) ) ;
+            error[n] = text( texts, errors.get( nonterminals.get( n ) ) ) ;
+        }
+        int[] contexts = new int[occurrenceSymbols.length], flags = new int[occurrenceSymbols.length] ;
+        for( int o = 0; o < contexts.length; o++ ) {
+            contexts[o] = text( texts, occurrenceContexts.get( o ) ) ;
+            flags[o] = occurrenceFlags.get( o ) ;
+        }
+        out.println( "    /** The context added to an error anywhere inside each nonterminal, as an index into TEXTS, or -1. */" ) ;
+        array( out, "int[] WRAP", wrap ) ;
+        out.println( "    /** The message when no alternative of each nonterminal fits the next token, or -1 if one is taken anyway. */" ) ;
+        array( out, "int[] ERROR", error ) ;
+        out.println() ;
+
+        out.println( "    /** The symbols of the productions, the start symbol first: each one's Token symbol" ) ;
+        out.println( "        or NONTERMINAL plus its nonterminal, the context an error inside it passes out" ) ;
+        out.println( "        through as an index into TEXTS or -1, and its flags. */" ) ;
+        array( out, "int[] SYMBOLS", occurrenceSymbols ) ;
+        array( out, "int[] CONTEXTS", contexts ) ;
+        array( out, "int[] FLAGS", flags ) ;
+        out.println( "    static final int START = 0 ;" ) ;
+        out.println() ;
+
+        out.println( "    /** Each production's symbols, as indices into SYMBOLS. */" ) ;
+        out.println( "    static final int[][] PRODUCTIONS = {" ) ;
+        for( int p = 0; p < productions.size(); p++ ) {
+            out.print( "        " + row( productions.get( p ) ) + "," ) ;
+            out.println( "    // " + nonterminals.get( lefts.get( p ) ) + " ::= " + describe( productions.get( p ) ) ) ;
+        }
+        out.println( "    } ;" ) ;
+        out.println() ;
+
+        out.println( "    /** The production to expand each nonterminal with for each next Token symbol, or -1 for an error. */" ) ;
+        out.println( "    static final int[][] PREDICT = {" ) ;
+        for( int n = 0; n < predict.length; n++ )
+            out.println( "        " + row( predict[n] ) + ",    // " + nonterminals.get( n ) ) ;
+        out.println( "    } ;" ) ;
+        out.println() ;
+
+        out.println( "    static final String[] TEXTS = {" ) ;
+        for( int i = 0; i < texts.size(); i++ )
+            out.println( "        " + quote( texts.get( i ) ) + (i + 1 < texts.size() ? "," : "") ) ;
+        out.println( "    } ;" ) ;
+        out.println() ;
+        out.println( "} // end of class ParseTable" ) ;
+    } // end of method write
+
+    private static int text( List<String> texts, String s ) {
+        if( s == null )
+            return -1 ;
+        int i = texts.indexOf( s ) ;
+        if( i < 0 ) {
+            texts.add( s ) ;
+            i = texts.size() - 1 ;
+        }
+        return i ;
+    } // end of method text
+
+    private static void array( PrintWriter out, String declaration, int[] values ) {
+        out.print( "    static final " + declaration + " = {" ) ;
+        for( int i = 0; i < values.length; i++ )
+            out.print( ((i % 16 == 0) ? "\n        " : " ") + values[i] + (i + 1 < values.length ? "," : "") ) ;
+        out.println( "\n    } ;" ) ;
+    } // end of method array
+
+    private static String row( int[] values ) {
+        StringBuilder b = new StringBuilder( "{" ) ;
+        for( int i = 0; i < values.length; i++ )
+            b.append( (i > 0) ? ", " : " " ).append( values[i] ) ;
+        return b.append( (values.length > 0) ? " }" : "}" ).toString() ;
+    } // end of method row
+
+    private String describe( int[] rhs ) {
+        StringBuilder b = new StringBuilder() ;
+        for( int o : rhs )
+            b.append( (b.length() > 0) ? " " : "" ).append( occurrenceNames.get( o ) ) ;
+        return (b.length() > 0) ? b.toString() : "empty" ;
+    } // end of method describe
+
+    private static String names( BitSet set ) {
+        StringBuilder b = new StringBuilder( "{" ) ;
+        for( int t = set.nextSetBit( 0 ); t >= 0; t = set.nextSetBit( t + 1 ) )
+            b.append( ' ' ).append( Token.getName( t ) ) ;
+        return b.append( " }" ).toString() ;
+    } // end of method names
+
+    private static String pad( String s, int width ) {
+        StringBuilder b = new StringBuilder( s ) ;
+        while( b.length() < width )
+            b.append( ' ' ) ;
+        return b.toString() ;
+    } // end of method pad
+
+    private static String quote( String s ) {
+        return "\"" + s.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ) + "\"" ;
+    } // end of method quote
+
+} // end of class GrammarCompiler
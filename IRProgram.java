@@ -0,0 +1,625 @@
+
+/**
+ *
+ * A program lowered from its parse tree into register code, and the
+ * interpreter that runs it.
+ *
+ * Every value lives in a register: first the program's variables, then
+ * its constants, which start out holding their values, then temporaries.
+ * A register holds a number, as a double, or a string.  Variables start
+ * out as 0.  The code is one int[]: each instruction is an opcode
+ * followed by its operands, which are registers except for jump targets.
+ *
+ *   MOVE d a        d := a
+ *   ADD d a b       d := a + b, and SUB, MUL and DIV likewise
+ *   JUMP t          go to t
+ *   JLT a b t       go to t if a < b, and JLE, JGT, JGE, JEQ and JNE likewise
+ *   JNLT a b t      go to t unless a < b, and JNLE ... JNNE likewise
+ *   GET d           d := the next input value
+ *   PUT n a1 .. an  write a line of n values
+ *   HALT
+ *
+ * Arithmetic is on numbers only, and division by zero is an error.  Two
+ * numbers or two strings compare as such; a number and a string are only
+ * ever unequal.  A whole number is written without a fraction.
+ *
+ **/
+
+import java.io.* ;
+import java.util.* ;
+
+public final class IRProgram
+{
+    static final int HALT = 0, MOVE = 1, ADD = 2, SUB = 3, MUL = 4, DIV = 5, JUMP = 6,
+                     JLT = 7, JLE = 8, JGT = 9, JGE = 10, JEQ = 11, JNE = 12,
+                     JNLT = 13, JNLE = 14, JNGT = 15, JNGE = 16, JNEQ = 17, JNNE = 18,
+                     GET = 19, PUT = 20 ;
+    /** The name and length, opcode included, of each instruction. */
+    private static final String[] OPCODES = { "HALT", "MOVE", "ADD", "SUB", "MUL", "DIV", "JUMP",
+        "JLT", "JLE", "JGT", "JGE", "JEQ", "JNE", "JNLT", "JNLE", "JNGT", "JNGE", "JNEQ", "JNNE", "GET", "PUT" } ;
+    private static final int[] LENGTHS = { 1, 3, 4, 4, 4, 4, 2, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 2, 0 } ;
+
+    /** The instructions. */
+    final int[] code ;
+    /** The source line of the instruction at each opcode's index. */
+    final int[] lines ;
+    /** What each register holds at the start: its number, or its string if that is not null. */
+    final double[] numbers ;
+    final String[] strings ;
+    /** Names of the variables, which are the first registers. */
+    final String[] variables ;
+    /** Number of constants, which follow the variables. */
+    final int constants ;
+
+    private IRProgram( int[] code, int[] lines, double[] numbers, String[] strings, String[] variables, int constants ) {
+        this.code = code ;
+        this.lines = lines ;
+        this.numbers = numbers ;
+        this.strings = strings ;
+        this.variables = variables ;
+        this.constants = constants ;
+    } // end of constructor method
+
+    /** Lowers a parsed program.
+
+      @param tree The program's parse tree.
+      @throws CompilationException if it did not parse, or calls a procedure other than get and put.
+      @return the program.
+     */
+    public static IRProgram lower( ParseTree tree ) throws CompilationException {
+        if( !tree.succeeded() )
+            throw new CompilationException( "the program has syntax errors" ) ;
+        checkProcedures( tree ) ;
+        return new Lowering( tree ).program() ;
+    } // end of method lower
+
+    /** Checks that a program only calls get and put, wherever the calls are, before any of it runs.
+      TreeInterpreter checks the same, so both reject the same programs.
+
+      @param tree The program's parse tree.
+      @throws CompilationException at the first call of any other procedure.
+     */
+    static void checkProcedures( ParseTree tree ) throws CompilationException {
+        for( int t = 1; t < tree.tokenCount(); t++ ) {
+            if( tree.tokenSymbol( t - 1 ) != Token.callSymbol )
+                continue ;
+            String procedure = tree.tokenText( t ) ;
+            if( !procedure.equals( "get" ) && !procedure.equals( "put" ) )
+                throw new CompilationException( "unknown procedure " + procedure + " on line " + tree.tokenLine( t - 1 ) ) ;
+        }
+    } // end of method checkProcedures
+
+    /** @return the number of registers. */
+    public int registers() {
+        return numbers.length ;
+    } // end of method registers
+
+    /** Runs the program.
+
+      @param io Where call get and call put go.
+      @throws IOException in the event that io fails.
+      @throws ProgramException if the program goes wrong.
+     */
+    public void run( ProgramIO io ) throws IOException {
+        final int[] code = this.code ;
+        final double[] num = numbers.clone() ;
+        final String[] str = strings.clone() ;
+        int pc = 0 ;
+        while( true ) {
+            switch( code[pc] ) {
+                case MOVE: {
+                    int d = code[pc + 1], a = code[pc + 2] ;
+                    num[d] = num[a] ;
+                    str[d] = str[a] ;
+                    pc += 3 ;
+                    break ;
+                }
+                case ADD: {
+                    int d = code[pc + 1], a = code[pc + 2], b = code[pc + 3] ;
+                    if( (str[a] != null) | (str[b] != null) )
+                        throw notNumbers( pc, a, b, str ) ;
+                    num[d] = num[a] + num[b] ;
+                    str[d] = null ;
+                    pc += 4 ;
+                    break ;
+                }
+                case SUB: {
+                    int d = code[pc + 1], a = code[pc + 2], b = code[pc + 3] ;
+                    if( (str[a] != null) | (str[b] != null) )
+                        throw notNumbers( pc, a, b, str ) ;
+                    num[d] = num[a] - num[b] ;
+                    str[d] = null ;
+                    pc += 4 ;
+                    break ;
+                }
+                case MUL: {
+                    int d = code[pc + 1], a = code[pc + 2], b = code[pc + 3] ;
+                    if( (str[a] != null) | (str[b] != null) )
+                        throw notNumbers( pc, a, b, str ) ;
+                    num[d] = num[a] * num[b] ;
+                    str[d] = null ;
+                    pc += 4 ;
+                    break ;
+                }
+                case DIV: {
+                    int d = code[pc + 1], a = code[pc + 2], b = code[pc + 3] ;
+                    if( (str[a] != null) | (str[b] != null) )
+                        throw notNumbers( pc, a, b, str ) ;
+                    if( num[b] == 0 )
+                        throw new ProgramException( "division by zero", lines[pc] ) ;
+                    num[d] = num[a] / num[b] ;
+                    str[d] = null ;
+                    pc += 4 ;
+                    break ;
+                }
+                case JUMP:
+                    pc = code[pc + 1] ;
+                    break ;
+                case JLT: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? num[a] < num[b] : compare( JLT, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JLE: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? num[a] <= num[b] : compare( JLE, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JGT: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? num[a] > num[b] : compare( JGT, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JGE: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? num[a] >= num[b] : compare( JGE, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JEQ: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? num[a] == num[b] : compare( JEQ, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JNE: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? num[a] != num[b] : compare( JNE, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JNLT: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? !(num[a] < num[b]) : compare( JNLT, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JNLE: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? !(num[a] <= num[b]) : compare( JNLE, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JNGT: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? !(num[a] > num[b]) : compare( JNGT, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JNGE: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? !(num[a] >= num[b]) : compare( JNGE, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JNEQ: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? !(num[a] == num[b]) : compare( JNEQ, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case JNNE: {
+                    int a = code[pc + 1], b = code[pc + 2] ;
+                    boolean jump = ((str[a] == null) & (str[b] == null)) ? !(num[a] != num[b]) : compare( JNNE, str[a], str[b] ) ;
+                    pc = jump ? code[pc + 3] : pc + 4 ;
+                    break ;
+                }
+                case GET: {
+                    int d = code[pc + 1] ;
+                    String text = io.get() ;
+                    if( text == null )
+                        throw new ProgramException( "no input left for " + variables[d], lines[pc] ) ;
+                    if( isNumber( text ) ) {
+                        num[d] = Double.parseDouble( text ) ;
+                        str[d] = null ;
+                    } else {
+                        num[d] = 0 ;
+                        str[d] = text ;
+                    }
+                    pc += 2 ;
+                    break ;
+                }
+                case PUT: {
+                    int n = code[pc + 1] ;
+                    StringBuilder line = new StringBuilder() ;
+                    for( int i = 0; i < n; i++ ) {
+                        int a = code[pc + 2 + i] ;
+                        if( i > 0 )
+                            line.append( ' ' ) ;
+                        line.append( (str[a] != null) ? str[a] : format( num[a] ) ) ;
+                    }
+                    io.put( line.toString() ) ;
+                    pc += 2 + n ;
+                    break ;
+                }
+                default:
+                    return ;
+            }
+        }
+    } // end of method run
+
+    private ProgramException notNumbers( int pc, int a, int b, String[] str ) {
+        int r = (str[a] != null) ? a : b ;
+        return new ProgramException( "arithmetic on the string " + name( r ), lines[pc] ) ;
+    } // end of method notNumbers
+
+    /** @return a register's name: its variable, its constant's value, or t and its number. */
+    String name( int r ) {
+        if( r < variables.length )
+            return variables[r] ;
+        if( r < variables.length + constants )
+            return (strings[r] != null) ? '"' + strings[r] + '"' : format( numbers[r] ) ;
+        return "t" + (r - variables.length - constants) ;
+    } // end of method name
+
+    /** Compares two numbers for a conditional jump, true if it jumps. */
+    static boolean compare( int op, double a, double b ) {
+        switch( op ) {
+            case JLT:  return a < b ;
+            case JLE:  return a <= b ;
+            case JGT:  return a > b ;
+            case JGE:  return a >= b ;
+            case JEQ:  return a == b ;
+            case JNE:  return a != b ;
+            case JNLT: return !(a < b) ;
+            case JNLE: return !(a <= b) ;
+            case JNGT: return !(a > b) ;
+            case JNGE: return !(a >= b) ;
+            case JNEQ: return !(a == b) ;
+            default:   return !(a != b) ;
+        }
+    } // end of method compare
+
+    /** Compares two values, at least one a string, for a conditional jump. */
+    static boolean compare( int op, String as, String bs ) {
+        if( (as == null) || (bs == null) )
+            return compare( op, 0, Double.NaN ) ;
+        return compare( op, as.compareTo( bs ), 0 ) ;
+    } // end of method compare
+
+    /** @return true if input text is read as a number: digits, perhaps a fraction, perhaps negative. */
+    static boolean isNumber( String text ) {
+        int i = text.startsWith( "-" ) ? 1 : 0 ;
+        int digits = 0, point = -1 ;
+        for( ; i < text.length(); i++ ) {
+            char c = text.charAt( i ) ;
+            if( (c == '.') && (point < 0) && (digits > 0) )
+                point = i ;
+            else if( (c >= '0') && (c <= '9') )
+                digits++ ;
+            else
+                return false ;
+        }
+        return (digits > 0) && (point != text.length() - 1) ;
+    } // end of method isNumber
+
+    /** @return a number as put writes it. */
+    static String format( double v ) {
+        if( (v == Math.rint( v )) && (Math.abs( v ) < 1e15) )
+            return Long.toString( (long) v ) ;
+        return Double.toString( v ) ;
+    } // end of method format
+
+    /** @return the code as a listing, one instruction a line. */
+    public String toString() {
+        StringBuilder s = new StringBuilder() ;
+        for( int pc = 0; pc < code.length; ) {
+            int op = code[pc] ;
+            int length = (op == PUT) ? 2 + code[pc + 1] : LENGTHS[op] ;
+            s.append( String.format( "%5d  %-5s", pc, OPCODES[op] ) ) ;
+            for( int i = 1; i < length; i++ ) {
+                boolean target = (i == length - 1) && (op >= JUMP) && (op <= JNNE) ;
+                boolean count = (op == PUT) && (i == 1) ;
+                s.append( ' ' ).append( (target || count) ? Integer.toString( code[pc + i] ) : name( code[pc + i] ) ) ;
+            }
+            s.append( System.lineSeparator() ) ;
+            pc += length ;
+        }
+        return s.toString() ;
+    } // end of method toString
+
+    /** Turns a parse tree into code, see IRProgram.lower. */
+    private static class Lowering {
+        private final ParseTree tree ;
+        private int[] code = new int[256] ;
+        private int[] lines = new int[256] ;
+        private int pc ;
+        /** The line of the statement being lowered. */
+        private int line ;
+
+        private final LinkedHashMap<String, Integer> variables = new LinkedHashMap<String, Integer>() ;
+        /** Constants by their text, strings with a '"' in front. */
+        private final LinkedHashMap<String, Integer> constants = new LinkedHashMap<String, Integer>() ;
+        /** The first temporary register, the next free one, and how many were ever used at once. */
+        private final int temporaries ;
+        private int top, most ;
+
+        Lowering( ParseTree tree ) {
+            this.tree = tree ;
+            // number the registers, every identifier being a variable but a procedure's name
+            for( int t = 0; t < tree.tokenCount(); t++ ) {
+                String text = tree.tokenText( t ) ;
+                switch( tree.tokenSymbol( t ) ) {
+                    case Token.identifier:
+                        if( (t == 0) || (tree.tokenSymbol( t - 1 ) != Token.callSymbol) )
+                            variables.putIfAbsent( text, variables.size() ) ;
+                        break ;
+                    case Token.numberConstant:
+                    case Token.stringConstant:
+                        constants.putIfAbsent( key( t ), 0 ) ;
+                        break ;
+                }
+            }
+            int r = variables.size() ;
+            for( Map.Entry<String, Integer> e : constants.entrySet() )
+                e.setValue( r++ ) ;
+            temporaries = r ;
+        } // end of constructor method
+
+        IRProgram program() throws CompilationException {
+            int part = tree.root() ;
+            statementList( child( part, "<statementList>" ) ) ;
+            emit( HALT ) ;
+
+            int registers = temporaries + most ;
+            double[] numbers = new double[registers] ;
+            String[] strings = new String[registers] ;
+            for( Map.Entry<String, Integer> e : constants.entrySet() ) {
+                String key = e.getKey() ;
+                if( key.startsWith( "\"" ) )
+                    strings[e.getValue()] = key.substring( 1 ) ;
+                else
+                    numbers[e.getValue()] = Double.parseDouble( key ) ;
+            }
+            return new IRProgram( Arrays.copyOf( code, pc ), Arrays.copyOf( lines, pc ), numbers, strings,
+                                  variables.keySet().toArray( new String[0] ), constants.size() ) ;
+        } // end of method program
+
+        /** Lowers each statement of a right-nested <statementList>. */
+        private void statementList( int list ) throws CompilationException {
+            for( int l = list; l >= 0; ) {
+                int statement = tree.firstChild( l ) ;
+                statement( tree.firstChild( statement ) ) ;
+                int semicolon = tree.nextSibling( statement ) ;
+                l = (semicolon < 0) ? -1 : tree.nextSibling( semicolon ) ;
+            }
+        } // end of method statementList
+
+        private void statement( int s ) throws CompilationException {
+            line = tree.tokenLine( tree.token( tree.firstChild( s ) ) ) ;
+            top = 0 ;
+            String kind = tree.name( s ) ;
+            if( kind.equals( "<assignment>" ) )
+                assignment( s ) ;
+            else if( kind.equals( "<ifStatement>" ) ) {
+                int condition = child( s, "<condition>" ) ;
+                int then = child( s, "<statementList>" ) ;
+                int otherwise = next( then, "<statementList>" ) ;
+                int skip = condition( condition, false ) ;
+                statementList( then ) ;
+                if( otherwise >= 0 ) {
+                    emit( JUMP, 0 ) ;
+                    int end = pc - 1 ;
+                    code[skip] = pc ;
+                    statementList( otherwise ) ;
+                    code[end] = pc ;
+                } else
+                    code[skip] = pc ;
+            } else if( kind.equals( "<whileStatement>" ) ) {
+                emit( JUMP, 0 ) ;
+                int test = pc - 1 ;
+                int body = pc ;
+                statementList( child( s, "<statementList>" ) ) ;
+                code[test] = pc ;
+                int jump = condition( child( s, "<condition>" ), true ) ;
+                code[jump] = body ;
+            } else if( kind.equals( "<untilStatement>" ) ) {
+                int body = pc ;
+                statementList( child( s, "<statementList>" ) ) ;
+                int jump = condition( child( s, "<condition>" ), false ) ;
+                code[jump] = body ;
+            } else if( kind.equals( "<forStatement>" ) ) {
+                int start = child( s, "<assignment>" ) ;
+                int step = next( start, "<assignment>" ) ;
+                assignment( start ) ;
+                emit( JUMP, 0 ) ;
+                int test = pc - 1 ;
+                int body = pc ;
+                statementList( child( s, "<statementList>" ) ) ;
+                assignment( step ) ;
+                code[test] = pc ;
+                int jump = condition( child( s, "<condition>" ), true ) ;
+                code[jump] = body ;
+            } else
+                procedure( s ) ;
+        } // end of method statement
+
+        private void assignment( int a ) {
+            line = tree.tokenLine( tree.token( tree.firstChild( a ) ) ) ;
+            int target = variable( tree.firstChild( a ) ) ;
+            int value = tree.nextSibling( tree.nextSibling( tree.firstChild( a ) ) ) ;
+            int r = tree.isTerminal( value ) ? constant( value ) : expression( value, target ) ;
+            if( r != target )
+                emit( MOVE, target, r ) ;
+            top = 0 ;
+        } // end of method assignment
+
+        private void procedure( int p ) throws CompilationException {
+            int name = tree.nextSibling( tree.firstChild( p ) ) ;
+            String procedure = tree.tokenText( tree.token( name ) ) ;
+            IntList arguments = new IntList() ;
+            for( int list = child( p, "<argumentList>" ); list >= 0; ) {
+                int argument = tree.firstChild( list ) ;
+                arguments.add( variable( argument ) ) ;
+                int comma = tree.nextSibling( argument ) ;
+                list = (comma < 0) ? -1 : tree.nextSibling( comma ) ;
+            }
+            if( procedure.equals( "get" ) ) {
+                for( int i = 0; i < arguments.size; i++ )
+                    emit( GET, arguments.values[i] ) ;
+            } else if( procedure.equals( "put" ) ) {
+                emit( PUT, arguments.size ) ;
+                for( int i = 0; i < arguments.size; i++ )
+                    emit( arguments.values[i] ) ;
+            } else
+                throw new CompilationException( "unknown procedure " + procedure + " on line " + line ) ;
+        } // end of method procedure
+
+        /** Emits a conditional jump on a <condition>, returning where its target goes. */
+        private int condition( int c, boolean jumpIfTrue ) {
+            int left = tree.firstChild( c ) ;
+            int operator = tree.nextSibling( left ) ;
+            int right = tree.nextSibling( operator ) ;
+            line = tree.tokenLine( tree.token( left ) ) ;
+            int op ;
+            switch( tree.kind( tree.firstChild( operator ) ) ) {
+                case Token.lessThanSymbol:     op = JLT ; break ;
+                case Token.lessEqualSymbol:    op = JLE ; break ;
+                case Token.greaterThanSymbol:  op = JGT ; break ;
+                case Token.greaterEqualSymbol: op = JGE ; break ;
+                case Token.equalSymbol:        op = JEQ ; break ;
+                default:                       op = JNE ; break ;
+            }
+            int r = (tree.kind( right ) == Token.identifier) ? variable( right ) : constant( right ) ;
+            emit( jumpIfTrue ? op : op + (JNLT - JLT), variable( left ), r, 0 ) ;
+            return pc - 1 ;
+        } // end of method condition
+
+        /** Lowers a right-nested <expression> left to right, into target if it is not -1. */
+        private int expression( int e, int target ) {
+            int operand = tree.firstChild( e ) ;
+            int operator = tree.nextSibling( operand ) ;
+            if( operator < 0 )
+                return term( operand, target ) ;
+            int result = term( operand, -1 ) ;
+            while( operator >= 0 ) {
+                int rest = tree.nextSibling( operator ) ;
+                operand = tree.firstChild( rest ) ;
+                int r = term( operand, -1 ) ;
+                int op = (tree.kind( operator ) == Token.plusSymbol) ? ADD : SUB ;
+                operator = tree.nextSibling( operand ) ;
+                result = arithmetic( op, result, r, (operator < 0) ? target : -1 ) ;
+            }
+            return result ;
+        } // end of method expression
+
+        /** Lowers a right-nested <term> as expression() does. */
+        private int term( int t, int target ) {
+            int operand = tree.firstChild( t ) ;
+            int operator = tree.nextSibling( operand ) ;
+            if( operator < 0 )
+                return factor( operand, target ) ;
+            int result = factor( operand, -1 ) ;
+            while( operator >= 0 ) {
+                int rest = tree.nextSibling( operator ) ;
+                operand = tree.firstChild( rest ) ;
+                int r = factor( operand, -1 ) ;
+                int op = (tree.kind( operator ) == Token.timesSymbol) ? MUL : DIV ;
+                operator = tree.nextSibling( operand ) ;
+                result = arithmetic( op, result, r, (operator < 0) ? target : -1 ) ;
+            }
+            return result ;
+        } // end of method term
+
+        private int factor( int f, int target ) {
+            int c = tree.firstChild( f ) ;
+            switch( tree.kind( c ) ) {
+                case Token.identifier:
+                    return variable( c ) ;
+                case Token.numberConstant:
+                    return constant( c ) ;
+                default:
+                    return expression( tree.nextSibling( c ), target ) ;
+            }
+        } // end of method factor
+
+        /** Emits an operation on two registers into target, or a temporary when that is -1. */
+        private int arithmetic( int op, int a, int b, int target ) {
+            int d = target ;
+            if( d < 0 )
+                d = (a >= temporaries) ? a : (b >= temporaries) ? b : temporary() ;
+            emit( op, d, a, b ) ;
+            // the operands are used up, so every temporary above the result is free
+            top = (d >= temporaries) ? d - temporaries + 1 : 0 ;
+            return d ;
+        } // end of method arithmetic
+
+        private int temporary() {
+            most = Math.max( most, top + 1 ) ;
+            return temporaries + top++ ;
+        } // end of method temporary
+
+        private int variable( int node ) {
+            return variables.get( tree.tokenText( tree.token( node ) ) ) ;
+        } // end of method variable
+
+        private int constant( int node ) {
+            return constants.get( key( tree.token( node ) ) ) ;
+        } // end of method constant
+
+        private String key( int token ) {
+            String text = tree.tokenText( token ) ;
+            return (tree.tokenSymbol( token ) == Token.stringConstant) ? '"' + text : text ;
+        } // end of method key
+
+        /** @return the first child of a node with the given name, or -1. */
+        private int child( int node, String name ) {
+            int c = tree.firstChild( node ) ;
+            return (c < 0) ? -1 : name.equals( tree.name( c ) ) ? c : next( c, name ) ;
+        } // end of method child
+
+        /** @return the next sibling after a node with the given name, or -1. */
+        private int next( int node, String name ) {
+            for( int n = tree.nextSibling( node ); n >= 0; n = tree.nextSibling( n ) )
+                if( name.equals( tree.name( n ) ) )
+                    return n ;
+            return -1 ;
+        } // end of method next
+
+        private void emit( int... words ) {
+            if( pc + words.length > code.length ) {
+                code = Arrays.copyOf( code, 2 * code.length + words.length ) ;
+                lines = Arrays.copyOf( lines, code.length ) ;
+            }
+            lines[pc] = line ;
+            System.arraycopy( words, 0, code, pc, words.length ) ;
+            pc += words.length ;
+        } // end of method emit
+    } // end of class Lowering
+
+    /** A growable list of ints. */
+    private static class IntList {
+        int[] values = new int[4] ;
+        int size ;
+
+        void add( int v ) {
+            if( size == values.length )
+                values = Arrays.copyOf( values, 2 * size ) ;
+            values[size++] = v ;
+        } // end of method add
+    } // end of class IntList
+
+} // end of class IRProgram
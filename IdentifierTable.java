@@ -0,0 +1,114 @@
+
+/**
+ *
+ * Interns identifier text for one LexicalAnalyser, or token text for
+ * one ParseTree.
+ *
+ * Each distinct spelling is turned into a String once; later occurrences
+ * are found by comparing characters in place and share that String, so a
+ * repeated identifier costs no allocation.
+ *
+ **/
+
+class IdentifierTable
+{
+    /** Open-addressed slots, null when empty; the length is a power of two. */
+    private String[] slots = new String[256] ;
+    /** Number of occupied slots. */
+    private int size ;
+
+    /** Returns the shared String for the given text, adding it if it is new.
+
+      @param t A buffer holding the identifier as seen in source.
+      @param length The number of chars of t holding the identifier.
+      @return A String equal to the identifier.
+     */
+    String intern(char[] t, int length)
+    {
+        int h = 0 ;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + t[i] ;
+
+        int mask = slots.length - 1 ;
+        int i = mix(h) & mask ;
+        for (String s = slots[i]; s != null; s = slots[i])
+        {
+            if ((s.hashCode() == h) && matches(s, t, length))
+                return s ;
+            i = (i + 1) & mask ;
+        }
+
+        String s = new String(t, 0, length) ;
+        slots[i] = s ;
+        if (++size * 2 > slots.length)
+            grow() ;
+        return s ;
+    } // end of method intern
+
+    /** Returns the shared String for the given text, adding it if it is new.
+
+      @param t The text, e.g. a view of a token that will change once the next is read.
+      @return A String equal to the text.
+     */
+    String intern(CharSequence t)
+    {
+        int length = t.length() ;
+        int h = 0 ;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + t.charAt(i) ;
+
+        int mask = slots.length - 1 ;
+        int i = mix(h) & mask ;
+        for (String s = slots[i]; s != null; s = slots[i])
+        {
+            if ((s.hashCode() == h) && s.contentEquals(t))
+                return s ;
+            i = (i + 1) & mask ;
+        }
+
+        String s = t.toString() ;
+        slots[i] = s ;
+        if (++size * 2 > slots.length)
+            grow() ;
+        return s ;
+    } // end of method intern
+
+    /** @return the number of distinct identifiers held. */
+    int size()
+    {
+        return size ;
+    } // end of method size
+
+    private static boolean matches(String s, char[] t, int length)
+    {
+        if (s.length() != length)
+            return false ;
+        for (int i = 0; i < length; i++)
+            if (s.charAt(i) != t[i])
+                return false ;
+        return true ;
+    } // end of method matches
+
+    /** Spreads String.hashCode's low bits before masking. */
+    private static int mix(int h)
+    {
+        return h ^ (h >>> 16) ;
+    } // end of method mix
+
+    private void grow()
+    {
+        String[] old = slots ;
+        slots = new String[2 * old.length] ;
+        int mask = slots.length - 1 ;
+        for (String s : old)
+        {
+            if (s == null)
+                continue ;
+            int i = mix(s.hashCode()) & mask ;
+            while (slots[i] != null)
+                i = (i + 1) & mask ;
+            slots[i] = s ;
+        }
+    } // end of method grow
+
+} // end of class IdentifierTable
@@ -0,0 +1,165 @@
+
+/**
+ *
+ * Keeps one program parsed while it is being edited.
+ *
+ * The tokens and the events of the last parse are kept.  An edit re-lexes
+ * only the text around it (see TokenStream.edit) and then parses again only
+ * the innermost <statement> that holds all the re-lexed tokens, so long as
+ * that statement on its own still parses and still ends at the same token.
+ * Otherwise it tries the enclosing statements in turn, and as a last resort
+ * parses the whole program again.  A program that failed to parse is
+ * always parsed again in full.
+ *
+ **/
+
+import java.io.* ;
+import java.nio.* ;
+import java.nio.charset.* ;
+import java.nio.file.* ;
+
+public class IncrementalParser
+{
+    /** The program's name, used in error messages. */
+    private final String file ;
+    /** The current source text. */
+    private char[] source ;
+    /** Number of chars of source holding text. */
+    private int length ;
+    /** The tokens of the current source. */
+    private TokenStream tokens ;
+    /** The events of the current parse. */
+    private EventLog log ;
+    /** What the last full parse wrote to its error stream. */
+    private String errors = "" ;
+    /** Number of tokens the last parse went over. */
+    private int reparsed ;
+
+    /** Reads and parses a program file, decoded in the platform's default charset.
+
+      @param file The file to read.
+      @throws IOException in the event that the file cannot be read.
+     */
+    public IncrementalParser( String file ) throws IOException {
+        this( file, decode( Files.readAllBytes( Paths.get(file) ) ) ) ;
+    } // end of constructor method
+
+    /** Parses a program held in memory.
+
+      @param file The program's name, used in error messages.
+      @param source The source text, which is copied.
+      @throws IOException in the event that the source cannot be read.
+     */
+    public IncrementalParser( String file, CharSequence source ) throws IOException {
+        this.file = file ;
+        this.length = source.length() ;
+        this.source = new char[length] ;
+        for( int i = 0; i < length; i++ )
+            this.source[i] = source.charAt(i) ;
+        tokens = TokenStream.read( new LexicalAnalyser( this.source, length ) ) ;
+        parseAll() ;
+    } // end of constructor method
+
+    private static CharSequence decode( byte[] bytes ) {
+        return Charset.defaultCharset().decode( ByteBuffer.wrap(bytes) ) ;
+    } // end of method decode
+
+    /** Applies an edit to the source and brings the parse up to date.
+
+      @param offset Where the edit happens.
+      @param removed The number of chars removed from there.
+      @param inserted The text put in their place.
+      @throws IOException in the event that the source cannot be read.
+     */
+    public void edit( int offset, int removed, CharSequence inserted ) throws IOException {
+        if( (offset < 0) || (removed < 0) || (offset + removed > length) )
+            throw new IndexOutOfBoundsException( "edit of " + removed + " at " + offset + " in " + length + " chars" ) ;
+
+        int newLength = length - removed + inserted.length() ;
+        char[] text = new char[newLength] ;
+        System.arraycopy( source, 0, text, 0, offset ) ;
+        for( int i = 0; i < inserted.length(); i++ )
+            text[offset + i] = inserted.charAt(i) ;
+        System.arraycopy( source, offset + removed, text, offset + inserted.length(), length - offset - removed ) ;
+
+        int oldSize = tokens.size() ;
+        tokens.edit( text, newLength, offset, removed, inserted.length() ) ;
+        source = text ;
+        length = newLength ;
+
+        int tokenDelta = tokens.size() - oldSize ;
+        if( !log.succeeded() || !reparse( tokens.damageStart(), tokens.damageEnd() - tokenDelta, tokenDelta ) )
+            parseAll() ;
+    } // end of method edit
+
+    /** Parses again the innermost statement holding the damaged tokens that still fits where it was.
+
+      @param from The first re-lexed token.
+      @param to The old index just past the last replaced token.
+      @param tokenDelta How many more tokens there are after the edit.
+      @return false if no statement would do.
+     */
+    private boolean reparse( int from, int to, int tokenDelta ) throws IOException {
+        for( int s = log.lastStatementFrom( from ); s >= 0; s = log.parent(s) ) {
+            if( log.end(s) < to )
+                continue ;
+
+            TokenStream.Cursor cursor = tokens.cursor( log.first(s) ) ;
+            EventLog fresh = new EventLog( cursor ) ;
+            try {
+                new SyntaxAnalyser( cursor, file ).parseStatement( fresh ) ;
+            } catch( CompilationException e ) {
+                continue ;
+            }
+            if( cursor.index() != log.end(s) + tokenDelta )
+                continue ;
+
+            reparsed = cursor.index() - log.first(s) ;
+            log.replaceStatement( s, fresh, tokenDelta ) ;
+            return true ;
+        }
+        return false ;
+    } // end of method reparse
+
+    /** Parses the whole program, keeping its events and whatever it reports as errors. */
+    private void parseAll() throws IOException {
+        ByteArrayOutputStream report = new ByteArrayOutputStream() ;
+        PrintStream ps = new PrintStream( report ) ;
+        TokenStream.Cursor cursor = tokens.cursor() ;
+        log = new EventLog( cursor ) ;
+        new SyntaxAnalyser( cursor, file ).parse( ps, log ) ;
+        ps.flush() ;
+        errors = report.toString() ;
+        reparsed = tokens.size() ;
+    } // end of method parseAll
+
+    /** Writes the current parse's events, as a fresh parse of the source would have.
+
+      @param events Where the events go.
+     */
+    public void replay( EventSink events ) {
+        log.replay( events, tokens ) ;
+        events.flush() ;
+    } // end of method replay
+
+    /** @return true if the source currently parses. */
+    public boolean succeeded() {
+        return log.succeeded() ;
+    } // end of method succeeded
+
+    /** @return the error report of the current parse, empty if it succeeded. */
+    public String errors() {
+        return errors ;
+    } // end of method errors
+
+    /** @return the number of tokens re-parsed by the last edit, or all of them after a full parse. */
+    public int reparsedTokens() {
+        return reparsed ;
+    } // end of method reparsedTokens
+
+    /** @return the current source text. */
+    public String text() {
+        return new String( source, 0, length ) ;
+    } // end of method text
+
+} // end of class IncrementalParser
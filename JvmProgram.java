@@ -0,0 +1,654 @@
+
+/**
+ *
+ * A program compiled from its IRProgram code to JVM bytecode, so the JIT
+ * can compile its loops to machine code.
+ *
+ * Each program becomes one class, written out by hand and defined by a
+ * ClassLoader of its own, whose run method is the whole program.  Every
+ * register becomes a double local, and a String local as well if it can
+ * ever hold a string: a string constant, or what call get or a move from
+ * such a register leaves there.  Registers that only ever hold numbers
+ * are plain doubles, with no checks.  Numeric constants are pushed where
+ * they are used.  The class file is version 49, which the JVM verifies
+ * without stack map frames, so none are written.
+ *
+ * A method's code is limited to 64K bytes and a branch reaches 32K bytes
+ * either way; compile() returns null for a program too large for that,
+ * which is then best left to IRProgram.
+ * The program means exactly what it does when IRProgram runs it.
+ *
+ **/
+
+import java.io.* ;
+import java.util.* ;
+
+public final class JvmProgram
+{
+    /** What each generated class implements. */
+    public interface Body {
+        void run( ProgramIO io ) throws IOException ;
+    } // end of interface Body
+
+    /** Names generated classes apart. */
+    private static int classes ;
+
+    private final Body body ;
+
+    private JvmProgram( Body body ) {
+        this.body = body ;
+    } // end of constructor method
+
+    /** Compiles a program to bytecode and loads it.
+
+      @param program The program.
+      @return the compiled program, or null if it is too large for one method's branches.
+     */
+    public static JvmProgram compile( IRProgram program ) {
+        String name ;
+        synchronized( JvmProgram.class ) {
+            name = "GeneratedProgram" + classes++ ;
+        }
+        byte[] bytes = new Emitter( program, name ).classFile() ;
+        if( bytes == null )
+            return null ;
+        try {
+            Class<?> c = new Loader( JvmProgram.class.getClassLoader() ).define( name, bytes ) ;
+            return new JvmProgram( (Body) c.getDeclaredConstructor().newInstance() ) ;
+        } catch( ReflectiveOperationException e ) {
+            throw new IllegalStateException( "generated class failed to load", e ) ;
+        }
+    } // end of method compile
+
+    /** Runs the program.
+
+      @param io Where call get and call put go.
+      @throws IOException in the event that io fails.
+      @throws ProgramException if the program goes wrong.
+     */
+    public void run( ProgramIO io ) throws IOException {
+        body.run( io ) ;
+    } // end of method run
+
+    /* What the generated code calls.  They are public because the generated
+       classes are in a package of their own loader's. */
+
+    public static ProgramException error( String message, int line ) {
+        return new ProgramException( message, line ) ;
+    } // end of method error
+
+    public static boolean compare( int op, String a, String b ) {
+        return IRProgram.compare( op, a, b ) ;
+    } // end of method compare
+
+    /** Reads the text of an input value, failing at the end of the input. */
+    public static String input( ProgramIO io, String variable, int line ) throws IOException {
+        String text = io.get() ;
+        if( text == null )
+            throw new ProgramException( "no input left for " + variable, line ) ;
+        return text ;
+    } // end of method input
+
+    public static boolean isNumber( String text ) {
+        return IRProgram.isNumber( text ) ;
+    } // end of method isNumber
+
+    public static String format( double v ) {
+        return IRProgram.format( v ) ;
+    } // end of method format
+
+    /** @return a value as put writes it, the string if there is one. */
+    public static String text( String s, double v ) {
+        return (s != null) ? s : IRProgram.format( v ) ;
+    } // end of method text
+
+    /** Defines one generated class. */
+    private static class Loader extends ClassLoader {
+        Loader( ClassLoader parent ) {
+            super( parent ) ;
+        } // end of constructor method
+
+        Class<?> define( String name, byte[] bytes ) {
+            return defineClass( name, bytes, 0, bytes.length ) ;
+        } // end of method define
+    } // end of class Loader
+
+    /** Writes the class file for one program. */
+    private static class Emitter {
+        /* JVM opcodes used. */
+        private static final int ACONST_NULL = 0x01, DCONST_0 = 0x0e, BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13,
+            LDC2_W = 0x14, DLOAD = 0x18, ALOAD = 0x19, ALOAD_0 = 0x2a, DSTORE = 0x39, ASTORE = 0x3a, DUP = 0x59,
+            DADD = 0x63, DSUB = 0x67, DMUL = 0x6b, DDIV = 0x6f, DCMPL = 0x97, DCMPG = 0x98,
+            IFEQ = 0x99, IFNE = 0x9a, IFLT = 0x9b, IFGE = 0x9c, IFGT = 0x9d, IFLE = 0x9e, GOTO = 0xa7,
+            RETURN = 0xb1, INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8,
+            INVOKEINTERFACE = 0xb9, NEW = 0xbb, ATHROW = 0xbf, WIDE = 0xc4, IFNULL = 0xc6, IFNONNULL = 0xc7 ;
+        private static final String RUNTIME = "JvmProgram" ;
+
+        private final IRProgram program ;
+        private final String name ;
+        private final ConstantPool pool = new ConstantPool() ;
+        /** The code of run(ProgramIO) so far. */
+        private byte[] code = new byte[1024] ;
+        private int size ;
+        /** Where each jump to IRProgram code puts its offset, and the IRProgram pc it goes to. */
+        private final IntList jumps = new IntList(), targets = new IntList() ;
+
+        /** Each register's double local, and its String local or -1 if it only holds numbers; constants have none. */
+        private final int[] numberLocal, stringLocal ;
+        private int locals ;
+        private final int firstTemporary ;
+        /** The line of the instruction being compiled. */
+        private int line ;
+
+        Emitter( IRProgram program, String name ) {
+            this.program = program ;
+            this.name = name ;
+            int registers = program.registers() ;
+            firstTemporary = program.variables.length + program.constants ;
+            numberLocal = new int[registers] ;
+            stringLocal = new int[registers] ;
+
+            boolean[] strings = mayHoldStrings() ;
+            locals = 2 ;
+            for( int r = 0; r < registers; r++ ) {
+                numberLocal[r] = stringLocal[r] = -1 ;
+                if( isConstant( r ) )
+                    continue ;
+                numberLocal[r] = locals ;
+                locals += 2 ;
+                if( strings[r] )
+                    stringLocal[r] = locals++ ;
+            }
+        } // end of constructor method
+
+        private boolean isConstant( int r ) {
+            return (r >= program.variables.length) && (r < firstTemporary) ;
+        } // end of method isConstant
+
+        /** Finds the registers that can ever hold a string, by following GETs and MOVEs to a fixed point. */
+        private boolean[] mayHoldStrings() {
+            int[] c = program.code ;
+            boolean[] strings = new boolean[program.registers()] ;
+            for( int r = 0; r < strings.length; r++ )
+                strings[r] = program.strings[r] != null ;
+            for( boolean changed = true; changed; ) {
+                changed = false ;
+                for( int pc = 0; pc < c.length; pc += length( pc ) ) {
+                    boolean s = (c[pc] == IRProgram.GET) || ((c[pc] == IRProgram.MOVE) && strings[c[pc + 2]]) ;
+                    if( s && !strings[c[pc + 1]] ) {
+                        strings[c[pc + 1]] = true ;
+                        changed = true ;
+                    }
+                }
+            }
+            return strings ;
+        } // end of method mayHoldStrings
+
+        private int length( int pc ) {
+            int op = program.code[pc] ;
+            switch( op ) {
+                case IRProgram.HALT: return 1 ;
+                case IRProgram.MOVE: return 3 ;
+                case IRProgram.JUMP: case IRProgram.GET: return 2 ;
+                case IRProgram.PUT: return 2 + program.code[pc + 1] ;
+                default: return 4 ;
+            }
+        } // end of method length
+
+        /** @return the class file, or null if the program does not fit in one method's branches. */
+        byte[] classFile() {
+            byte[] run = runMethod() ;
+            if( run.length > Short.MAX_VALUE )
+                return null ;
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream() ;
+                DataOutputStream out = new DataOutputStream( bytes ) ;
+                int thisClass = pool.classRef( name ) ;
+                int superClass = pool.classRef( "java/lang/Object" ) ;
+                int body = pool.classRef( RUNTIME + "$Body" ) ;
+                int init = pool.method( INVOKESPECIAL, "java/lang/Object", "<init>", "()V" ) ;
+                int codeName = pool.utf8( "Code" ) ;
+                int initName = pool.utf8( "<init>" ), initType = pool.utf8( "()V" ) ;
+                int runName = pool.utf8( "run" ), runType = pool.utf8( "(LProgramIO;)V" ) ;
+
+                out.writeInt( 0xCAFEBABE ) ;
+                out.writeShort( 0 ) ;
+                out.writeShort( 49 ) ;
+                pool.write( out ) ;
+                out.writeShort( 0x0031 ) ;        // public final super
+                out.writeShort( thisClass ) ;
+                out.writeShort( superClass ) ;
+                out.writeShort( 1 ) ;
+                out.writeShort( body ) ;
+                out.writeShort( 0 ) ;             // fields
+                out.writeShort( 2 ) ;             // methods
+
+                byte[] initCode = { (byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (init >> 8), (byte) init, (byte) RETURN } ;
+                writeMethod( out, initName, initType, codeName, 1, 1, initCode ) ;
+                writeMethod( out, runName, runType, codeName, 16, locals, run ) ;
+                out.writeShort( 0 ) ;             // attributes
+                return bytes.toByteArray() ;
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e ) ;
+            }
+        } // end of method classFile
+
+        private static void writeMethod( DataOutputStream out, int name, int type, int codeName, int maxStack, int maxLocals, byte[] code ) throws IOException {
+            out.writeShort( 0x0001 ) ;            // public
+            out.writeShort( name ) ;
+            out.writeShort( type ) ;
+            out.writeShort( 1 ) ;
+            out.writeShort( codeName ) ;
+            out.writeInt( 12 + code.length ) ;
+            out.writeShort( maxStack ) ;
+            out.writeShort( maxLocals ) ;
+            out.writeInt( code.length ) ;
+            out.write( code ) ;
+            out.writeShort( 0 ) ;                 // exception table
+            out.writeShort( 0 ) ;                 // attributes
+        } // end of method writeMethod
+
+        /** Compiles the code into the body of run(ProgramIO). */
+        private byte[] runMethod() {
+            int[] c = program.code ;
+            // every local starts out as 0, or null for a string
+            for( int r = 0; r < numberLocal.length; r++ ) {
+                if( numberLocal[r] < 0 )
+                    continue ;
+                op( DCONST_0 ) ;
+                local( DSTORE, numberLocal[r] ) ;
+                if( stringLocal[r] >= 0 ) {
+                    op( ACONST_NULL ) ;
+                    local( ASTORE, stringLocal[r] ) ;
+                }
+            }
+
+            int[] starts = new int[c.length + 1] ;
+            for( int pc = 0; pc < c.length; pc += length( pc ) ) {
+                starts[pc] = size ;
+                line = program.lines[pc] ;
+                int op = c[pc] ;
+                switch( op ) {
+                    case IRProgram.HALT:
+                        op( RETURN ) ;
+                        break ;
+                    case IRProgram.MOVE:
+                        move( c[pc + 1], c[pc + 2] ) ;
+                        break ;
+                    case IRProgram.ADD: case IRProgram.SUB: case IRProgram.MUL: case IRProgram.DIV:
+                        arithmetic( op, c[pc + 1], c[pc + 2], c[pc + 3] ) ;
+                        break ;
+                    case IRProgram.JUMP:
+                        jump( GOTO, c[pc + 1] ) ;
+                        break ;
+                    case IRProgram.GET:
+                        get( c[pc + 1] ) ;
+                        break ;
+                    case IRProgram.PUT:
+                        put( c, pc + 2, c[pc + 1] ) ;
+                        break ;
+                    default:
+                        compare( op, c[pc + 1], c[pc + 2], c[pc + 3] ) ;
+                        break ;
+                }
+            }
+            op( RETURN ) ;
+
+            for( int i = 0; i < jumps.size; i++ )
+                patch( jumps.values[i], starts[targets.values[i]] ) ;
+            return Arrays.copyOf( code, size ) ;
+        } // end of method runMethod
+
+        private void move( int d, int a ) {
+            if( isConstant( a ) && (program.strings[a] != null) ) {
+                ldc( pool.string( program.strings[a] ) ) ;
+                local( ASTORE, stringLocal[d] ) ;
+                op( DCONST_0 ) ;
+                local( DSTORE, numberLocal[d] ) ;
+                return ;
+            }
+            loadNumber( a ) ;
+            local( DSTORE, numberLocal[d] ) ;
+            if( stringLocal[d] >= 0 ) {
+                loadString( a ) ;
+                local( ASTORE, stringLocal[d] ) ;
+            }
+        } // end of method move
+
+        private void arithmetic( int op, int d, int a, int b ) {
+            checkNumber( a ) ;
+            checkNumber( b ) ;
+            if( op == IRProgram.DIV ) {
+                loadNumber( b ) ;
+                op( DCONST_0 ) ;
+                op( DCMPL ) ;
+                int ok = branch( IFNE ) ;
+                fail( "division by zero" ) ;
+                land( ok ) ;
+            }
+            loadNumber( a ) ;
+            loadNumber( b ) ;
+            op( (op == IRProgram.ADD) ? DADD : (op == IRProgram.SUB) ? DSUB : (op == IRProgram.MUL) ? DMUL : DDIV ) ;
+            local( DSTORE, numberLocal[d] ) ;
+            if( stringLocal[d] >= 0 ) {
+                op( ACONST_NULL ) ;
+                local( ASTORE, stringLocal[d] ) ;
+            }
+        } // end of method arithmetic
+
+        /** Fails if a register holds a string, as IRProgram does. */
+        private void checkNumber( int r ) {
+            if( stringLocal[r] < 0 )
+                return ;
+            local( ALOAD, stringLocal[r] ) ;
+            int ok = branch( IFNULL ) ;
+            fail( "arithmetic on the string " + program.name( r ) ) ;
+            land( ok ) ;
+        } // end of method checkNumber
+
+        /** Emits a conditional jump to target, an IRProgram pc. */
+        private void compare( int op, int a, int b, int target ) {
+            boolean aString = isConstant( a ) && (program.strings[a] != null) ;
+            boolean bString = isConstant( b ) && (program.strings[b] != null) ;
+            if( aString || bString ) {
+                slowCompare( op, a, b, target ) ;
+                return ;
+            }
+
+            // numbers are compared here; a string in either sends it to the slow comparison after
+            IntList slow = new IntList() ;
+            for( int r : new int[] { a, b } ) {
+                if( stringLocal[r] >= 0 ) {
+                    local( ALOAD, stringLocal[r] ) ;
+                    slow.add( branch( IFNONNULL ) ) ;
+                }
+            }
+            loadNumber( a ) ;
+            loadNumber( b ) ;
+            // dcmpg gives 1 and dcmpl -1 for NaN, each chosen so NaN compares as in Java
+            switch( op ) {
+                case IRProgram.JLT:  op( DCMPG ) ; jump( IFLT, target ) ; break ;
+                case IRProgram.JLE:  op( DCMPG ) ; jump( IFLE, target ) ; break ;
+                case IRProgram.JGT:  op( DCMPL ) ; jump( IFGT, target ) ; break ;
+                case IRProgram.JGE:  op( DCMPL ) ; jump( IFGE, target ) ; break ;
+                case IRProgram.JEQ:  op( DCMPL ) ; jump( IFEQ, target ) ; break ;
+                case IRProgram.JNE:  op( DCMPL ) ; jump( IFNE, target ) ; break ;
+                case IRProgram.JNLT: op( DCMPG ) ; jump( IFGE, target ) ; break ;
+                case IRProgram.JNLE: op( DCMPG ) ; jump( IFGT, target ) ; break ;
+                case IRProgram.JNGT: op( DCMPL ) ; jump( IFLE, target ) ; break ;
+                case IRProgram.JNGE: op( DCMPL ) ; jump( IFLT, target ) ; break ;
+                case IRProgram.JNEQ: op( DCMPL ) ; jump( IFNE, target ) ; break ;
+                default:             op( DCMPL ) ; jump( IFEQ, target ) ; break ;
+            }
+            if( slow.size == 0 )
+                return ;
+            int done = branch( GOTO ) ;
+            for( int i = 0; i < slow.size; i++ )
+                land( slow.values[i] ) ;
+            slowCompare( op, a, b, target ) ;
+            land( done ) ;
+        } // end of method compare
+
+        /** Compares through IRProgram.compare, as it does when either value is a string. */
+        private void slowCompare( int op, int a, int b, int target ) {
+            intConstant( op ) ;
+            loadString( a ) ;
+            loadString( b ) ;
+            invoke( INVOKESTATIC, RUNTIME, "compare", "(ILjava/lang/String;Ljava/lang/String;)Z" ) ;
+            jump( IFNE, target ) ;
+        } // end of method slowCompare
+
+        private void get( int d ) {
+            local( ALOAD, 1 ) ;
+            ldc( pool.string( program.name( d ) ) ) ;
+            intConstant( line ) ;
+            invoke( INVOKESTATIC, RUNTIME, "input", "(LProgramIO;Ljava/lang/String;I)Ljava/lang/String;" ) ;
+            local( ASTORE, stringLocal[d] ) ;
+            local( ALOAD, stringLocal[d] ) ;
+            invoke( INVOKESTATIC, RUNTIME, "isNumber", "(Ljava/lang/String;)Z" ) ;
+            int text = branch( IFEQ ) ;
+            local( ALOAD, stringLocal[d] ) ;
+            invoke( INVOKESTATIC, "java/lang/Double", "parseDouble", "(Ljava/lang/String;)D" ) ;
+            local( DSTORE, numberLocal[d] ) ;
+            op( ACONST_NULL ) ;
+            local( ASTORE, stringLocal[d] ) ;
+            int done = branch( GOTO ) ;
+            land( text ) ;
+            op( DCONST_0 ) ;
+            local( DSTORE, numberLocal[d] ) ;
+            land( done ) ;
+        } // end of method get
+
+        private void put( int[] c, int first, int n ) {
+            local( ALOAD, 1 ) ;
+            op( NEW ) ;
+            u2( pool.classRef( "java/lang/StringBuilder" ) ) ;
+            op( DUP ) ;
+            invoke( INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "()V" ) ;
+            for( int i = 0; i < n; i++ ) {
+                int a = c[first + i] ;
+                if( i > 0 ) {
+                    ldc( pool.string( " " ) ) ;
+                    invoke( INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;" ) ;
+                }
+                if( isConstant( a ) && (program.strings[a] != null) )
+                    ldc( pool.string( program.strings[a] ) ) ;
+                else if( stringLocal[a] >= 0 ) {
+                    local( ALOAD, stringLocal[a] ) ;
+                    loadNumber( a ) ;
+                    invoke( INVOKESTATIC, RUNTIME, "text", "(Ljava/lang/String;D)Ljava/lang/String;" ) ;
+                } else {
+                    loadNumber( a ) ;
+                    invoke( INVOKESTATIC, RUNTIME, "format", "(D)Ljava/lang/String;" ) ;
+                }
+                invoke( INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;" ) ;
+            }
+            invoke( INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;" ) ;
+            invoke( INVOKEINTERFACE, "ProgramIO", "put", "(Ljava/lang/String;)V" ) ;
+        } // end of method put
+
+        /** Throws a ProgramException for the current line. */
+        private void fail( String message ) {
+            ldc( pool.string( message ) ) ;
+            intConstant( line ) ;
+            invoke( INVOKESTATIC, RUNTIME, "error", "(Ljava/lang/String;I)LProgramException;" ) ;
+            op( ATHROW ) ;
+        } // end of method fail
+
+        private void loadNumber( int r ) {
+            if( isConstant( r ) ) {
+                double v = (program.strings[r] != null) ? 0 : program.numbers[r] ;
+                op( LDC2_W ) ;
+                u2( pool.doubleConstant( v ) ) ;
+            } else
+                local( DLOAD, numberLocal[r] ) ;
+        } // end of method loadNumber
+
+        private void loadString( int r ) {
+            if( isConstant( r ) && (program.strings[r] != null) )
+                ldc( pool.string( program.strings[r] ) ) ;
+            else if( stringLocal[r] >= 0 )
+                local( ALOAD, stringLocal[r] ) ;
+            else
+                op( ACONST_NULL ) ;
+        } // end of method loadString
+
+        private void intConstant( int v ) {
+            if( (v >= Byte.MIN_VALUE) && (v <= Byte.MAX_VALUE) ) {
+                op( BIPUSH ) ;
+                op( v & 0xFF ) ;
+            } else if( (v >= Short.MIN_VALUE) && (v <= Short.MAX_VALUE) ) {
+                op( SIPUSH ) ;
+                u2( v ) ;
+            } else
+                ldc( pool.integer( v ) ) ;
+        } // end of method intConstant
+
+        private void ldc( int index ) {
+            op( LDC_W ) ;
+            u2( index ) ;
+        } // end of method ldc
+
+        private void invoke( int opcode, String owner, String method, String type ) {
+            op( opcode ) ;
+            u2( pool.method( opcode, owner, method, type ) ) ;
+            if( opcode == INVOKEINTERFACE ) {
+                int slots = 1 ;
+                for( int i = 1; type.charAt( i ) != ')'; i++ ) {
+                    char t = type.charAt( i ) ;
+                    slots += ((t == 'D') || (t == 'J')) ? 2 : 1 ;
+                    if( t == 'L' )
+                        i = type.indexOf( ';', i ) ;
+                }
+                op( slots ) ;
+                op( 0 ) ;
+            }
+        } // end of method invoke
+
+        private void local( int opcode, int index ) {
+            if( index > 255 ) {
+                op( WIDE ) ;
+                op( opcode ) ;
+                u2( index ) ;
+            } else {
+                op( opcode ) ;
+                op( index ) ;
+            }
+        } // end of method local
+
+        /** Emits a branch to an IRProgram pc, filled in once every pc's code is placed. */
+        private void jump( int opcode, int target ) {
+            jumps.add( branch( opcode ) ) ;
+            targets.add( target ) ;
+        } // end of method jump
+
+        /** Emits a branch with its offset still to be filled in, returning where that goes. */
+        private int branch( int opcode ) {
+            op( opcode ) ;
+            u2( 0 ) ;
+            return size - 2 ;
+        } // end of method branch
+
+        /** Points a branch emitted earlier in this instruction here. */
+        private void land( int at ) {
+            patch( at, size ) ;
+        } // end of method land
+
+        /** Sets the offset of the branch whose offset is at the given place, to go to target. */
+        private void patch( int at, int target ) {
+            int offset = target - (at - 1) ;
+            code[at] = (byte) (offset >> 8) ;
+            code[at + 1] = (byte) offset ;
+        } // end of method patch
+
+        private void op( int b ) {
+            if( size == code.length )
+                code = Arrays.copyOf( code, 2 * size ) ;
+            code[size++] = (byte) b ;
+        } // end of method op
+
+        private void u2( int v ) {
+            op( v >> 8 ) ;
+            op( v ) ;
+        } // end of method u2
+    } // end of class Emitter
+
+    /** A class file's constant pool, each entry added once. */
+    private static class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream() ;
+        private final DataOutputStream out = new DataOutputStream( bytes ) ;
+        private final HashMap<String, Integer> entries = new HashMap<String, Integer>() ;
+        private int count = 1 ;
+
+        int utf8( String s ) {
+            return entry( "U" + s, 1, s, 0, 0, 1 ) ;
+        } // end of method utf8
+
+        int classRef( String name ) {
+            return entry( "C" + name, 7, null, utf8( name ), -1, 1 ) ;
+        } // end of method classRef
+
+        int string( String s ) {
+            return entry( "S" + s, 8, null, utf8( s ), -1, 1 ) ;
+        } // end of method string
+
+        int integer( int v ) {
+            Integer index = entries.get( "I" + v ) ;
+            if( index != null )
+                return index ;
+            try {
+                out.writeByte( 3 ) ;
+                out.writeInt( v ) ;
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e ) ;
+            }
+            entries.put( "I" + v, count ) ;
+            return count++ ;
+        } // end of method integer
+
+        int doubleConstant( double v ) {
+            String key = "D" + Double.doubleToRawLongBits( v ) ;
+            Integer index = entries.get( key ) ;
+            if( index != null )
+                return index ;
+            try {
+                out.writeByte( 6 ) ;
+                out.writeDouble( v ) ;
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e ) ;
+            }
+            entries.put( key, count ) ;
+            int i = count ;
+            count += 2 ;                          // a double takes two entries
+            return i ;
+        } // end of method doubleConstant
+
+        int method( int opcode, String owner, String name, String type ) {
+            int c = classRef( owner ) ;
+            int nameAndType = entry( "N" + name + ":" + type, 12, null, utf8( name ), utf8( type ), 1 ) ;
+            int tag = (opcode == 0xb9) ? 11 : 10 ;
+            return entry( "M" + tag + owner + "." + name + ":" + type, tag, null, c, nameAndType, 1 ) ;
+        } // end of method method
+
+        /** Adds an entry unless it is there: a UTF-8 string, or a tag and one or two indices. */
+        private int entry( String key, int tag, String text, int a, int b, int slots ) {
+            Integer index = entries.get( key ) ;
+            if( index != null )
+                return index ;
+            try {
+                out.writeByte( tag ) ;
+                if( text != null )
+                    out.writeUTF( text ) ;
+                else {
+                    out.writeShort( a ) ;
+                    if( b >= 0 )
+                        out.writeShort( b ) ;
+                }
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e ) ;
+            }
+            entries.put( key, count ) ;
+            int i = count ;
+            count += slots ;
+            return i ;
+        } // end of method entry
+
+        void write( DataOutputStream o ) throws IOException {
+            o.writeShort( count ) ;
+            bytes.writeTo( o ) ;
+        } // end of method write
+    } // end of class ConstantPool
+
+    /** A growable list of ints. */
+    private static class IntList {
+        int[] values = new int[4] ;
+        int size ;
+
+        void add( int v ) {
+            if( size == values.length )
+                values = Arrays.copyOf( values, 2 * size ) ;
+            values[size++] = v ;
+        } // end of method add
+    } // end of class IntList
+
+} // end of class JvmProgram
@@ -10,126 +10,345 @@
  *
  **/
 import java.io.* ;
+import java.nio.ByteBuffer ;
+import java.nio.ByteOrder ;
+import java.nio.CharBuffer ;
+import java.nio.MappedByteBuffer ;
+import java.nio.channels.FileChannel ;
+import java.nio.charset.Charset ;
+import java.nio.charset.StandardCharsets ;
+import java.nio.file.Paths ;
+import java.nio.file.StandardOpenOption ;
+import java.util.Arrays ;
 
-public class LexicalAnalyser
+public class LexicalAnalyser implements TokenCursor
 {
 
-	/** Represents a textual and symbolic reserved word. */
-	class ReservedWord
-	{
-		/** The text used in source. */
-		public String text ;
-		/** The type (one of the class constants from Token) of this word. */
-		public int symbol ;
+	/** The EOF character. */
+	private static final char EOF = '\000' ;
 
-		/** Creates a new reserved word from the observed text and a given type.
+	/* The classes of character that decide what scan() does next. */
+	private static final byte OTHER = 0,
+			LETTER = 1,
+			DIGIT = 2,
+			BLANK = 3,
+			MINUS = 4,
+			QUOTE = 5,
+			OPERATOR = 6,
+			END = 7 ;
+	/** The class of each ASCII character; others are classified by Character. */
+	private static final byte[] CLASSES = new byte[128] ;
+	/** The symbol and text of an OPERATOR on its own. */
+	private static final int[] OPERATOR_SYMBOLS = new int[128] ;
+	private static final String[] OPERATOR_TEXTS = new String[128] ;
+	/** The symbol and text of an OPERATOR followed by '=', or 0 and null if '=' does not continue it. */
+	private static final int[] EQUALS_SYMBOLS = new int[128] ;
+	private static final String[] EQUALS_TEXTS = new String[128] ;
 
-		  @param t The text as seen in source.
-		  @param s The type of this word, typically a class constant from Token
-		 */
-		public ReservedWord(String t, int s)
+	static
+	{
+		for (char c = 'a'; c <= 'z'; c++)
 		{
-			text = t ;
-			symbol = s ;
-		} // end of constructor method
-	} // end of class ReservedWord
-
-	/** The maximum number of identifiers to hold during compilation. */
-	private static final int maxTableSize = 200 ;
-	/** The EOF character. */
-	private static final char EOF = '\000' ;
+			CLASSES[c] = LETTER ;
+			CLASSES[c - 'a' + 'A'] = LETTER ;
+		}
+		for (char c = '0'; c <= '9'; c++)
+			CLASSES[c] = DIGIT ;
+		CLASSES[' '] = BLANK ;
+		CLASSES['\t'] = BLANK ;
+		CLASSES['\n'] = BLANK ;
+		CLASSES['-'] = MINUS ;
+		CLASSES['"'] = QUOTE ;
+		CLASSES[EOF] = END ;
+		operator(':', Token.colonSymbol, Token.becomesSymbol) ;
+		operator('>', Token.greaterThanSymbol, Token.greaterEqualSymbol) ;
+		operator('<', Token.lessThanSymbol, Token.lessEqualSymbol) ;
+		operator('/', Token.divideSymbol, Token.notEqualSymbol) ;
+		operator('=', Token.equalSymbol, 0) ;
+		operator(',', Token.commaSymbol, 0) ;
+		operator(';', Token.semicolonSymbol, 0) ;
+		operator('+', Token.plusSymbol, 0) ;
+		operator('*', Token.timesSymbol, 0) ;
+		operator('(', Token.leftParenthesis, 0) ;
+		operator(')', Token.rightParenthesis, 0) ;
+	}
 
-	/** A list of symbols. */
-	private ReservedWord[] symbols = new ReservedWord[maxTableSize] ;
-	/** Holds the current number of symbols held. */
-	private int noOfSymbols ;
+	/** The identifiers seen so far, so each spelling is only made into a String once. */
+	private IdentifierTable identifiers = new IdentifierTable() ;
+	/** How many identifiers a reset() analyser keeps interned before starting afresh. */
+	private static final int MAX_KEPT_IDENTIFIERS = 4096 ;
 
 	/** Is this the first time we have been called? */
 	private boolean firstCall ;
 
-	/** An input stream from the filename mentioned above. */
-	private BufferedReader sourceFile ;
+	/** The source text: all of it, or for a Reader a window onto it that is refilled as it is used up. */
+	private char[] buffer ;
+	/** Number of chars of the buffer holding source text. */
+	private int bufferLength ;
+	/** Where a windowed buffer is refilled from; null once it is exhausted, or for text in memory. */
+	private Reader reader ;
+	/** Size of the window used when reading from a Reader, in chars. */
+	private static final int WINDOW_SIZE = 8192 ;
+	/** The file's bytes when each is an ASCII char of the text, so runs of blanks, comments
+	  and identifiers can be scanned a long word at a time; byte i is buffer[asciiBase + i].
+	  null for any other text, which is scanned a char at a time. */
+	private ByteBuffer ascii ;
+	private int asciiBase ;
+
+	/* A byte in each of the eight lanes of a long, for scanning ascii a word at a time. */
+	private static final long ONES = 0x0101010101010101L ;
+	private static final long LOW = 0x7F7F7F7F7F7F7F7FL ;
+	private static final long HIGH = 0x8080808080808080L ;
 
 	/* State-change character and offset counts. */
 	private char currentCharacter ;
-	private String currentLine ;
 	private int currentOffset,
 			currentLineNumber ;
+	/** Where currentCharacter was read from; bufferLength once the text is used up. */
+	private int characterOffset ;
+	/** Has nothing been read since the last line terminator?  An unterminated last line still ends in '\n'. */
+	private boolean atLineStart ;
 
-	/* input buffer */
-	private StringBuffer currentText = new StringBuffer() ;
+	/* input buffer: scratch space for the current token's text, reused for every token */
+	private char[] currentText = new char[64] ;
+	private int currentTextLength ;
+	/** A view on the scratch text, handed out as the current token's text. */
+	private CharSequence currentTextView = new CharSequence()
+	{
+		public int length()
+		{
+			return currentTextLength ;
+		}
+
+		public char charAt(int index)
+		{
+			return currentText[index] ;
+		}
 
-	/** Adds a reserved word to the internal symbol table.
+		public CharSequence subSequence(int start, int end)
+		{
+			return new String(currentText, start, end - start) ;
+		}
 
-	  @param t The text as seen in source.
-	  @param s The type of this word, typically a class constant from Token
-	 */
-	private void setReservedWord(String t, int s)
-	{
-		symbols[noOfSymbols] = new ReservedWord(t, s) ;
-		noOfSymbols++ ;
-	} // end of method setReservedWord
-
-
-	/** Sets all initial variables and adds the language's reserved words to the symbol table. */
-	private void initialiseScanner()
-	{
-		noOfSymbols = 0 ;
-		setReservedWord("begin", Token.beginSymbol) ;
-		setReservedWord("call", Token.callSymbol) ;
-		setReservedWord("do", Token.doSymbol) ;
-		setReservedWord("else", Token.elseSymbol) ;
-		setReservedWord("end", Token.endSymbol) ;
-		setReservedWord("float", Token.floatSymbol) ;
-		setReservedWord("if", Token.ifSymbol) ;
-		setReservedWord("integer", Token.integerSymbol) ;
-		setReservedWord("is", Token.isSymbol) ;
-		setReservedWord("loop", Token.loopSymbol) ;
-		setReservedWord("procedure", Token.procedureSymbol) ;
-		setReservedWord("string", Token.stringSymbol) ;
-		setReservedWord("then", Token.thenSymbol) ;
-		setReservedWord("until", Token.untilSymbol) ;
-		setReservedWord("while", Token.whileSymbol) ;
-		setReservedWord("for", Token.forSymbol) ;
-	} // end of method initialiseScanner
+		public String toString()
+		{
+			return new String(currentText, 0, currentTextLength) ;
+		}
+	} ;
 
+	/* The current token: its symbol, text, line and where it lies in the buffer. */
+	private int tokenSymbol ;
+	private CharSequence tokenText ;
+	private int tokenLine,
+			tokenStart,
+			tokenEnd ;
 
 	/** Creates a new LexicalAnalyser which will run over the given file.
 
+	  The file is memory mapped and decoded into a char buffer in one step,
+	  in the platform's default charset as FileReader would.  If it is all
+	  ASCII the mapped bytes are kept too, for the scanner to read eight
+	  chars at a time.
+
 	  @param fileName The file to read.
 	  @throws IOException if any read errors occur during parsing.
 	 */
 	public LexicalAnalyser(String fileName) throws IOException
 	{
-		initialiseScanner() ;
+		CharBuffer text ;
+		MappedByteBuffer bytes ;
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ))
+		{
+			bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()) ;
+			text = Charset.defaultCharset().decode(bytes) ;
+		}
+		int offset = 0 ;
+		if (text.hasArray())
+		{
+			offset = text.arrayOffset() + text.position() ;
+			initialise(text.array(), offset, text.remaining()) ;
+		}
+		else
+		{
+			char[] chars = new char[text.remaining()] ;
+			text.get(chars) ;
+			initialise(chars, 0, chars.length) ;
+		}
+		bytes.clear() ;
+		if ((bytes.limit() == bufferLength - offset) && Charset.defaultCharset().contains(StandardCharsets.US_ASCII)
+				&& isAscii(bytes))
+		{
+			ascii = bytes.order(ByteOrder.LITTLE_ENDIAN) ;
+			asciiBase = offset ;
+		}
+	} // end of constructor method
+
+	/** Creates a new LexicalAnalyser which will run over source text already in memory.
+
+	  @param source The source text; it is read in place, not copied.
+	  @param length The number of chars of source holding text.
+	 */
+	public LexicalAnalyser(char[] source, int length)
+	{
+		initialise(source, 0, length) ;
+	} // end of constructor method
 
-		sourceFile = new BufferedReader(new FileReader(fileName)) ;
-		currentLine = sourceFile.readLine() ;
-		currentOffset = 0 ;
+	/** Creates a new LexicalAnalyser which will run over whatever a Reader supplies.
+
+	  The text is read through a fixed-size window, so memory use does not
+	  grow with its length; source() and the token offsets only make sense
+	  for text held in memory.
+
+	  @param in The source text.
+	 */
+	public LexicalAnalyser(Reader in)
+	{
+		initialise(new char[WINDOW_SIZE], 0, 0) ;
+		reader = in ;
+	} // end of constructor method
+
+	/** Creates a LexicalAnalyser which starts part way through source text already
+	  in memory, e.g. to re-lex the text around an edit.
+
+	  @param source The source text; it is read in place, not copied.
+	  @param offset Where to start, which must be the first char of a token.
+	  @param length The number of chars from offset holding text.
+	  @param lineNumber The line number at offset.
+	 */
+	LexicalAnalyser(char[] source, int offset, int length, int lineNumber)
+	{
+		initialise(source, offset, length) ;
+		currentLineNumber = lineNumber ;
+	} // end of constructor method
+
+	/** Starts again on new source text already in memory, so that one analyser
+	  can be reused for many programs.  The identifiers interned so far are
+	  kept, up to a limit, so common names cost nothing the next time.
+
+	  @param source The source text; it is read in place, not copied.
+	  @param length The number of chars of source holding text.
+	 */
+	public void reset(char[] source, int length)
+	{
+		if (identifiers.size() > MAX_KEPT_IDENTIFIERS)
+			identifiers = new IdentifierTable() ;
+		reader = null ;
+		initialise(source, 0, length) ;
+	} // end of method reset
+
+	private void initialise(char[] source, int offset, int length)
+	{
+		buffer = source ;
+		ascii = null ;
+		currentOffset = offset ;
+		bufferLength = offset + length ;
+		atLineStart = true ;
 		firstCall = true ;
 		currentLineNumber = 0 ;
-	} // end of constructor method
+	} // end of method initialise
+
+	/** Adds a character that is a token by itself to the tables.
+
+	  @param c The character.
+	  @param symbol Its symbol, a class constant from Token.
+	  @param equalsSymbol The symbol of c followed by '=', or 0 if there is none.
+	 */
+	private static void operator(char c, int symbol, int equalsSymbol)
+	{
+		CLASSES[c] = OPERATOR ;
+		OPERATOR_SYMBOLS[c] = symbol ;
+		OPERATOR_TEXTS[c] = String.valueOf(c).intern() ;
+		if (equalsSymbol != 0)
+		{
+			EQUALS_SYMBOLS[c] = equalsSymbol ;
+			EQUALS_TEXTS[c] = (c + "=").intern() ;
+		}
+	} // end of method operator
+
+	/** @return the class of a character: its entry in the table if it is ASCII, else LETTER, DIGIT or OTHER. */
+	private static byte classOf(char c)
+	{
+		if (c < 128)
+			return CLASSES[c] ;
+		if (Character.isLetter(c))
+			return LETTER ;
+		return Character.isDigit(c) ? DIGIT : OTHER ;
+	} // end of method classOf
+
+	/** @return whether a character can continue an identifier. */
+	private static boolean isLetterOrDigit(char c)
+	{
+		byte k = classOf(c) ;
+		return (k == LETTER) || (k == DIGIT) ;
+	} // end of method isLetterOrDigit
+
+	/** @return whether a character is a digit, as Character.isDigit says. */
+	private static boolean isDigit(char c)
+	{
+		return classOf(c) == DIGIT ;
+	} // end of method isDigit
 
 	/** Loads the next character of the input into the buffer.
 
+	  Any of "\r\n", "\r" or "\n" ends a line and reads as a single '\n',
+	  as BufferedReader.readLine would split it; after the last line the
+	  character is EOF for good.
+
 	  @throws IOException in the event that something like velociraptor attack happens to the input stream.
 	 */
 	private void getNextCharacter() throws IOException
 	{
-		if (currentLine == null)
-			currentCharacter = EOF ;
-		else if (currentOffset >= currentLine.length())
+		if ((currentOffset < bufferLength) || refill())
+		{
+			characterOffset = currentOffset ;
+			char c = buffer[currentOffset++] ;
+			if (c == '\r')
+			{
+				if (((currentOffset < bufferLength) || refill()) && (buffer[currentOffset] == '\n'))
+					currentOffset++ ;
+				c = '\n' ;
+			}
+			atLineStart = (c == '\n') ;
+			currentCharacter = c ;
+		}
+		else if (!atLineStart)
 		{
-			currentLine = sourceFile.readLine() ;
-			currentOffset = 0 ;
+			characterOffset = bufferLength ;
+			atLineStart = true ;
 			currentCharacter = '\n' ;
 		}
 		else
+			currentCharacter = EOF ;
+	} // end of method getNextCharacter
+
+	/** @return whether the input has run out, rather than the current character being a NUL in it. */
+	private boolean atEndOfInput()
+	{
+		return (currentCharacter == EOF) && atLineStart ;
+	} // end of method atEndOfInput
+
+	/** Reads the next window of text from the reader, if there is one.
+
+	  @throws IOException in the event that the reader fails.
+	  @return true if there is more text in the buffer.
+	 */
+	private boolean refill() throws IOException
+	{
+		if (reader == null)
+			return false ;
+		int n ;
+		do
+			n = reader.read(buffer, 0, buffer.length) ;
+		while (n == 0) ;
+		if (n < 0)
 		{
-			currentCharacter = currentLine.charAt(currentOffset) ;
-			currentOffset++ ;
+			reader = null ;
+			return false ;
 		}
-	} // end of method getNextCharacter
+		currentOffset = 0 ;
+		bufferLength = n ;
+		return true ;
+	} // end of method refill
 
 	/** Returns the next token from the source file.  Repeatedly calling this
 	  will return each token in the file, and eventually null.
@@ -138,6 +357,220 @@ public class LexicalAnalyser
 	  @return the next token from the source file.
 	 */
 	public Token getNextToken() throws IOException
+	{
+		advance() ;
+		return token() ;
+	} // end of method getNextToken
+
+	/** Moves on to the next token without making a Token object for it.
+
+	  @throws IOException in the event that the file cannot be read.
+	 */
+	public void advance() throws IOException
+	{
+		scan() ;
+	} // end of method advance
+
+	/** @return the symbol of the current token, a class constant from Token. */
+	public int symbol()
+	{
+		return tokenSymbol ;
+	} // end of method symbol
+
+	/** @return the text of the current token, only valid until the next advance(). */
+	public CharSequence text()
+	{
+		return tokenText ;
+	} // end of method text
+
+	/** @return the line number of the current token. */
+	public int lineNumber()
+	{
+		return tokenLine ;
+	} // end of method lineNumber
+
+	/** @return the current token as a Token object. */
+	public Token token()
+	{
+		if (tokenText == currentTextView)
+			return new Token(tokenSymbol, currentText, 0, currentTextLength, tokenLine) ;
+		return new Token(tokenSymbol, tokenText.toString(), tokenLine) ;
+	} // end of method token
+
+	/** @return the source text being scanned, read in place by TokenStream. */
+	char[] source()
+	{
+		return buffer ;
+	} // end of method source
+
+	/** @return the buffer offset the current token starts at. */
+	int tokenStart()
+	{
+		return tokenStart ;
+	} // end of method tokenStart
+
+	/** @return the buffer offset just past the current token. */
+	int tokenEnd()
+	{
+		return tokenEnd ;
+	} // end of method tokenEnd
+
+	/** @return whether every byte is ASCII. */
+	private static boolean isAscii(ByteBuffer bytes)
+	{
+		int length = bytes.limit() ;
+		long any = 0 ;
+		int i = 0 ;
+		for (; i + 8 <= length; i += 8)
+			any |= bytes.getLong(i) ;
+		for (; i < length; i++)
+			any |= bytes.get(i) ;
+		return (any & HIGH) == 0 ;
+	} // end of method isAscii
+
+	/** @return a long with the top bit set in each byte of w that is c, and no others; w must be ASCII. */
+	private static long bytesEqual(long w, char c)
+	{
+		// a lane of w ^ c is zero only if adding 0x7F leaves its top bit clear; ASCII lanes cannot carry
+		return ~((w ^ (c * ONES)) + LOW) & HIGH ;
+	} // end of method bytesEqual
+
+	/** @return a long with the top bit set in each byte of w from lo to hi, and no others; w must be ASCII. */
+	private static long bytesBetween(long w, char lo, char hi)
+	{
+		return (w + (0x80 - lo) * ONES) & ~(w + (0x7F - hi) * ONES) & HIGH ;
+	} // end of method bytesBetween
+
+	/** @return the number of whole longs of ascii from buffer offset i to the end of the text. */
+	private int wordsFrom(int i)
+	{
+		return (ascii == null) ? 0 : (bufferLength - i) >>> 3 ;
+	} // end of method wordsFrom
+
+	/** Moves past the spaces, tabs and '\n's from currentOffset on, counting the lines
+	  they end, just as reading them one by one would; getNextCharacter() then reads
+	  whatever follows.
+	 */
+	private void skipBlanks()
+	{
+		int i = currentOffset ;
+		int lines = 0 ;
+		for (int words = wordsFrom(i); words > 0; words--)
+		{
+			long w = ascii.getLong(i - asciiBase) ;
+			long newlines = bytesEqual(w, '\n') ;
+			long other = ~(bytesEqual(w, ' ') | bytesEqual(w, '\t') | newlines) & HIGH ;
+			if (other != 0)
+			{
+				int n = Long.numberOfTrailingZeros(other) >>> 3 ;
+				lines += Long.bitCount(newlines & ((1L << (n << 3)) - 1)) ;
+				i += n ;
+				break ;
+			}
+			lines += Long.bitCount(newlines) ;
+			i += 8 ;
+		}
+		for (; i < bufferLength; i++)
+		{
+			char c = buffer[i] ;
+			if (c == '\n')
+				lines++ ;
+			else if ((c != ' ') && (c != '\t'))
+				break ;
+		}
+		if (i > currentOffset)
+		{
+			atLineStart = (buffer[i - 1] == '\n') ;
+			currentLineNumber += lines ;
+			currentOffset = i ;
+		}
+	} // end of method skipBlanks
+
+	/** Moves past the rest of a comment, up to the '\n' or '\r' that ends its line. */
+	private void skipToLineEnd()
+	{
+		int i = currentOffset ;
+		for (int words = wordsFrom(i); words > 0; words--)
+		{
+			long w = ascii.getLong(i - asciiBase) ;
+			long ends = bytesEqual(w, '\n') | bytesEqual(w, '\r') ;
+			if (ends != 0)
+			{
+				i += Long.numberOfTrailingZeros(ends) >>> 3 ;
+				break ;
+			}
+			i += 8 ;
+		}
+		while ((i < bufferLength) && (buffer[i] != '\n') && (buffer[i] != '\r'))
+			i++ ;
+		if (i > currentOffset)
+		{
+			atLineStart = false ;
+			currentOffset = i ;
+		}
+	} // end of method skipToLineEnd
+
+	/** @return the offset of the first char from i on that is not an ASCII letter or digit. */
+	private int wordEnd(int i)
+	{
+		for (int words = wordsFrom(i); words > 0; words--)
+		{
+			long w = ascii.getLong(i - asciiBase) ;
+			long word = bytesBetween(w | (' ' * ONES), 'a', 'z') | bytesBetween(w, '0', '9') ;
+			if (word != HIGH)
+				return i + (Long.numberOfTrailingZeros(~word & HIGH) >>> 3) ;
+			i += 8 ;
+		}
+		while ((i < bufferLength) && isAsciiLetterOrDigit(buffer[i]))
+			i++ ;
+		return i ;
+	} // end of method wordEnd
+
+	/** @return whether a character is an ASCII letter or digit. */
+	private static boolean isAsciiLetterOrDigit(char c)
+	{
+		return (c < 128) && ((CLASSES[c] == LETTER) || (CLASSES[c] == DIGIT)) ;
+	} // end of method isAsciiLetterOrDigit
+
+	/** Adds a character to the scratch text, growing it when full. */
+	private void appendText(char c)
+	{
+		if (currentTextLength == currentText.length)
+			currentText = Arrays.copyOf(currentText, 2 * currentText.length) ;
+		currentText[currentTextLength++] = c ;
+	} // end of method appendText
+
+	/** Adds buffer[from] up to buffer[to] to the scratch text, growing it as needed. */
+	private void appendText(int from, int to)
+	{
+		int length = currentTextLength + to - from ;
+		if (length > currentText.length)
+			currentText = Arrays.copyOf(currentText, Math.max(length, 2 * currentText.length)) ;
+		System.arraycopy(buffer, from, currentText, currentTextLength, to - from) ;
+		currentTextLength = length ;
+	} // end of method appendText
+
+	/** Records the token just recognised as the current one.
+
+	  @param symbol The type of symbol, a class constant from Token.
+	  @param text The original text of the token.
+	  @return the symbol.
+	 */
+	private int found(int symbol, CharSequence text)
+	{
+		tokenSymbol = symbol ;
+		tokenText = text ;
+		tokenLine = currentLineNumber ;
+		tokenEnd = characterOffset ;
+		return symbol ;
+	} // end of method found
+
+	/** Recognises the next token in the source, making it the current one.
+
+	  @throws IOException in the event that the file cannot be read.
+	  @return the symbol of the token found.
+	 */
+	private int scan() throws IOException
 	{
 		if (firstCall)
 		{
@@ -145,169 +578,129 @@ public class LexicalAnalyser
 			firstCall = false ;
 		}
 
-		while ((currentCharacter == ' ') || (currentCharacter == '\t') ||
-				(currentCharacter == '\n') || (currentCharacter == '-'))
+		byte kind = classOf(currentCharacter) ;
+		while ((kind == BLANK) || (kind == MINUS))
 		{
-			if (currentCharacter == '-')
+			if (kind == MINUS)
 			{
+				int minusStart = characterOffset ;
 				getNextCharacter() ;
 				if (currentCharacter == '-')
 				{
+					skipToLineEnd() ;
 					while (currentCharacter != '\n')
 						getNextCharacter() ;
 				}
 				else
-					return new Token(Token.minusSymbol, "-", currentLineNumber) ;
+				{
+					tokenStart = minusStart ;
+					return found(Token.minusSymbol, "-") ;
+				}
 			}
 
 			if (currentCharacter == '\n')
 				currentLineNumber++ ;
+			if ((currentOffset < bufferLength) && (buffer[currentOffset] <= ' '))
+				skipBlanks() ;
 			getNextCharacter() ;
+			kind = classOf(currentCharacter) ;
 		}
 
-		if (Character.isLetter(currentCharacter))
+		tokenStart = characterOffset ;
+		switch (kind)
 		{
-			currentText.setLength(0) ;
-			while ((Character.isLetter(currentCharacter)) ||
-					(Character.isDigit(currentCharacter)))
+			case LETTER:
 			{
-				currentText.append(currentCharacter) ;
-				getNextCharacter() ;
-			}
-
-			int i = 0 ;
-			String t = (new String(currentText)).toLowerCase() ;
-			while ((i < noOfSymbols) &&
-					(!t.equals(symbols[i].text)))
-				i++ ;
+				currentTextLength = 0 ;
+				int state = ReservedWords.START ;
+				boolean lowerCase = true ;
+				while (isLetterOrDigit(currentCharacter))
+				{
+					appendText(currentCharacter) ;
+					state = ReservedWords.next(state, currentCharacter) ;
+					lowerCase &= (currentCharacter < 'A') || (currentCharacter > 'Z') ;
+					// take the ASCII letters and digits that follow in one go
+					int end = currentOffset ;
+					if ((currentOffset < bufferLength) && isAsciiLetterOrDigit(buffer[currentOffset]))
+						end = wordEnd(currentOffset) ;
+					if (end > currentOffset)
+					{
+						appendText(currentOffset, end) ;
+						for (int i = currentOffset; (i < end) && (state != ReservedWords.NONE); i++)
+						{
+							state = ReservedWords.next(state, buffer[i]) ;
+							lowerCase &= (buffer[i] < 'A') || (buffer[i] > 'Z') ;
+						}
+						atLineStart = false ;
+						currentOffset = end ;
+					}
+					getNextCharacter() ;
+				}
 
-			if (i < noOfSymbols)
-				return new Token(symbols[i].symbol, currentText, currentLineNumber) ;
-			else
-				return new Token(Token.identifier, currentText, currentLineNumber) ;
-		}
-		else if (Character.isDigit(currentCharacter))
-		{
-			currentText.setLength(0);
-			while (Character.isDigit(currentCharacter))
-			{
-				currentText.append(currentCharacter) ;
-				getNextCharacter() ;
+				int symbol = ReservedWords.symbol(state) ;
+				if (symbol == 0)
+					return found(Token.identifier, identifiers.intern(currentText, currentTextLength)) ;
+				else if (lowerCase)
+					return found(symbol, ReservedWords.text(state)) ;
+				else
+					return found(symbol, identifiers.intern(currentText, currentTextLength)) ;
 			}
-			if (currentCharacter == '.')
+			case DIGIT:
 			{
-				currentText.append(currentCharacter) ;
-				getNextCharacter() ;
-				while (Character.isDigit(currentCharacter))
+				currentTextLength = 0 ;
+				while (isDigit(currentCharacter))
 				{
-					currentText.append(currentCharacter) ;
+					appendText(currentCharacter) ;
 					getNextCharacter() ;
 				}
+				if (currentCharacter == '.')
+				{
+					appendText(currentCharacter) ;
+					getNextCharacter() ;
+					while (isDigit(currentCharacter))
+					{
+						appendText(currentCharacter) ;
+						getNextCharacter() ;
+					}
+				}
+				return found(Token.numberConstant, currentTextView) ;
 			}
-			return new Token(Token.numberConstant, currentText, currentLineNumber) ;
-		}
-		else if (currentCharacter == '"')
-		{
-			getNextCharacter() ;
-			currentText.setLength(0) ;
-			while (currentCharacter != '"')
-			{
-				currentText.append(currentCharacter) ;
-				getNextCharacter() ;
-			}
-			getNextCharacter() ;
-			return new Token(Token.stringConstant, currentText, currentLineNumber) ;
-		}
-		else if (currentCharacter == ':')
-		{
-			getNextCharacter() ;
-			if (currentCharacter == '=')
-			{
-				getNextCharacter() ;
-				return new Token(Token.becomesSymbol, ":=", currentLineNumber) ;
-			}
-			else
-				return new Token(Token.colonSymbol, ":", currentLineNumber) ;
-		}
-		else if (currentCharacter == '>')
-		{
-			getNextCharacter() ;
-			if (currentCharacter == '=')
+			case QUOTE:
 			{
 				getNextCharacter() ;
-				return new Token(Token.greaterEqualSymbol, ">=", currentLineNumber) ;
+				currentTextLength = 0 ;
+				// a string left open runs to the end of the input, and no further
+				while ((currentCharacter != '"') && !atEndOfInput())
+				{
+					appendText(currentCharacter) ;
+					getNextCharacter() ;
+				}
+				if (currentCharacter == '"')
+					getNextCharacter() ;
+				return found(Token.stringConstant, currentTextView) ;
 			}
-			else
-				return new Token(Token.greaterThanSymbol, ">", currentLineNumber) ;
-		}
-		else if (currentCharacter == '<')
-		{
-			getNextCharacter() ;
-			if (currentCharacter == '=')
+			case OPERATOR:
 			{
+				char c = currentCharacter ;
 				getNextCharacter() ;
-				return new Token(Token.lessEqualSymbol, "<=", currentLineNumber) ;
+				if ((currentCharacter == '=') && (EQUALS_SYMBOLS[c] != 0))
+				{
+					getNextCharacter() ;
+					return found(EQUALS_SYMBOLS[c], EQUALS_TEXTS[c]) ;
+				}
+				return found(OPERATOR_SYMBOLS[c], OPERATOR_TEXTS[c]) ;
 			}
-			else
-				return new Token(Token.lessThanSymbol, "<", currentLineNumber) ;
-		}
-		else if (currentCharacter == '/')
-		{
-			getNextCharacter() ;
-			if (currentCharacter == '=')
+			case END:
+				return found(Token.eofSymbol, "") ;
+			default:
 			{
+				currentTextLength = 0 ;
+				appendText(currentCharacter) ;
 				getNextCharacter() ;
-				return new Token(Token.notEqualSymbol, "/=", currentLineNumber) ;
+				return found(Token.errorSymbol, currentTextView) ;
 			}
-			else
-				return new Token(Token.divideSymbol, "/", currentLineNumber) ;
 		}
-		else if (currentCharacter == '=')
-		{
-			getNextCharacter() ;
-			return new Token(Token.equalSymbol, "=", currentLineNumber) ;
-		}
-		else if (currentCharacter == ',')
-		{
-			getNextCharacter() ;
-			return new Token(Token.commaSymbol, ",", currentLineNumber) ;
-		}
-		else if (currentCharacter == ';')
-		{
-			getNextCharacter() ;
-			return new Token(Token.semicolonSymbol, ";", currentLineNumber) ;
-		}
-		else if (currentCharacter == '+')
-		{
-			getNextCharacter() ;
-			return new Token(Token.plusSymbol, "+", currentLineNumber) ;
-		}
-		else if (currentCharacter == '*')
-		{
-			getNextCharacter() ;
-			return new Token(Token.timesSymbol, "*", currentLineNumber) ;
-		}
-		else if (currentCharacter == '(')
-		{
-			getNextCharacter() ;
-			return new Token(Token.leftParenthesis, "(", currentLineNumber) ;
-		}
-		else if (currentCharacter == ')')
-		{
-			getNextCharacter() ;
-			return new Token(Token.rightParenthesis, ")", currentLineNumber) ;
-		}
-		else if (currentCharacter == EOF)
-		{
-			return new Token(Token.eofSymbol, "", currentLineNumber) ;
-		}
-		else
-		{
-			currentText = new StringBuffer(currentCharacter) ;
-			getNextCharacter() ;
-			return new Token(Token.errorSymbol, currentText, currentLineNumber) ;
-		}
-	} // end of method getNextToken
+	} // end of method scan
 
 	/** Entry point to text Lexer */
 	public static void main(String[] args) throws IOException
@@ -0,0 +1,26 @@
+
+/**
+ *
+ * An EventSink that throws every event away, for callers that only care
+ * whether the input was accepted.
+ *
+ **/
+
+public class NullEventSink implements EventSink
+{
+    public void insertTerminal( int symbol, CharSequence text, int lineNumber ) {
+    }
+
+    public void commenceNonterminal( String name ) {
+    }
+
+    public void finishNonterminal( String name ) {
+    }
+
+    public void reportSuccess() {
+    }
+
+    public void flush() {
+    }
+
+} // end of class NullEventSink
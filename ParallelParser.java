@@ -0,0 +1,216 @@
+
+/**
+ *
+ * Parses one large program on several cores, by cutting its top-level
+ * statement list into runs of statements and parsing the runs at once.
+ *
+ * The program is lexed first, into a TokenStream.  A pre-scan finds the ;s
+ * of the top-level list by tracking how deeply each token is nested in
+ * if, while, for and do statements and in parentheses, and the runs
+ * between some of them are parsed with fork/join, each by a SyntaxAnalyser
+ * of its own into an EventLog of its own.  The logs are replayed in order,
+ * between the events of the statement part and of the ;s the program was
+ * cut at, which is the trace the whole program gives parsed in one go.
+ *
+ * Only a program without errors is parsed this way.  If any run fails, or
+ * the program does not have the shape the pre-scan looks for, it is parsed
+ * again sequentially from the same tokens, so errors and diagnostics come
+ * out exactly as they always have.
+ *
+ **/
+
+import java.io.* ;
+import java.util.* ;
+import java.util.concurrent.* ;
+
+public class ParallelParser
+{
+    /** The fewest tokens worth a run of their own. */
+    private static final int MIN_RUN = 16384 ;
+    /** Runs to aim for per core, so a core that finishes early can take on another. */
+    private static final int RUNS_PER_CORE = 4 ;
+
+    private static final String STATEMENT_PART = "<statementPart>" ;
+    private static final String STATEMENT_LIST = "<statementList>" ;
+
+    private ParallelParser() {
+    } // end of constructor method
+
+    /** Parses a file with SyntaxAnalyser, on several cores if it is big enough and has no errors.
+
+      The runs are forked into the fork/join pool the caller is running in,
+      or the common pool if it is not in one.
+
+      @param file The program file.
+      @param recover Report every error rather than stopping at the first, see AbstractSyntaxAnalyser.setErrorRecovery.
+      @param out Where errors are reported.
+      @param events Where the parse events go; flushed before returning.
+      @return true if it was parsed in parallel, false if sequentially.
+      @throws IOException if the file cannot be read.
+     */
+    public static boolean parse( String file, boolean recover, PrintStream out, EventSink events ) throws IOException {
+        TokenStream tokens = TokenStream.read( new LexicalAnalyser( file ) ) ;
+        int cores = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism()
+            : ForkJoinPool.getCommonPoolParallelism() ;
+        int[] ends = split( tokens, RUNS_PER_CORE * cores ) ;
+        if( (ends != null) && parse( tokens, ends, file, events ) )
+            return true ;
+
+        SyntaxAnalyser syn = new SyntaxAnalyser( tokens.cursor(), file ) ;
+        syn.setErrorRecovery( recover ) ;
+        syn.parse( out, events ) ;
+        return false ;
+    } // end of method parse
+
+    /** Finds where to cut the top-level statement list of a program into runs of about equal size.
+
+      @param tokens The program.
+      @param runs How many runs to aim for.
+      @return the index of the token after each run: the top-level ; that follows it, or for the
+        last the program's end; null if the program is too small to cut, or not the shape of one
+        that parses.
+     */
+    static int[] split( TokenStream tokens, int runs ) {
+        int size = tokens.size() ;
+        if( (size < 2 * MIN_RUN) || (tokens.symbol( 0 ) != Token.beginSymbol) )
+            return null ;
+        int length = Math.max( MIN_RUN, size / runs ) ;
+        int[] ends = new int[16] ;
+        int count = 0, start = 1, depth = 0, previous = Token.beginSymbol ;
+        for( int i = 1; i < size; i++ ) {
+            int symbol = tokens.symbol( i ) ;
+            switch( symbol ) {
+                case Token.semicolonSymbol:
+                    if( (depth == 0) && (i - start >= length) ) {
+                        if( count == ends.length )
+                            ends = Arrays.copyOf( ends, 2 * count ) ;
+                        ends[count++] = i ;
+                        start = i + 1 ;
+                    }
+                    break ;
+                case Token.ifSymbol:
+                case Token.whileSymbol:
+                case Token.forSymbol:
+                case Token.leftParenthesis:
+                    depth++ ;
+                    break ;
+                case Token.doSymbol:
+                    // do after ) belongs to a for, any other starts an until statement
+                    if( previous != Token.rightParenthesis )
+                        depth++ ;
+                    break ;
+                case Token.untilSymbol:
+                case Token.rightParenthesis:
+                    depth-- ;
+                    break ;
+                case Token.endSymbol:
+                    if( depth == 0 ) {
+                        // the end of the program, which must be the last thing in it
+                        if( (count == 0) || (i + 2 != size) || (tokens.symbol( i + 1 ) != Token.eofSymbol) )
+                            return null ;
+                        ends = Arrays.copyOf( ends, count + 1 ) ;
+                        ends[count] = i ;
+                        return ends ;
+                    }
+                    // end if and end loop close a block together
+                    depth-- ;
+                    if( (i + 1 < size) && ((tokens.symbol( i + 1 ) == Token.ifSymbol) || (tokens.symbol( i + 1 ) == Token.loopSymbol)) )
+                        i++ ;
+                    break ;
+                case Token.eofSymbol:
+                    return null ;
+                default:
+                    break ;
+            }
+            if( depth < 0 )
+                return null ;
+            previous = tokens.symbol( i ) ;
+        }
+        return null ;
+    } // end of method split
+
+    /** Parses the runs at once and, if they all parse, sends the whole trace to events.
+
+      @return false, having sent nothing, if any run failed to parse.
+     */
+    private static boolean parse( TokenStream tokens, int[] ends, String file, EventSink events ) {
+        List<Run> runs = new ArrayList<Run>() ;
+        for( int r = 0; r < ends.length; r++ )
+            runs.add( new Run( tokens, file, (r == 0) ? 1 : ends[r - 1] + 1, ends[r] ) ) ;
+        ForkJoinTask.invokeAll( runs ) ;
+        for( Run run : runs )
+            if( run.log == null )
+                return false ;
+
+        // what SyntaxAnalyser gives around the statements: each ; is followed by a new
+        // <statementList>, and all of them are finished after the last statement
+        int end = ends[ends.length - 1] ;
+        events.commenceNonterminal( STATEMENT_PART ) ;
+        terminal( events, tokens, 0 ) ;
+        events.commenceNonterminal( STATEMENT_LIST ) ;
+        int lists = 1 ;
+        for( int r = 0; r < runs.size(); r++ ) {
+            if( r > 0 ) {
+                terminal( events, tokens, ends[r - 1] ) ;
+                events.commenceNonterminal( STATEMENT_LIST ) ;
+                lists++ ;
+            }
+            runs.get( r ).log.replay( events, tokens ) ;
+            lists += runs.get( r ).lists ;
+        }
+        for( ; lists > 0; lists-- )
+            events.finishNonterminal( STATEMENT_LIST ) ;
+        terminal( events, tokens, end ) ;
+        events.finishNonterminal( STATEMENT_PART ) ;
+        terminal( events, tokens, end + 1 ) ;
+        events.reportSuccess() ;
+        events.flush() ;
+        return true ;
+    } // end of method parse
+
+    private static void terminal( EventSink events, TokenStream tokens, int i ) {
+        events.insertTerminal( tokens.symbol( i ), tokens.text( i ), tokens.lineNumber( i ) ) ;
+    } // end of method terminal
+
+    /** One run of statements of the top-level list, parsed on its own. */
+    private static class Run extends RecursiveAction {
+        private static final long serialVersionUID = 1L ;
+
+        private final TokenStream.Cursor cursor ;
+        private final String file ;
+        /** The index of the token after the run. */
+        private final int end ;
+        /** The run's events, or null if it did not parse. */
+        EventLog log ;
+        /** Number of <statementList>s the run commenced, one after each of its ;s. */
+        int lists ;
+
+        Run( TokenStream tokens, String file, int first, int end ) {
+            cursor = tokens.cursor( first ) ;
+            this.file = file ;
+            this.end = end ;
+        } // end of constructor method
+
+        @Override
+        protected void compute() {
+            EventLog events = new EventLog( cursor ) ;
+            SyntaxAnalyser syn = new SyntaxAnalyser( cursor, file ) ;
+            try {
+                syn.parseStatement( events ) ;
+                while( cursor.index() < end ) {
+                    if( cursor.symbol() != Token.semicolonSymbol )
+                        return ;
+                    events.insertTerminal( cursor.symbol(), cursor.text(), cursor.lineNumber() ) ;
+                    events.commenceNonterminal( STATEMENT_LIST ) ;
+                    lists++ ;
+                    syn.parseStatement( events ) ;
+                }
+                if( cursor.index() == end )
+                    log = events ;
+            } catch( CompilationException | IOException | StackOverflowError e ) {
+                // the whole program is parsed again sequentially, which reports it
+            }
+        } // end of method compute
+    } // end of class Run
+
+} // end of class ParallelParser
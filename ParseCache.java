@@ -0,0 +1,288 @@
+
+/**
+ *
+ * Remembers what compiling a program produced, so an unchanged program
+ * is not lexed and parsed again.
+ *
+ * Results are keyed by the SHA-256 digest of the program's name and
+ * bytes, together with the options that change the output, the platform's
+ * charset and line separator, which the trace is written in, and the
+ * compiler itself: a digest of the classes that lex, parse and report, so
+ * a rebuilt compiler never sees an old one's results.  A result is the
+ * trace (unless it was not asked for) and the errors, which are empty
+ * when the program compiled.
+ *
+ * Recently used results are kept in memory up to a bound on their total
+ * size.  Given a directory, results are also written there, one file
+ * each, so that they outlive the process, up to a bound on the directory's
+ * size: past it the least recently used files are removed.  All methods
+ * may be called from several threads.
+ *
+ **/
+
+import java.io.* ;
+import java.nio.* ;
+import java.nio.charset.* ;
+import java.nio.file.* ;
+import java.nio.file.attribute.* ;
+import java.security.* ;
+import java.util.* ;
+
+public class ParseCache
+{
+    /** Identifies a result file, and its layout. */
+    private static final int MAGIC = 0x33313243, FORMAT_VERSION = 2 ;
+    /** The suffix of result files, and of the temporary files they are written through. */
+    private static final String SUFFIX = ".312" ;
+    /** The classes whose code decides what a result holds. */
+    private static final Class<?>[] COMPILER = {
+        LexicalAnalyser.class, ReservedWords.class, Token.class, TokenCursor.class, AbstractSyntaxAnalyser.class,
+        SyntaxAnalyser.class, AbstractGenerate.class, Generate.class, EventSink.class, TextEventSink.class,
+        CompilationException.class, Diagnostic.class, ParseCache.class
+    } ;
+    /** Begins every key: what the result's bytes depend on besides the program and the options. */
+    private static final byte[] VERSION = version() ;
+
+    /** What compiling one program produced. */
+    public static class Entry {
+        /** The 312 trace, empty if it was not asked for. */
+        public final byte[] trace ;
+        /** The errors, as Compile writes to res.txt; empty if it compiled. */
+        public final byte[] errors ;
+
+        Entry( byte[] trace, byte[] errors ) {
+            this.trace = trace ;
+            this.errors = errors ;
+        } // end of constructor method
+
+        /** @return true if the program had no errors. */
+        public boolean succeeded() {
+            return errors.length == 0 ;
+        } // end of method succeeded
+
+        int size() {
+            return trace.length + errors.length + 64 ;
+        } // end of method size
+    } // end of class Entry
+
+    /** The in-memory tier, keyed by the hex digest, least recently used first. */
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<String, Entry>( 64, 0.75f, true ) ;
+    /** Most bytes of results the memory tier holds. */
+    private final long maxBytes ;
+    /** Bytes of results in the memory tier. */
+    private long bytes ;
+    /** The on-disk tier, or null. */
+    private final Path directory ;
+    /** Most bytes of files the on-disk tier holds. */
+    private final long maxDiskBytes ;
+    /** Bytes of files in the on-disk tier, as last counted plus those written since. */
+    private long diskBytes ;
+
+    /** Creates a cache.
+
+      @param maxBytes Most bytes of results to keep in memory.
+      @param directory Where to keep results on disk, created if need be, or null for memory only.
+      @param maxDiskBytes Most bytes of files to keep in the directory.
+      @throws IOException if the directory cannot be created or read.
+     */
+    public ParseCache( long maxBytes, Path directory, long maxDiskBytes ) throws IOException {
+        this.maxBytes = maxBytes ;
+        this.directory = directory ;
+        this.maxDiskBytes = maxDiskBytes ;
+        if( directory != null ) {
+            Files.createDirectories( directory ) ;
+            prune() ;
+        }
+    } // end of constructor method
+
+    /** Compiles a program, or finds what compiling it produced before.
+
+      @param name The program's name, used in its error messages.
+      @param source The program, in the platform's default charset.
+      @param recover Report every syntax error rather than the first, as Compile -recover.
+      @param trace Produce the 312 trace, not just the errors.
+      @throws IOException in the event that the program cannot be parsed.
+      @return the result.
+     */
+    public Entry compile( String name, byte[] source, boolean recover, boolean trace ) throws IOException {
+        String key = key( name, source, recover, trace ) ;
+        Entry e = get( key ) ;
+        if( e != null )
+            return e ;
+
+        CharBuffer text = Charset.defaultCharset().decode( ByteBuffer.wrap( source ) ) ;
+        char[] chars = new char[text.remaining()] ;
+        text.get( chars ) ;
+        ByteArrayOutputStream events = new ByteArrayOutputStream() ;
+        ByteArrayOutputStream errors = new ByteArrayOutputStream() ;
+        PrintStream ps = new PrintStream( errors ) ;
+        SyntaxAnalyser syn = new SyntaxAnalyser( new LexicalAnalyser( chars, chars.length ), name ) ;
+        syn.setErrorRecovery( recover ) ;
+        syn.parse( ps, trace ? new TextEventSink( events ) : new NullEventSink() ) ;
+        ps.flush() ;
+
+        e = new Entry( events.toByteArray(), errors.toByteArray() ) ;
+        put( key, e ) ;
+        return e ;
+    } // end of method compile
+
+    /** @return the hex SHA-256 digest of everything a result depends on. */
+    private static String key( String name, byte[] source, boolean recover, boolean trace ) {
+        MessageDigest sha = sha256() ;
+        sha.update( VERSION ) ;
+        sha.update( (byte) ((recover ? 1 : 0) + (trace ? 2 : 0)) ) ;
+        byte[] n = name.getBytes( StandardCharsets.UTF_8 ) ;
+        sha.update( ByteBuffer.allocate( 4 ).putInt( n.length ).array() ) ;
+        sha.update( n ) ;
+        sha.update( source ) ;
+        return HexFormat.of().formatHex( sha.digest() ) ;
+    } // end of method key
+
+    /** @return the digest of the platform's charset and line separator and of the compiler's classes. */
+    private static byte[] version() {
+        MessageDigest sha = sha256() ;
+        sha.update( (Charset.defaultCharset().name() + System.lineSeparator()).getBytes( StandardCharsets.UTF_8 ) ) ;
+        for( Class<?> c : COMPILER ) {
+            sha.update( c.getName().getBytes( StandardCharsets.UTF_8 ) ) ;
+            try( InputStream in = c.getResourceAsStream( c.getSimpleName() + ".class" ) ) {
+                if( in == null )
+                    throw new IllegalStateException( "cannot find the class file of " + c.getName() ) ;
+                sha.update( in.readAllBytes() ) ;
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e ) ;
+            }
+        }
+        return sha.digest() ;
+    } // end of method version
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance( "SHA-256" ) ;
+        } catch( NoSuchAlgorithmException e ) {
+            // every Java platform is required to have it
+            throw new IllegalStateException( e ) ;
+        }
+    } // end of method sha256
+
+    /** Looks a result up in memory, then on disk. */
+    private Entry get( String key ) {
+        Entry e ;
+        synchronized( this ) {
+            e = memory.get( key ) ;
+        }
+        if( (e == null) && (directory != null) ) {
+            e = read( key ) ;
+            if( e != null )
+                remember( key, e ) ;
+        }
+        return e ;
+    } // end of method get
+
+    private void put( String key, Entry e ) {
+        remember( key, e ) ;
+        if( directory != null )
+            write( key, e ) ;
+    } // end of method put
+
+    /** Adds a result to the memory tier, dropping the least recently used to make room. */
+    private synchronized void remember( String key, Entry e ) {
+        if( e.size() > maxBytes )
+            return ;
+        Entry old = memory.put( key, e ) ;
+        if( old != null )
+            bytes -= old.size() ;
+        bytes += e.size() ;
+        Iterator<Entry> eldest = memory.values().iterator() ;
+        while( bytes > maxBytes ) {
+            bytes -= eldest.next().size() ;
+            eldest.remove() ;
+        }
+    } // end of method remember
+
+    private Path file( String key ) {
+        return directory.resolve( key + SUFFIX ) ;
+    } // end of method file
+
+    /** Reads a result from disk, marking it as used for prune(); a missing or damaged file is a miss. */
+    private Entry read( String key ) {
+        Path file = file( key ) ;
+        try( DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( file ) ) ) ) {
+            if( (in.readInt() != MAGIC) || (in.readInt() != FORMAT_VERSION) || !in.readUTF().equals( key ) )
+                return null ;
+            byte[] trace = new byte[in.readInt()] ;
+            in.readFully( trace ) ;
+            byte[] errors = new byte[in.readInt()] ;
+            in.readFully( errors ) ;
+            Files.setLastModifiedTime( file, FileTime.fromMillis( System.currentTimeMillis() ) ) ;
+            return new Entry( trace, errors ) ;
+        } catch( IOException e ) {
+            return null ;
+        }
+    } // end of method read
+
+    /** Writes a result to disk, through a temporary file so readers never see half of one. */
+    private void write( String key, Entry e ) {
+        Path target = file( key ) ;
+        try {
+            Path temp = Files.createTempFile( directory, "tmp", SUFFIX ) ;
+            try( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( temp ) ) ) ) {
+                out.writeInt( MAGIC ) ;
+                out.writeInt( FORMAT_VERSION ) ;
+                out.writeUTF( key ) ;
+                out.writeInt( e.trace.length ) ;
+                out.write( e.trace ) ;
+                out.writeInt( e.errors.length ) ;
+                out.write( e.errors ) ;
+            }
+            long size = Files.size( temp ) ;
+            Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE ) ;
+            boolean full ;
+            synchronized( this ) {
+                diskBytes += size ;
+                full = diskBytes > maxDiskBytes ;
+            }
+            if( full )
+                prune() ;
+        } catch( IOException ex ) {
+            // the disk tier is only an optimisation; the result is still in memory
+        }
+    } // end of method write
+
+    /** Counts the directory's files and, if they are over the bound, removes the least recently
+      used until they are down to three quarters of it, so that this is not done on every write.
+      Files left by other versions of the cache and by failed writes go the same way in time.
+      Another process using the same directory may remove files too, and a file that has already
+      gone is simply passed over.
+
+      @throws IOException if the directory cannot be read.
+     */
+    private synchronized void prune() throws IOException {
+        List<Path> files = new ArrayList<Path>() ;
+        Map<Path, FileTime> used = new HashMap<Path, FileTime>() ;
+        Map<Path, Long> sizes = new HashMap<Path, Long>() ;
+        long total = 0 ;
+        try( DirectoryStream<Path> dir = Files.newDirectoryStream( directory, "*" + SUFFIX ) ) {
+            for( Path f : dir ) {
+                try {
+                    BasicFileAttributes a = Files.readAttributes( f, BasicFileAttributes.class ) ;
+                    files.add( f ) ;
+                    used.put( f, a.lastModifiedTime() ) ;
+                    sizes.put( f, a.size() ) ;
+                    total += a.size() ;
+                } catch( IOException e ) {
+                    // removed meanwhile
+                }
+            }
+        }
+        if( total > maxDiskBytes ) {
+            files.sort( Comparator.comparing( used::get ) ) ;
+            for( Iterator<Path> i = files.iterator(); i.hasNext() && (total > maxDiskBytes / 4 * 3); ) {
+                Path f = i.next() ;
+                Files.deleteIfExists( f ) ;
+                total -= sizes.get( f ) ;
+            }
+        }
+        diskBytes = total ;
+    } // end of method prune
+
+} // end of class ParseCache
@@ -0,0 +1,201 @@
+// Generated by GrammarCompiler from grammar.txt; edit that and run make, not this.
+
+/**
+ *
+ * The LL(1) tables TableParser runs on, for the grammar in grammar.txt.
+ *
+ * The predict table came from these FIRST and FOLLOW sets:
+ *
+ *   <statementPart>   FIRST  { begin }
+ *                     FOLLOW { EOF }
+ *   <statementList>   FIRST  { call do IDENTIFIER if while for }
+ *                     FOLLOW { end else until }
+ *   StatementRest     FIRST  { ; } (can be empty)
+ *                     FOLLOW { end else until }
+ *   <statement>       FIRST  { call do IDENTIFIER if while for }
+ *                     FOLLOW { end else ; until }
+ *   <assignment>      FIRST  { IDENTIFIER }
+ *                     FOLLOW { end else ) ; until }
+ *   AssignedValue     FIRST  { IDENTIFIER ( NUMBER STRING }
+ *                     FOLLOW { end else ) ; until }
+ *   <ifStatement>     FIRST  { if }
+ *                     FOLLOW { end else ; until }
+ *   ElsePart          FIRST  { else } (can be empty)
+ *                     FOLLOW { end }
+ *   <whileStatement>  FIRST  { while }
+ *                     FOLLOW { end else ; until }
+ *   <procedure>       FIRST  { call }
+ *                     FOLLOW { end else ; until }
+ *   <untilStatement>  FIRST  { do }
+ *                     FOLLOW { end else ; until }
+ *   <forStatement>    FIRST  { for }
+ *                     FOLLOW { end else ; until }
+ *   <argumentList>    FIRST  { IDENTIFIER }
+ *                     FOLLOW { ) }
+ *   ArgumentRest      FIRST  { , } (can be empty)
+ *                     FOLLOW { ) }
+ *   <condition>       FIRST  { IDENTIFIER }
+ *                     FOLLOW { end else loop ; then until }
+ *   ConditionValue    FIRST  { IDENTIFIER NUMBER STRING }
+ *                     FOLLOW { end else loop ; then until }
+ *   <conditionOp>     FIRST  { = >= > <= < /= }
+ *                     FOLLOW { IDENTIFIER NUMBER STRING }
+ *   <expression>      FIRST  { IDENTIFIER ( NUMBER }
+ *                     FOLLOW { end else ) ; until }
+ *   ExpressionRest    FIRST  { - + } (can be empty)
+ *                     FOLLOW { end else ) ; until }
+ *   <term>            FIRST  { IDENTIFIER ( NUMBER }
+ *                     FOLLOW { end else - + ) ; until }
+ *   TermRest          FIRST  { / * } (can be empty)
+ *                     FOLLOW { end else - + ) ; until }
+ *   <factor>          FIRST  { IDENTIFIER ( NUMBER }
+ *                     FOLLOW { / end else - + ) ; * until }
+ *
+ **/
+
+final class ParseTable
+{
+    /** Nonterminals are numbered from here up in SYMBOLS; Token symbols are below. */
+    static final int NONTERMINAL = 64 ;
+    /** FLAGS: an error inside the symbol is recovered from in its list; the terminal ends a statement's header. */
+    static final int RECOVER = 1, HEADER_END = 2 ;
+
+    /** Each nonterminal's name, reported in the trace if it is in angle brackets. */
+    static final String[] NAMES = {
+        "<statementPart>", "<statementList>", "StatementRest", "<statement>", "<assignment>", "AssignedValue",
+        "<ifStatement>", "ElsePart", "<whileStatement>", "<procedure>", "<untilStatement>", "<forStatement>",
+        "<argumentList>", "ArgumentRest", "<condition>", "ConditionValue", "<conditionOp>", "<expression>",
+        "ExpressionRest", "<term>", "TermRest", "<factor>"
+    } ;
+    /** The context added to an error anywhere inside each nonterminal, as an index into TEXTS, or -1. */
+    static final int[] WRAP = {
+        -1, -1, -1, 0, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+        -1, -1, -1, -1, -1, 4
+    } ;
+    /** The message when no alternative of each nonterminal fits the next token, or -1 if one is taken anyway. */
+    static final int[] ERROR = {
+        -1, -1, -1, 1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 2,
+        3, -1, -1, -1, -1, 5
+    } ;
+
+    /** The symbols of the productions, the start symbol first: each one's Token symbol
+        or NONTERMINAL plus its nonterminal, the context an error inside it passes out
+        through as an index into TEXTS or -1, and its flags. */
+    static final int[] SYMBOLS = {
+        64, 2, 65, 8, 67, 66, 30, 65, 68, 70, 72, 73, 74, 75, 16, 1,
+        69, 31, 81, 17, 78, 34, 65, 71, 8, 17, 9, 65, 36, 78, 23, 65,
+        8, 23, 3, 16, 20, 76, 29, 7, 65, 35, 78, 37, 20, 68, 30, 78,
+        30, 68, 29, 7, 65, 8, 23, 16, 77, 5, 76, 16, 80, 79, 16, 26,
+        31, 15, 14, 11, 25, 22, 21, 83, 82, 27, 81, 24, 81, 85, 84, 33,
+        83, 6, 83, 16, 26, 20, 81, 29
+    } ;
+    static final int[] CONTEXTS = {
+        -1, -1, 6, -1, 7, -1, -1, 6, -1, -1, -1, -1, -1, -1, -1, -1,
+        -1, -1, 4, -1, 8, -1, 6, -1, -1, -1, -1, 6, -1, 8, -1, 6,
+        -1, -1, -1, -1, -1, 9, -1, -1, 6, -1, 8, -1, -1, 10, -1, 8,
+        -1, 10, -1, -1, 6, -1, -1, -1, -1, -1, 9, -1, 11, -1, -1, -1,
+        -1, -1, -1, -1, -1, -1, -1, 12, -1, -1, 12, -1, 12, 13, -1, -1,
+        13, -1, 13, -1, -1, -1, -1, -1
+    } ;
+    static final int[] FLAGS = {
+        0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0, 2, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0
+    } ;
+    static final int START = 0 ;
+
+    /** Each production's symbols, as indices into SYMBOLS. */
+    static final int[][] PRODUCTIONS = {
+        { 1, 2, 3 },    // <statementPart> ::= beginSymbol <statementList> endSymbol
+        { 4, 5 },    // <statementList> ::= <statement> StatementRest
+        { 6, 7 },    // StatementRest ::= semicolonSymbol <statementList>
+        {},    // StatementRest ::= empty
+        { 8 },    // <statement> ::= <assignment>
+        { 9 },    // <statement> ::= <ifStatement>
+        { 10 },    // <statement> ::= <whileStatement>
+        { 11 },    // <statement> ::= <procedure>
+        { 12 },    // <statement> ::= <untilStatement>
+        { 13 },    // <statement> ::= <forStatement>
+        { 14, 15, 16 },    // <assignment> ::= identifier becomesSymbol AssignedValue
+        { 17 },    // AssignedValue ::= stringConstant
+        { 18 },    // AssignedValue ::= <expression>
+        { 19, 20, 21, 22, 23, 24, 25 },    // <ifStatement> ::= ifSymbol <condition> thenSymbol <statementList> ElsePart endSymbol ifSymbol
+        { 26, 27 },    // ElsePart ::= elseSymbol <statementList>
+        {},    // ElsePart ::= empty
+        { 28, 29, 30, 31, 32, 33 },    // <whileStatement> ::= whileSymbol <condition> loopSymbol <statementList> endSymbol loopSymbol
+        { 34, 35, 36, 37, 38 },    // <procedure> ::= callSymbol identifier leftParenthesis <argumentList> rightParenthesis
+        { 39, 40, 41, 42 },    // <untilStatement> ::= doSymbol <statementList> untilSymbol <condition>
+        { 43, 44, 45, 46, 47, 48, 49, 50, 51, 52, 53, 54 },    // <forStatement> ::= forSymbol leftParenthesis <assignment> semicolonSymbol <condition> semicolonSymbol <assignment> rightParenthesis doSymbol <statementList> endSymbol loopSymbol
+        { 55, 56 },    // <argumentList> ::= identifier ArgumentRest
+        { 57, 58 },    // ArgumentRest ::= commaSymbol <argumentList>
+        {},    // ArgumentRest ::= empty
+        { 59, 60, 61 },    // <condition> ::= identifier <conditionOp> ConditionValue
+        { 62 },    // ConditionValue ::= identifier
+        { 63 },    // ConditionValue ::= numberConstant
+        { 64 },    // ConditionValue ::= stringConstant
+        { 65 },    // <conditionOp> ::= greaterThanSymbol
+        { 66 },    // <conditionOp> ::= greaterEqualSymbol
+        { 67 },    // <conditionOp> ::= equalSymbol
+        { 68 },    // <conditionOp> ::= notEqualSymbol
+        { 69 },    // <conditionOp> ::= lessThanSymbol
+        { 70 },    // <conditionOp> ::= lessEqualSymbol
+        { 71, 72 },    // <expression> ::= <term> ExpressionRest
+        { 73, 74 },    // ExpressionRest ::= plusSymbol <expression>
+        { 75, 76 },    // ExpressionRest ::= minusSymbol <expression>
+        {},    // ExpressionRest ::= empty
+        { 77, 78 },    // <term> ::= <factor> TermRest
+        { 79, 80 },    // TermRest ::= timesSymbol <term>
+        { 81, 82 },    // TermRest ::= divideSymbol <term>
+        {},    // TermRest ::= empty
+        { 83 },    // <factor> ::= identifier
+        { 84 },    // <factor> ::= numberConstant
+        { 85, 86, 87 },    // <factor> ::= leftParenthesis <expression> rightParenthesis
+    } ;
+
+    /** The production to expand each nonterminal with for each next Token symbol, or -1 for an error. */
+    static final int[][] PREDICT = {
+        { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 },    // <statementPart>
+        { 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1 },    // <statementList>
+        { 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 2, 3, 3, 3, 3, 3, 3, 3 },    // StatementRest
+        { -1, -1, -1, 7, -1, -1, -1, 8, -1, -1, -1, -1, -1, -1, -1, -1, 4, 5, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 6, 9 },    // <statement>
+        { 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10 },    // <assignment>
+        { 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 11, 12, 12, 12, 12, 12, 12 },    // AssignedValue
+        { 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13, 13 },    // <ifStatement>
+        { 15, 15, 15, 15, 15, 15, 15, 15, 15, 14, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15 },    // ElsePart
+        { 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16, 16 },    // <whileStatement>
+        { 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17 },    // <procedure>
+        { 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18, 18 },    // <untilStatement>
+        { 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19, 19 },    // <forStatement>
+        { 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20, 20 },    // <argumentList>
+        { 22, 22, 22, 22, 22, 21, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22, 22 },    // ArgumentRest
+        { 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23, 23 },    // <condition>
+        { -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 24, -1, -1, -1, -1, -1, -1, -1, -1, -1, 25, -1, -1, -1, -1, 26, -1, -1, -1, -1, -1, -1 },    // ConditionValue
+        { -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 29, -1, -1, 28, 27, -1, -1, -1, -1, -1, 32, 31, -1, -1, 30, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1 },    // <conditionOp>
+        { 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33, 33 },    // <expression>
+        { 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36, 35, 36, 36, 34, 36, 36, 36, 36, 36, 36, 36, 36, 36, 36 },    // ExpressionRest
+        { 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37, 37 },    // <term>
+        { 40, 40, 40, 40, 40, 40, 39, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 38, 40, 40, 40, 40 },    // TermRest
+        { -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 41, -1, -1, -1, 43, -1, -1, -1, -1, -1, 42, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1 },    // <factor>
+    } ;
+
+    static final String[] TEXTS = {
+        "assignment(), ifStatement(),  whileStatement(), procedure(), untilStatement() or forStatement()",
+        "Error! Expected <assignment statement>, <if statement>,  <while statement>, <procedure statement>, <until statement> or <for statement>, but got a token that is ",
+        "Error! Expected IDENTIFIER, NUMBERCONSTANT or STRINGCONSTANT, but got a token that is ",
+        "Error! Expected > | >= | = | /= | < | <=, but got a token that is ",
+        "expression()",
+        "Error! Expected IDENTIFIER, NUMBER or (expression), while token is ",
+        "statementList()",
+        "statement()",
+        "condition()",
+        "argumentList()",
+        "assignment()",
+        "conditionOp()",
+        "term()",
+        "factor()"
+    } ;
+
+} // end of class ParseTable
@@ -0,0 +1,299 @@
+
+/**
+ *
+ * An EventSink that builds the concrete syntax tree of a parse, e.g.
+ *
+ *   ParseTree tree = new ParseTree() ;
+ *   syn.parse( errors, tree ) ;
+ *
+ * Nothing is allocated per node: the tree lives in parallel int arrays
+ * indexed by node number, holding each node's kind, parent, first child,
+ * next sibling and token, and the tokens in parallel arrays indexed by
+ * token number, in the order they were accepted.  A nonterminal's kind
+ * is a number standing for its name, see name(int); a terminal's is its
+ * symbol, a class constant from Token.  Token texts are interned, so a
+ * repeated spelling is one shared String.  Missing links are -1.
+ *
+ * Nodes are numbered in document order, so a node's descendants are the
+ * nodes from it up to subtreeEnd(node), and every node can be visited by
+ * counting from 0 to size().  walk() visits them with a Visitor in
+ * constant space, however deeply the tree is nested.  A tree can be
+ * reset() and reused for another parse, keeping its arrays.
+ *
+ * A parse that stops at a syntax error leaves the nonterminals it was
+ * in unfinished; their nodes are kept, holding what was parsed.
+ *
+ **/
+
+import java.util.* ;
+
+public class ParseTree implements EventSink
+{
+    /** Set in a nonterminal's kind until it is finished. */
+    private static final int OPEN = 1 << 30 ;
+
+    /* One entry per node. */
+    private int[] kinds = new int[256] ;
+    private int[] parents = new int[256] ;
+    private int[] firstChildren = new int[256] ;
+    private int[] nextSiblings = new int[256] ;
+    /** The terminal's token, or -1 for a nonterminal. */
+    private int[] tokens = new int[256] ;
+    /** Number of nodes. */
+    private int nodes ;
+
+    /* One entry per token. */
+    private int[] symbols = new int[128] ;
+    private int[] lines = new int[128] ;
+    private String[] texts = new String[128] ;
+    /** Number of tokens. */
+    private int tokenCount ;
+    private final IdentifierTable spellings = new IdentifierTable() ;
+
+    /** Nonterminal names by kind, and kinds by name; kept across reset() so kinds stay the same. */
+    private final ArrayList<String> names = new ArrayList<String>() ;
+    private final HashMap<String, Integer> kindsByName = new HashMap<String, Integer>() ;
+
+    /** The unfinished nonterminals, innermost last. */
+    private int[] open = new int[64] ;
+    /** The last child of each of them so far, after the last top-level node at 0. */
+    private int[] lastChildren = new int[65] ;
+    private int depth ;
+    /** Was the whole input recognised? */
+    private boolean succeeded ;
+
+    /** Visits the nodes of a tree, see walk(). */
+    public interface Visitor {
+        /** Called on reaching a node, before its children.
+
+          @return true to visit the node's children, false to skip them.
+         */
+        boolean enter( ParseTree tree, int node ) ;
+
+        /** Called on leaving a node, after its children. */
+        default void leave( ParseTree tree, int node ) {
+        } // end of method leave
+    } // end of interface Visitor
+
+    /** Creates an empty tree, to be built by passing it to a parse. */
+    public ParseTree() {
+        lastChildren[0] = -1 ;
+    } // end of constructor method
+
+    /** Empties the tree for another parse, keeping the space it has. */
+    public void reset() {
+        nodes = 0 ;
+        Arrays.fill( texts, 0, tokenCount, null ) ;
+        tokenCount = 0 ;
+        depth = 0 ;
+        lastChildren[0] = -1 ;
+        succeeded = false ;
+    } // end of method reset
+
+    public void insertTerminal( int symbol, CharSequence text, int lineNumber ) {
+        if( tokenCount == symbols.length ) {
+            int capacity = 2 * tokenCount ;
+            symbols = Arrays.copyOf( symbols, capacity ) ;
+            lines = Arrays.copyOf( lines, capacity ) ;
+            texts = Arrays.copyOf( texts, capacity ) ;
+        }
+        symbols[tokenCount] = symbol ;
+        lines[tokenCount] = lineNumber ;
+        texts[tokenCount] = spellings.intern( text ) ;
+        add( symbol, tokenCount++ ) ;
+    } // end of method insertTerminal
+
+    public void commenceNonterminal( String name ) {
+        Integer kind = kindsByName.get( name ) ;
+        if( kind == null ) {
+            kind = names.size() ;
+            names.add( name ) ;
+            kindsByName.put( name, kind ) ;
+        }
+        int n = add( kind | OPEN, -1 ) ;
+        if( depth == open.length ) {
+            open = Arrays.copyOf( open, 2 * depth ) ;
+            lastChildren = Arrays.copyOf( lastChildren, 2 * depth + 1 ) ;
+        }
+        open[depth++] = n ;
+        lastChildren[depth] = -1 ;
+    } // end of method commenceNonterminal
+
+    public void finishNonterminal( String name ) {
+        if( depth > 0 )
+            kinds[open[--depth]] &= ~OPEN ;
+    } // end of method finishNonterminal
+
+    public void reportSuccess() {
+        succeeded = true ;
+    } // end of method reportSuccess
+
+    public void flush() {
+    } // end of method flush
+
+    /** Adds a node as the last child of the innermost unfinished nonterminal. */
+    private int add( int kind, int token ) {
+        if( nodes == kinds.length ) {
+            int capacity = 2 * nodes ;
+            kinds = Arrays.copyOf( kinds, capacity ) ;
+            parents = Arrays.copyOf( parents, capacity ) ;
+            firstChildren = Arrays.copyOf( firstChildren, capacity ) ;
+            nextSiblings = Arrays.copyOf( nextSiblings, capacity ) ;
+            tokens = Arrays.copyOf( tokens, capacity ) ;
+        }
+        int n = nodes++ ;
+        kinds[n] = kind ;
+        tokens[n] = token ;
+        firstChildren[n] = -1 ;
+        nextSiblings[n] = -1 ;
+        parents[n] = (depth == 0) ? -1 : open[depth - 1] ;
+        int previous = lastChildren[depth] ;
+        if( previous >= 0 )
+            nextSiblings[previous] = n ;
+        else if( depth > 0 )
+            firstChildren[parents[n]] = n ;
+        lastChildren[depth] = n ;
+        return n ;
+    } // end of method add
+
+    /** @return the number of nodes. */
+    public int size() {
+        return nodes ;
+    } // end of method size
+
+    /** @return the first top-level node, normally the <statement part>, or -1 if the tree is empty. */
+    public int root() {
+        return (nodes == 0) ? -1 : 0 ;
+    } // end of method root
+
+    /** @return true if the parse recognised the whole input. */
+    public boolean succeeded() {
+        return succeeded ;
+    } // end of method succeeded
+
+    /** @return the node's kind: its symbol if it is a terminal, else the number of its name. */
+    public int kind( int node ) {
+        return kinds[node] & ~OPEN ;
+    } // end of method kind
+
+    public int parent( int node ) {
+        return parents[node] ;
+    } // end of method parent
+
+    public int firstChild( int node ) {
+        return firstChildren[node] ;
+    } // end of method firstChild
+
+    public int nextSibling( int node ) {
+        return nextSiblings[node] ;
+    } // end of method nextSibling
+
+    /** @return the terminal's token, or -1 if the node is a nonterminal. */
+    public int token( int node ) {
+        return tokens[node] ;
+    } // end of method token
+
+    public boolean isTerminal( int node ) {
+        return tokens[node] >= 0 ;
+    } // end of method isTerminal
+
+    /** @return false for a nonterminal the parse stopped inside. */
+    public boolean isFinished( int node ) {
+        return (kinds[node] & OPEN) == 0 ;
+    } // end of method isFinished
+
+    /** @return the nonterminal's name, e.g. "<statement>", or the terminal's symbol name. */
+    public String name( int node ) {
+        return isTerminal( node ) ? Token.getName( kinds[node] ) : names.get( kind( node ) ) ;
+    } // end of method name
+
+    /** @return the nonterminal kind with the given name, or -1 if no parse has used it yet. */
+    public int kindOf( String name ) {
+        Integer kind = kindsByName.get( name ) ;
+        return (kind == null) ? -1 : kind ;
+    } // end of method kindOf
+
+    /** @return the node just past the node's descendants, or size() if there is none. */
+    public int subtreeEnd( int node ) {
+        for( int n = node; n >= 0; n = parents[n] )
+            if( nextSiblings[n] >= 0 )
+                return nextSiblings[n] ;
+        return nodes ;
+    } // end of method subtreeEnd
+
+    /** @return the number of tokens. */
+    public int tokenCount() {
+        return tokenCount ;
+    } // end of method tokenCount
+
+    /** @return the token's symbol, a class constant from Token. */
+    public int tokenSymbol( int token ) {
+        return symbols[token] ;
+    } // end of method tokenSymbol
+
+    public String tokenText( int token ) {
+        return texts[token] ;
+    } // end of method tokenText
+
+    public int tokenLine( int token ) {
+        return lines[token] ;
+    } // end of method tokenLine
+
+    /** Visits a node and its descendants in document order, without recursion.
+
+      @param node Where to start.
+      @param visitor Told about each node as it is reached and left.
+     */
+    public void walk( int node, Visitor visitor ) {
+        int n = node ;
+        while( true ) {
+            if( visitor.enter( this, n ) && (firstChildren[n] >= 0) ) {
+                n = firstChildren[n] ;
+                continue ;
+            }
+            while( true ) {
+                visitor.leave( this, n ) ;
+                if( n == node )
+                    return ;
+                if( nextSiblings[n] >= 0 ) {
+                    n = nextSiblings[n] ;
+                    break ;
+                }
+                n = parents[n] ;
+            }
+        }
+    } // end of method walk
+
+    /** Visits every node in document order, without recursion. */
+    public void walk( Visitor visitor ) {
+        for( int n = root(); n >= 0; n = nextSiblings[n] )
+            walk( n, visitor ) ;
+    } // end of method walk
+
+    /** Reports the parse events the tree was built from again, e.g. to a
+      TextEventSink to get the 312 trace.
+
+      @param sink Where the events go; flushed afterwards.
+     */
+    public void replay( final EventSink sink ) {
+        walk( new Visitor() {
+            public boolean enter( ParseTree tree, int n ) {
+                int t = tokens[n] ;
+                if( t >= 0 )
+                    sink.insertTerminal( symbols[t], texts[t], lines[t] ) ;
+                else
+                    sink.commenceNonterminal( names.get( kind( n ) ) ) ;
+                return true ;
+            }
+
+            public void leave( ParseTree tree, int n ) {
+                if( (tokens[n] < 0) && isFinished( n ) )
+                    sink.finishNonterminal( names.get( kind( n ) ) ) ;
+            }
+        } ) ;
+        if( succeeded )
+            sink.reportSuccess() ;
+        sink.flush() ;
+    } // end of method replay
+
+} // end of class ParseTree
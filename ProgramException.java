@@ -0,0 +1,21 @@
+
+/**
+ *
+ * An error found while running a program rather than compiling it, e.g.
+ * dividing by zero or adding a string.
+ *
+ **/
+
+public class ProgramException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L ;
+
+    /** Line of the statement that failed, counted as the trace counts them. */
+    public final int lineNumber ;
+
+    public ProgramException( String message, int lineNumber ) {
+        super( message + " on line " + lineNumber, null, true, false ) ;
+        this.lineNumber = lineNumber ;
+    } // end of constructor method
+
+} // end of class ProgramException
@@ -0,0 +1,50 @@
+
+/**
+ *
+ * Where a running program's call get and call put go.
+ *
+ * A program's values are numbers or strings: get reads one value for
+ * each of its arguments, a number if it looks like one and a string
+ * otherwise, and put writes one line holding its arguments' values
+ * separated by spaces.  Streams reads and writes text streams; a test
+ * can give it a StringReader and a buffer to run a program headlessly.
+ *
+ **/
+
+import java.io.* ;
+
+public interface ProgramIO
+{
+    /** Reads the next input value.
+
+      @throws IOException in the event that the input cannot be read.
+      @return the value's text, or null if the input has run out.
+     */
+    String get() throws IOException ;
+
+    /** Writes one line of output. */
+    void put( String line ) throws IOException ;
+
+    /** Reads whitespace-separated values from a Reader and writes lines to a PrintStream. */
+    public static class Streams implements ProgramIO {
+        private final StreamTokenizer in ;
+        private final PrintStream out ;
+
+        public Streams( Reader in, PrintStream out ) {
+            this.in = new StreamTokenizer( new BufferedReader( in ) ) ;
+            this.in.resetSyntax() ;
+            this.in.wordChars( '!', 0xFFFF ) ;
+            this.in.whitespaceChars( 0, ' ' ) ;
+            this.out = out ;
+        } // end of constructor method
+
+        public String get() throws IOException {
+            return (in.nextToken() == StreamTokenizer.TT_EOF) ? null : in.sval ;
+        } // end of method get
+
+        public void put( String line ) {
+            out.println( line ) ;
+        } // end of method put
+    } // end of class Streams
+
+} // end of interface ProgramIO
@@ -0,0 +1,201 @@
+
+/**
+ *
+ * Splits one input stream into a sequence of programs.
+ *
+ * Two framings are understood:
+ *   separated       - programs are separated by the ASCII record separator
+ *                     (0x1E); one after the last program is optional.
+ *   length prefixed - each program is preceded by a line holding its length
+ *                     in bytes as a decimal number.
+ * Text is decoded in the platform's default charset, as files are.  Each
+ * program is handed out as a Reader and the input is only read as far as
+ * that Reader is, so memory use does not depend on the size of a program
+ * or of the stream.
+ *
+ **/
+
+import java.io.* ;
+import java.nio.channels.* ;
+
+public class ProgramStream implements Closeable
+{
+    /** The character separating programs in a separated stream. */
+    public static final char SEPARATOR = '\u001E' ;
+
+    /** The raw input. */
+    private final InputStream in ;
+    /** Is each program preceded by its length rather than followed by a separator? */
+    private final boolean lengthPrefixed ;
+
+    /** Separated streams: the whole input decoded, and a window onto it. */
+    private Reader text ;
+    private final char[] window = new char[8192] ;
+    private int position, limit ;
+    /** Separated streams: has the input run out? */
+    private boolean exhausted ;
+
+    /** The program being read, or null before the first. */
+    private Reader current ;
+    /** Number of programs handed out so far. */
+    private int count ;
+
+    /** Reads programs from a byte stream.
+
+      @param in The input.
+      @param lengthPrefixed true if each program is preceded by its length, false if they are separated.
+     */
+    public ProgramStream( InputStream in, boolean lengthPrefixed ) {
+        this.in = new BufferedInputStream( in ) ;
+        this.lengthPrefixed = lengthPrefixed ;
+        if( !lengthPrefixed )
+            text = new InputStreamReader( this.in ) ;
+    } // end of constructor method
+
+    /** Reads programs from a channel, e.g. a pipe or socket.
+
+      @param channel The input.
+      @param lengthPrefixed true if each program is preceded by its length, false if they are separated.
+     */
+    public ProgramStream( ReadableByteChannel channel, boolean lengthPrefixed ) {
+        this( Channels.newInputStream( channel ), lengthPrefixed ) ;
+    } // end of constructor method
+
+    /** Moves on to the next program, skipping whatever was not read of the current one.
+
+      @throws IOException in the event that the input cannot be read, or a length is malformed.
+      @return a Reader over the next program's text, or null if there are no more.
+     */
+    public Reader next() throws IOException {
+        if( current != null )
+            while( current.skip( Long.MAX_VALUE ) > 0 )
+                ;
+        current = lengthPrefixed ? nextPrefixed() : nextSeparated() ;
+        if( current != null )
+            count++ ;
+        return current ;
+    } // end of method next
+
+    /** @return the number of programs handed out by next() so far. */
+    public int count() {
+        return count ;
+    } // end of method count
+
+    public void close() throws IOException {
+        in.close() ;
+    } // end of method close
+
+    private Reader nextSeparated() throws IOException {
+        if( (position == limit) && !fill() )
+            return null ;
+        return new Record() ;
+    } // end of method nextSeparated
+
+    /** Reads more decoded text into the window, returning false at the end of the input. */
+    private boolean fill() throws IOException {
+        if( exhausted )
+            return false ;
+        int n ;
+        do
+            n = text.read( window, 0, window.length ) ;
+        while( n == 0 ) ;
+        if( n < 0 ) {
+            exhausted = true ;
+            return false ;
+        }
+        position = 0 ;
+        limit = n ;
+        return true ;
+    } // end of method fill
+
+    /** One program of a separated stream: the text up to the next separator. */
+    private class Record extends Reader {
+
+        /** Has the separator ending this program been reached? */
+        private boolean ended ;
+
+        public int read( char[] buf, int off, int len ) throws IOException {
+            if( ended || (len == 0) )
+                return ended ? -1 : 0 ;
+            if( (position == limit) && !fill() ) {
+                ended = true ;
+                return -1 ;
+            }
+            int n = 0 ;
+            while( (n < len) && (position < limit) ) {
+                char c = window[position++] ;
+                if( c == SEPARATOR ) {
+                    ended = true ;
+                    break ;
+                }
+                buf[off + n++] = c ;
+            }
+            if( ended && (n == 0) )
+                return -1 ;
+            return n ;
+        } // end of method read
+
+        public void close() {
+        } // end of method close
+
+    } // end of class Record
+
+    private Reader nextPrefixed() throws IOException {
+        long length = 0 ;
+        int digits = 0 ;
+        int b = in.read() ;
+        if( b < 0 )
+            return null ;
+        for( ; (b >= '0') && (b <= '9'); b = in.read() ) {
+            length = 10 * length + (b - '0') ;
+            digits++ ;
+        }
+        if( b == '\r' )
+            b = in.read() ;
+        if( (digits == 0) || (digits > 18) || (b != '\n') )
+            throw new IOException( "malformed length before program " + (count + 1) ) ;
+        return new InputStreamReader( new Bounded( length ) ) ;
+    } // end of method nextPrefixed
+
+    /** One program of a length prefixed stream: the given number of bytes. */
+    private class Bounded extends InputStream {
+
+        /** Bytes of the program not read yet. */
+        private long remaining ;
+
+        Bounded( long length ) {
+            remaining = length ;
+        } // end of constructor method
+
+        public int read() throws IOException {
+            if( remaining == 0 )
+                return -1 ;
+            int b = in.read() ;
+            if( b < 0 )
+                throw new EOFException( "input ended inside program " + count ) ;
+            remaining-- ;
+            return b ;
+        } // end of method read
+
+        public int read( byte[] buf, int off, int len ) throws IOException {
+            if( remaining == 0 )
+                return -1 ;
+            int n = in.read( buf, off, (int) Math.min( len, remaining ) ) ;
+            if( n < 0 )
+                throw new EOFException( "input ended inside program " + count ) ;
+            remaining -= n ;
+            return n ;
+        } // end of method read
+
+        public long skip( long n ) throws IOException {
+            long skipped = in.skip( Math.min( n, remaining ) ) ;
+            remaining -= skipped ;
+            return skipped ;
+        } // end of method skip
+
+        public void close() {
+        } // end of method close
+
+    } // end of class Bounded
+
+} // end of class ProgramStream
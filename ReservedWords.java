@@ -0,0 +1,105 @@
+
+/**
+ *
+ * Recognises the language's reserved words.
+ *
+ * The words are held in a character trie over the letters a-z, so the
+ * scanner can walk it one character at a time while it reads an
+ * identifier: no String is built, nothing is allocated and case is
+ * folded as it goes.  The trie is built once and never changes, so it is
+ * shared by every LexicalAnalyser.
+ *
+ **/
+
+final class ReservedWords
+{
+    /** The state that cannot lead to a reserved word. */
+    static final int NONE = 0 ;
+    /** The state before any character has been read. */
+    static final int START = 1 ;
+
+    /** Number of distinct (case-folded) letters. */
+    private static final int LETTERS = 26 ;
+    /** Room for every state; the words below need 72. */
+    private static final int MAX_STATES = 128 ;
+
+    /** next[state * LETTERS + letter] is the following state, or NONE. */
+    private static final int[] next = new int[MAX_STATES * LETTERS] ;
+    /** The Token symbol a state accepts, or 0 when it is not the end of a word. */
+    private static final int[] symbol = new int[MAX_STATES] ;
+    /** The canonical spelling of the word a state accepts. */
+    private static final String[] text = new String[MAX_STATES] ;
+    /** Number of states in use, including NONE; only changed while the class initialises. */
+    private static int states = START + 1 ;
+
+    static
+    {
+        add("begin", Token.beginSymbol) ;
+        add("call", Token.callSymbol) ;
+        add("do", Token.doSymbol) ;
+        add("else", Token.elseSymbol) ;
+        add("end", Token.endSymbol) ;
+        add("float", Token.floatSymbol) ;
+        add("if", Token.ifSymbol) ;
+        add("integer", Token.integerSymbol) ;
+        add("is", Token.isSymbol) ;
+        add("loop", Token.loopSymbol) ;
+        add("procedure", Token.procedureSymbol) ;
+        add("string", Token.stringSymbol) ;
+        add("then", Token.thenSymbol) ;
+        add("until", Token.untilSymbol) ;
+        add("while", Token.whileSymbol) ;
+        add("for", Token.forSymbol) ;
+    }
+
+    private ReservedWords()
+    {
+    }
+
+    /** Adds a reserved word to the trie.
+
+      @param t The word in lower case.
+      @param s The type of this word, a class constant from Token.
+     */
+    private static void add(String t, int s)
+    {
+        int state = START ;
+        for (int i = 0; i < t.length(); i++)
+        {
+            int slot = state * LETTERS + (t.charAt(i) - 'a') ;
+            if (next[slot] == NONE)
+                next[slot] = states++ ;
+            state = next[slot] ;
+        }
+        symbol[state] = s ;
+        text[state] = t ;
+    } // end of method add
+
+    /** Moves the trie on by one character of an identifier.
+
+      @param state The current state, START for the first character.
+      @param c The next character, in any case.
+      @return The following state, or NONE if no reserved word continues this way.
+     */
+    static int next(int state, char c)
+    {
+        if ((c >= 'A') && (c <= 'Z'))
+            c += 'a' - 'A' ;
+        else if ((c < 'a') || (c > 'z'))
+            return NONE ;
+        return next[state * LETTERS + (c - 'a')] ;
+    } // end of method next
+
+    /** @return the Token symbol of the word ending in this state, or 0 if it is not a reserved word. */
+    static int symbol(int state)
+    {
+        return symbol[state] ;
+    } // end of method symbol
+
+    /** @return the lower case spelling of the word ending in this state. */
+    static String text(int state)
+    {
+        return text[state] ;
+    } // end of method text
+
+} // end of class ReservedWords
@@ -0,0 +1,73 @@
+
+/**
+ *
+ * Compiles a program and runs it.
+ *
+ *   java Run [-tree | -jvm] [-dump] file
+ *
+ * call get reads whitespace-separated values from standard input and call
+ * put writes lines to standard output.  The program is lowered to
+ * IRProgram code and interpreted, or with -tree run by TreeInterpreter
+ * straight from its parse tree, or with -jvm compiled to bytecode by
+ * JvmProgram, unless it is too large for that.  -dump lists the code on
+ * standard error first.  The exit status is 0 if the program ran, 1 if it did not
+ * compile and 2 if it went wrong while running.
+ *
+ **/
+
+import java.io.* ;
+
+public class Run
+{
+    public static void main( String[] args ) throws IOException {
+        boolean tree = false, jvm = false, dump = false ;
+        String file = null ;
+        for( String arg : args ) {
+            if( arg.equals( "-tree" ) )
+                tree = true ;
+            else if( arg.equals( "-jvm" ) )
+                jvm = true ;
+            else if( arg.equals( "-dump" ) )
+                dump = true ;
+            else if( !arg.startsWith( "-" ) && (file == null) )
+                file = arg ;
+            else
+                file = null ;
+        }
+        if( (file == null) || (tree && jvm) ) {
+            System.err.println( "usage: java Run [-tree | -jvm] [-dump] file" ) ;
+            System.exit( 1 ) ;
+        }
+        if( !new File( file ).exists() ) {
+            System.err.println( file + " does not exist" ) ;
+            System.exit( 1 ) ;
+        }
+
+        ParseTree parse = new ParseTree() ;
+        new SyntaxAnalyser( file ).parse( System.err, parse ) ;
+        ProgramIO io = new ProgramIO.Streams( new InputStreamReader( System.in ), System.out ) ;
+        try {
+            if( tree )
+                TreeInterpreter.run( parse, io ) ;
+            else {
+                IRProgram program = IRProgram.lower( parse ) ;
+                if( dump )
+                    System.err.print( program ) ;
+                JvmProgram compiled = jvm ? JvmProgram.compile( program ) : null ;
+                if( compiled != null )
+                    compiled.run( io ) ;
+                else
+                    program.run( io ) ;
+            }
+        } catch( CompilationException e ) {
+            System.err.println( file + ": " + e.getMessage() ) ;
+            System.exit( 1 ) ;
+        } catch( ProgramException e ) {
+            System.out.flush() ;
+            System.err.println( file + ": " + e.getMessage() ) ;
+            System.exit( 2 ) ;
+        }
+        System.out.flush() ;
+    } // end of main method
+
+} // end of class Run
@@ -4,6 +4,13 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
 
     private String file;
 
+    /**
+     * Number of if, while and for statements whose header (up to then, loop or do)
+     * is still being parsed, i.e. whose body and end are still ahead in the input.
+     * Lets error recovery know whether it is skipping from inside a block's header
+     */
+    private int openHeaders;
+
     /**
      * Constructor for Syntax Analyser, getting called in the Compile.java
      * Needs to invoke and initialise lexical analyser
@@ -20,21 +27,55 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
         }
     }
 
+    /**
+     * Constructor for a Syntax Analyser over tokens that have already been read
+     * 
+     * @param tokens cursor positioned before the first token to parse
+     * @param file name of the program, used in error messages
+     */
+    public SyntaxAnalyser(TokenCursor tokens, String file) {
+        this.file = file;
+        this.tokens = tokens;
+    }
+
+    /**
+     * Makes the analyser ready to parse another program, so one instance can be reused
+     * 
+     * @param tokens cursor positioned before the first token to parse
+     * @param file name of the program, used in error messages
+     */
+    public void reset(TokenCursor tokens, String file) {
+        this.file = file;
+        this.tokens = tokens;
+        this.lex = null;
+    }
+
     /**
      * Own method that implements error recovery and gives
      * - what the next erroneous token is
      * - what the parser is recognising at the moment
      * - what is the line with the actual problem
      * - file where problem occurs
+     * The context is only recorded on the exception as it passes through, and
+     * is turned into its "Error on line ..." text if toTraceString() is called,
+     * so rejecting an input does not build a new exception and message per level
+     * @param cause error coming out of the production
      * @param actualToken token that is getting parsed at the moment
-     * @param nxtToken next erroneous token
-     * @return String format line
-     * To be thrown inside CompilationException
+     * @return the same exception, to be thrown on
      */
-    private String errorMethod(String actualToken, Token nxtToken) {
-        return "Error on line " + nxtToken.lineNumber + " in " 
-        + this.file + " - Token expected: " + actualToken + " || Token accepted: " 
-        + Token.getName(nxtToken.symbol) + " !\n";
+    private CompilationException within(CompilationException cause, String actualToken) {
+        return within(cause, actualToken, 1);
+    }
+
+    /**
+     * Same as within(cause, actualToken), for an error leaving several nested levels at once
+     * @param cause error coming out of the production
+     * @param actualToken token that is getting parsed at the moment
+     * @param times how many levels it passes through
+     * @return the same exception, to be thrown on
+     */
+    private CompilationException within(CompilationException cause, String actualToken, int times) {
+        return cause.within(this.file, actualToken, tokens.lineNumber(), tokens.symbol(), times);
     }
 
     /**
@@ -46,16 +87,47 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
     @Override
     public void _statementPart_() throws IOException, CompilationException {
         myGenerate.commenceNonterminal("<statementPart>");
+        openHeaders = 0;
+        openBlocks = 0;
         acceptTerminal(Token.beginSymbol);
         try {
             statementList();
+            //IN RECOVERY MODE THE LIST GOES ON AFTER ANYTHING BUT THE END OF THE PROGRAM
+            if(recovering) {
+                while(tokens.symbol() != Token.eofSymbol) {
+                    if(acceptProgramEnd()) {
+                        myGenerate.finishNonterminal("<statementPart>");
+                        return;
+                    }
+                    if(tokens.symbol() != Token.eofSymbol) {
+                        statementList();
+                    }
+                }
+            }
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("statementList()", nextToken), cause);
+            throw within(cause, "statementList()");
         }
         acceptTerminal(Token.endSymbol);
         myGenerate.finishNonterminal("<statementPart>");
     }
 
+    /**
+     * Parses a single <statement> on its own, from the cursor's next token,
+     * leaving the cursor on the token after it. Used by IncrementalParser to
+     * parse one statement again after an edit
+     * @param events sink for the statement's events
+     * @throws IOException
+     * @throws CompilationException
+     */
+    void parseStatement(EventSink events) throws IOException, CompilationException {
+        myGenerate = new Generate();
+        myGenerate.setEventSink(events);
+        openHeaders = 0;
+        openBlocks = 0;
+        tokens.advance();
+        statement();
+    }
+
     /**
      * Function that accepts the token and gives it to the lexical analyser for processing
      * 
@@ -65,40 +137,98 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
      */
     @Override
     public void acceptTerminal(int symbol) throws IOException, CompilationException {
-        Token token = nextToken;
         //IF GIVEN SYMBOL MATCHES TOKEN SYMBOL
-        if(symbol == token.symbol) {
-            myGenerate.insertTerminal(nextToken);
-            nextToken = lex.getNextToken();
+        if(symbol == tokens.symbol()) {
+            myGenerate.insertTerminal(symbol, tokens.text(), tokens.lineNumber());
+            tokens.advance();
+            tokensRead++;
             return;
         }
-        myGenerate.reportError(nextToken, "Token that was accepted is "+ Token.getName(nextToken.symbol));
+        myGenerate.reportError(tokens.token(), "Token that was accepted is "+ Token.getName(tokens.symbol()));
     }
 
     /**
      * Statement List function
      * <statement list> ::= <statement> | <statement list> ; <statement>
+     * 
+     * Parsed with a loop rather than recursing after every ; so the stack stays
+     * flat however long the list is. The trace keeps its right-nested shape:
+     * each ; is followed by a new 312BEGIN <statementList>, and all of them are
+     * closed together after the last statement, e.g. for "s1 ; s2 ; s3"
+     * <statementList> s1 ; <statementList> s2 ; <statementList> s3 </statementList> x3
+     * Errors are wrapped once per open list, as the recursive version did.
+     * 
+     * In error recovery mode an error in a statement is recorded instead, and
+     * parsing picks up again at the next ; that belongs to this list, see recover().
+     * So is an else or until after a statement with no block open, see skipStray()
      * @throws IOException
      * @throws CompilationException
      */
     private void statementList() throws IOException, CompilationException{
         myGenerate.commenceNonterminal("<statementList>");
+        int nested = 0;
         try {
-            statement();   
+            while(true) {
+                int depth = myGenerate.openNonterminals();
+                int headers = openHeaders;
+                int blocks = openBlocks;
+                try {
+                    statement();   
+                } catch (CompilationException cause) {
+                    if(!recovering) {
+                        throw within(cause, "statement()");
+                    }
+                    recover(within(cause, "statement()"), depth, headers, blocks);
+                }
+                if(recovering) {
+                    skipStray();
+                }
+
+                //WHEN NEXT SYMBOL IS SEMICOLON
+                if(tokens.symbol() != Token.semicolonSymbol) {
+                    break;
+                }
+                acceptTerminal(Token.semicolonSymbol);
+                myGenerate.commenceNonterminal("<statementList>");
+                nested++;
+            }
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("statement()", nextToken), cause);
+            throw within(cause, "statementList()", nested);
         }
-        
-        //WHEN NEXT SYMBOL IS SEMICOLON
-        while(nextToken.symbol == Token.semicolonSymbol){
-            acceptTerminal(Token.semicolonSymbol);
-            try {
-                statementList();
-            } catch (CompilationException cause) {
-                throw new CompilationException(errorMethod("statementList()", nextToken), cause);
-            }
+        finishNonterminals("<statementList>", nested + 1);
+    }
+
+    /**
+     * Panic-mode error recovery for a statement that failed inside statementList()
+     * - records the error (unless it is a knock-on of the last one)
+     * - closes the nonterminals the failed statement left open
+     * - skips tokens until the end of the statement, see resynchronise()
+     * If the error was in the header of an if, while or for, the body and its
+     * end are still to come, so one extra end is skipped first
+     * @param cause error coming out of the statement
+     * @param depth how many nonterminals were open before the statement began
+     * @param headers value of openHeaders before the statement began
+     * @param blocks value of openBlocks before the statement began
+     * @throws IOException
+     */
+    private void recover(CompilationException cause, int depth, int headers, int blocks) throws IOException {
+        addDiagnostic(cause);
+        myGenerate.finishNonterminalsTo(depth);
+        openBlocks = blocks;
+        int unfinished = openHeaders - headers;
+        openHeaders = headers;
+        resynchronise(unfinished);
+    }
+
+    /**
+     * Closes a run of nested nonterminals that were opened by a loop
+     * @param name nonterminal to finish
+     * @param count how many are open
+     */
+    private void finishNonterminals(String name, int count) {
+        for(int i = 0; i < count; i++) {
+            myGenerate.finishNonterminal(name);
         }
-        myGenerate.finishNonterminal("<statementList>");
     }
 
     /**
@@ -112,7 +242,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
     private void statement() throws IOException, CompilationException{
         myGenerate.commenceNonterminal("<statement>");
         try {
-            switch(nextToken.symbol) {
+            switch(tokens.symbol()) {
                 case Token.identifier:
                     assignment();
                     break;
@@ -132,11 +262,11 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
                     forStatement();
                     break;
                 default:
-                    myGenerate.reportError(nextToken, "Error! Expected <assignment statement>, <if statement>,  <while statement>, <procedure statement>, <until statement> or <for statement>, but got a token that is " + Token.getName(nextToken.symbol));
+                    myGenerate.reportError(tokens.token(), "Error! Expected <assignment statement>, <if statement>,  <while statement>, <procedure statement>, <until statement> or <for statement>, but got a token that is " + Token.getName(tokens.symbol()));
                     break;
                 }
             } catch (CompilationException cause) {
-                throw new CompilationException(errorMethod("assignment(), ifStatement(),  whileStatement(), procedure(), untilStatement() or forStatement()", nextToken), cause);
+                throw within(cause, "assignment(), ifStatement(),  whileStatement(), procedure(), untilStatement() or forStatement()");
             }
         myGenerate.finishNonterminal("<statement>");
     }
@@ -152,13 +282,13 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
         acceptTerminal(Token.identifier);
         acceptTerminal(Token.becomesSymbol);
         //IF NEXT SYMBOL IS STRING CONSTANT
-        if(nextToken.symbol == Token.stringConstant) {
+        if(tokens.symbol() == Token.stringConstant) {
             acceptTerminal(Token.stringConstant);
         } else {
             try {
                 expression();
             } catch (CompilationException cause) {
-                throw new CompilationException(errorMethod("expression()", nextToken), cause);
+                throw within(cause, "expression()");
             }
         }
         myGenerate.finishNonterminal("<assignment>");
@@ -172,28 +302,32 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
      */
     private void ifStatement() throws IOException, CompilationException{
         myGenerate.commenceNonterminal("<ifStatement>");
+        openBlocks++;
+        openHeaders++;
         acceptTerminal(Token.ifSymbol);
         try {
             condition();
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("condition()", nextToken), cause);
+            throw within(cause, "condition()");
         }
         acceptTerminal(Token.thenSymbol);
+        openHeaders--;
 
         try {
             statementList();
 
             //IF NEXT SYMBOL IS ELSE
-            if(nextToken.symbol == Token.elseSymbol){
+            if(tokens.symbol() == Token.elseSymbol){
                 acceptTerminal(Token.elseSymbol);
                 statementList();
             }
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("statementList()", nextToken), cause);
+            throw within(cause, "statementList()");
         }
 
         acceptTerminal(Token.endSymbol);
         acceptTerminal(Token.ifSymbol);
+        openBlocks--;
         myGenerate.finishNonterminal("<ifStatement>");
     }
 
@@ -205,20 +339,24 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
      */
     private void whileStatement() throws IOException, CompilationException{
         myGenerate.commenceNonterminal("<whileStatement>");
+        openBlocks++;
+        openHeaders++;
         acceptTerminal(Token.whileSymbol);
         try {
             condition();  
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("condition()", nextToken), cause);
+            throw within(cause, "condition()");
         }
         acceptTerminal(Token.loopSymbol);
+        openHeaders--;
         try {
             statementList();
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("statementList()", nextToken), cause);
+            throw within(cause, "statementList()");
         }
         acceptTerminal(Token.endSymbol);
         acceptTerminal(Token.loopSymbol);
+        openBlocks--;
         myGenerate.finishNonterminal("<whileStatement>");
     }
 
@@ -236,7 +374,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
         try {
             argumentList();   
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("argumentList()", nextToken), cause);
+            throw within(cause, "argumentList()");
         }
         acceptTerminal(Token.rightParenthesis);
         myGenerate.finishNonterminal("<procedure>");
@@ -250,18 +388,20 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
      */
     private void untilStatement() throws IOException, CompilationException{
         myGenerate.commenceNonterminal("<untilStatement>");
+        openBlocks++;
         acceptTerminal(Token.doSymbol);
         try {
             statementList();   
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("statementList()", nextToken), cause);
+            throw within(cause, "statementList()");
         }
         acceptTerminal(Token.untilSymbol);
         try {
             condition();   
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("condition()", nextToken), cause);
+            throw within(cause, "condition()");
         }
+        openBlocks--;
         myGenerate.finishNonterminal("<untilStatement>");
     }
 
@@ -274,34 +414,38 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
      */
     private void forStatement() throws IOException, CompilationException{
         myGenerate.commenceNonterminal("<forStatement>");
+        openBlocks++;
+        openHeaders++;
         acceptTerminal(Token.forSymbol);
         acceptTerminal(Token.leftParenthesis);
         try {
             assignment();   
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("assignment()", nextToken), cause);
+            throw within(cause, "assignment()");
         }
         acceptTerminal(Token.semicolonSymbol);
         try {
             condition();   
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("condition()", nextToken), cause);
+            throw within(cause, "condition()");
         }
         acceptTerminal(Token.semicolonSymbol);
         try {
             assignment();   
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("assignment()", nextToken), cause);
+            throw within(cause, "assignment()");
         }
         acceptTerminal(Token.rightParenthesis);
         acceptTerminal(Token.doSymbol);
+        openHeaders--;
         try {
             statementList();  
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("statementList()", nextToken), cause);
+            throw within(cause, "statementList()");
         }
         acceptTerminal(Token.endSymbol);
         acceptTerminal(Token.loopSymbol);
+        openBlocks--;
         myGenerate.finishNonterminal("<forStatement>");
     }
 
@@ -316,12 +460,12 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
         acceptTerminal(Token.identifier);
 
         //IF NEXT SYMBOL IS COMMA
-        if(nextToken.symbol == Token.commaSymbol){
+        if(tokens.symbol() == Token.commaSymbol){
             acceptTerminal(Token.commaSymbol);
             try {
                 argumentList();  
             } catch (CompilationException cause) {
-                throw new CompilationException(errorMethod("argumentList()", nextToken), cause);
+                throw within(cause, "argumentList()");
             }
         }
         myGenerate.finishNonterminal("<argumentList>");
@@ -342,10 +486,10 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
         try {
             conditionOp();
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("conditionOp()", nextToken), cause);
+            throw within(cause, "conditionOp()");
         }
 
-        switch (nextToken.symbol) {
+        switch (tokens.symbol()) {
             case Token.identifier:
                 acceptTerminal(Token.identifier);
                 break;
@@ -356,7 +500,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
                 acceptTerminal(Token.stringConstant);
                 break;
             default:
-                myGenerate.reportError(nextToken, "Error! Expected IDENTIFIER, NUMBERCONSTANT or STRINGCONSTANT, but got a token that is " + Token.getName(nextToken.symbol));
+                myGenerate.reportError(tokens.token(), "Error! Expected IDENTIFIER, NUMBERCONSTANT or STRINGCONSTANT, but got a token that is " + Token.getName(tokens.symbol()));
                 break;
         }
         myGenerate.finishNonterminal("<condition>");
@@ -370,7 +514,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
      */
     private void conditionOp() throws IOException, CompilationException{
         myGenerate.commenceNonterminal("<conditionOp>");
-        switch(nextToken.symbol){
+        switch(tokens.symbol()){
             case Token.greaterThanSymbol:
                 acceptTerminal(Token.greaterThanSymbol);
                 break;
@@ -390,7 +534,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
                 acceptTerminal(Token.lessEqualSymbol);
                 break;
             default:
-                myGenerate.reportError(nextToken, "Error! Expected > | >= | = | /= | < | <=, but got a token that is " + Token.getName(nextToken.symbol));
+                myGenerate.reportError(tokens.token(), "Error! Expected > | >= | = | /= | < | <=, but got a token that is " + Token.getName(tokens.symbol()));
                 break;
         }
         myGenerate.finishNonterminal("<conditionOp>");
@@ -401,47 +545,63 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
      * <expression> ::= <term> |
         <expression> + <term> |
         <expression> - <term>
+     * 
+     * Parsed with a loop, not by recursing after every + or -. The trace keeps
+     * its right-nested shape: each operator is followed by a new
+     * 312BEGIN <expression> holding the rest, and all of them are closed
+     * together at the end, e.g. for "a + b - c"
+     * <expression> a + <expression> b - <expression> c </expression> x3
+     * Errors are wrapped once per open expression, as the recursive version did.
      * @throws IOException
      * @throws CompilationException
      */
     private void expression() throws IOException, CompilationException{
         myGenerate.commenceNonterminal("<expression>");
+        int nested = 0;
         try {
             term();
 
             // WHEN NEXT SYMBOL IS EITHER PLUS OR MINUS
-            while(nextToken.symbol == Token.plusSymbol 
-            || nextToken.symbol == Token.minusSymbol){
-                acceptTerminal(nextToken.symbol);
-                expression();
+            while(tokens.symbol() == Token.plusSymbol 
+            || tokens.symbol() == Token.minusSymbol){
+                acceptTerminal(tokens.symbol());
+                myGenerate.commenceNonterminal("<expression>");
+                nested++;
+                term();
             }
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("term()", nextToken), cause);
+            throw within(cause, "term()", nested + 1);
         }
-        myGenerate.finishNonterminal("<expression>");
+        finishNonterminals("<expression>", nested + 1);
     }
 
     /**
      * Term function
      * <term> ::= <factor> | <term> * <factor> | <term> / <factor>
+     * 
+     * Parsed with a loop in the same way as expression(): each * or / opens
+     * a new 312BEGIN <term>, all closed together at the end.
      * @throws IOException
      * @throws CompilationException
      */
     private void term() throws IOException, CompilationException{
         myGenerate.commenceNonterminal("<term>");
+        int nested = 0;
         try {
             factor();
             
             // WHEN NEXT SYMBOL IS EITHER TIMES OR DIVIDE
-            while(nextToken.symbol == Token.timesSymbol 
-            || nextToken.symbol == Token.divideSymbol){
-                acceptTerminal(nextToken.symbol);
-                term();
+            while(tokens.symbol() == Token.timesSymbol 
+            || tokens.symbol() == Token.divideSymbol){
+                acceptTerminal(tokens.symbol());
+                myGenerate.commenceNonterminal("<term>");
+                nested++;
+                factor();
             }
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("factor()", nextToken), cause);
+            throw within(cause, "factor()", nested + 1);
         }
-        myGenerate.finishNonterminal("<term>");
+        finishNonterminals("<term>", nested + 1);
     }
 
     /**
@@ -453,7 +613,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
     private void factor() throws IOException, CompilationException{
         myGenerate.commenceNonterminal("<factor>");
         try {
-            switch(nextToken.symbol) {
+            switch(tokens.symbol()) {
                 case Token.identifier:
                     acceptTerminal(Token.identifier);
                     break;
@@ -465,10 +625,10 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser{
                     expression();
                     acceptTerminal(Token.rightParenthesis);
                 default:
-                    myGenerate.reportError(nextToken, "Error! Expected IDENTIFIER, NUMBER or (expression), while token is " + Token.getName(nextToken.symbol));
+                    myGenerate.reportError(tokens.token(), "Error! Expected IDENTIFIER, NUMBER or (expression), while token is " + Token.getName(tokens.symbol()));
             }
         } catch (CompilationException cause) {
-            throw new CompilationException(errorMethod("expression()", nextToken), cause);
+            throw within(cause, "expression()");
         }
         myGenerate.finishNonterminal("<factor>");
     }
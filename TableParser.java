@@ -0,0 +1,191 @@
+
+/**
+ *
+ * A table-driven LL(1) parser for the 312 language: the same language,
+ * trace and error reports as SyntaxAnalyser, from the tables GrammarCompiler
+ * builds out of grammar.txt rather than from hand-written methods.
+ *
+ * The driver keeps its own stack of the symbols still to be matched, so
+ * nesting depth is limited by memory, not by the Java stack.  Expanding a
+ * nonterminal pushes a marker for its end under its production, and the
+ * markers left on the stack are the nonterminals open at any point.  When
+ * an error unwinds, each one adds the context SyntaxAnalyser's catch
+ * clauses would, and in error recovery mode the innermost statement of a
+ * statement list records it and parsing resumes at the statement's end.
+ *
+ * It accepts a parenthesised factor, which SyntaxAnalyser never does; see
+ * grammar.txt.
+ *
+ **/
+
+import java.io.* ;
+import java.util.* ;
+
+public class TableParser extends AbstractSyntaxAnalyser
+{
+    private final String file ;
+    /** Symbols still to be matched, innermost on top: an index into ParseTable.SYMBOLS, or ~index for the end of the nonterminal expanded from there. */
+    private int[] stack = new int[64] ;
+    private int top ;
+
+    /** A parser for a file, reading it with a LexicalAnalyser.
+
+      @param file The program file to parse.
+      @throws IOException if it cannot be read.
+     */
+    public TableParser( String file ) throws IOException {
+        this.file = file ;
+        lex = new LexicalAnalyser( file ) ;
+    } // end of constructor method
+
+    /** A parser for tokens that have already been read.
+
+      @param tokens Cursor positioned before the first token to parse.
+      @param file The program's name, used in error messages.
+     */
+    public TableParser( TokenCursor tokens, String file ) {
+        this.file = file ;
+        this.tokens = tokens ;
+    } // end of constructor method
+
+    @Override
+    public void _statementPart_() throws IOException, CompilationException {
+        top = 0 ;
+        openBlocks = 0 ;
+        push( ParseTable.START ) ;
+        while( top > 0 ) {
+            try {
+                run() ;
+            } catch( CompilationException cause ) {
+                unwind( cause ) ;
+            }
+        }
+    } // end of method _statementPart_
+
+    @Override
+    public void acceptTerminal( int symbol ) throws IOException, CompilationException {
+        if( symbol == tokens.symbol() ) {
+            myGenerate.insertTerminal( symbol, tokens.text(), tokens.lineNumber() ) ;
+            tokens.advance() ;
+            tokensRead++ ;
+            return ;
+        }
+        myGenerate.reportError( tokens.token(), "Token that was accepted is " + Token.getName( tokens.symbol() ) ) ;
+    } // end of method acceptTerminal
+
+    /** Matches and expands the symbols on the stack until it is empty or there is an error. */
+    private void run() throws IOException, CompilationException {
+        while( top > 0 ) {
+            // a symbol stays on the stack until it is matched, for unwind() to see
+            int o = stack[top - 1] ;
+            if( o < 0 ) {
+                top-- ;
+                int n = ParseTable.SYMBOLS[~o] - ParseTable.NONTERMINAL ;
+                if( BLOCKS[n] )
+                    openBlocks-- ;
+                if( reported( n ) )
+                    myGenerate.finishNonterminal( ParseTable.NAMES[n] ) ;
+                if( recovering && ((ParseTable.FLAGS[~o] & ParseTable.RECOVER) != 0) )
+                    skipStray() ;
+                continue ;
+            }
+            int symbol = ParseTable.SYMBOLS[o] ;
+            if( recovering && (top == 2) && (symbol == Token.endSymbol) && (tokens.symbol() != Token.eofSymbol) ) {
+                // where the top-level list stopped, which the list may go on from, see acceptProgramEnd()
+                if( acceptProgramEnd() ) {
+                    top-- ;
+                    continue ;
+                }
+                if( tokens.symbol() != Token.eofSymbol ) {
+                    push( PROGRAM_LIST ) ;
+                    continue ;
+                }
+            }
+            if( symbol < ParseTable.NONTERMINAL ) {
+                acceptTerminal( symbol ) ;
+                top-- ;
+                continue ;
+            }
+            int n = symbol - ParseTable.NONTERMINAL ;
+            stack[top - 1] = ~o ;
+            if( BLOCKS[n] )
+                openBlocks++ ;
+            if( reported( n ) )
+                myGenerate.commenceNonterminal( ParseTable.NAMES[n] ) ;
+            int p = ParseTable.PREDICT[n][tokens.symbol()] ;
+            if( p < 0 )
+                myGenerate.reportError( tokens.token(), ParseTable.TEXTS[ParseTable.ERROR[n]] + Token.getName( tokens.symbol() ) ) ;
+            int[] production = ParseTable.PRODUCTIONS[p] ;
+            for( int i = production.length - 1; i >= 0; i-- )
+                push( production[i] ) ;
+        }
+    } // end of method run
+
+    /** Passes an error out through the open nonterminals, adding their contexts, until one
+      recovers from it.  Returns with the stack ready to carry on if one did.
+
+      @throws CompilationException if none did.
+     */
+    private void unwind( CompilationException cause ) throws IOException, CompilationException {
+        int reported = 0, headers = 0 ;
+        while( top > 0 ) {
+            int o = stack[--top] ;
+            if( o >= 0 ) {
+                if( (ParseTable.FLAGS[o] & ParseTable.HEADER_END) != 0 )
+                    headers++ ;
+                continue ;
+            }
+            o = ~o ;
+            int n = ParseTable.SYMBOLS[o] - ParseTable.NONTERMINAL ;
+            if( BLOCKS[n] )
+                openBlocks-- ;
+            if( ParseTable.WRAP[n] >= 0 )
+                within( cause, ParseTable.WRAP[n] ) ;
+            if( ParseTable.CONTEXTS[o] >= 0 )
+                within( cause, ParseTable.CONTEXTS[o] ) ;
+            if( reported( n ) )
+                reported++ ;
+            if( recovering && ((ParseTable.FLAGS[o] & ParseTable.RECOVER) != 0) ) {
+                addDiagnostic( cause ) ;
+                myGenerate.finishNonterminalsTo( myGenerate.openNonterminals() - reported ) ;
+                resynchronise( headers ) ;
+                return ;
+            }
+        }
+        throw cause ;
+    } // end of method unwind
+
+    private void within( CompilationException cause, int context ) {
+        cause.within( file, ParseTable.TEXTS[context], tokens.lineNumber(), tokens.symbol(), 1 ) ;
+    } // end of method within
+
+    /** Which nonterminals are reported in the trace: those in angle brackets. */
+    private static final boolean[] REPORTED = new boolean[ParseTable.NAMES.length] ;
+    static {
+        for( int n = 0; n < REPORTED.length; n++ )
+            REPORTED[n] = ParseTable.NAMES[n].charAt( 0 ) == '<' ;
+    }
+
+    /** Which nonterminals are the statements counted in openBlocks. */
+    private static final boolean[] BLOCKS = new boolean[ParseTable.NAMES.length] ;
+    static {
+        List<String> blocks = Arrays.asList( "<ifStatement>", "<whileStatement>", "<untilStatement>", "<forStatement>" ) ;
+        for( int n = 0; n < BLOCKS.length; n++ )
+            BLOCKS[n] = blocks.contains( ParseTable.NAMES[n] ) ;
+    }
+
+    /** The statement list of the start symbol's production, pushed again for the list to go on after an error. */
+    private static final int PROGRAM_LIST =
+        ParseTable.PRODUCTIONS[ParseTable.PREDICT[ParseTable.SYMBOLS[ParseTable.START] - ParseTable.NONTERMINAL][Token.beginSymbol]][1] ;
+
+    private static boolean reported( int nonterminal ) {
+        return REPORTED[nonterminal] ;
+    } // end of method reported
+
+    private void push( int o ) {
+        if( top == stack.length )
+            stack = Arrays.copyOf( stack, 2 * top ) ;
+        stack[top++] = o ;
+    } // end of method push
+
+} // end of class TableParser
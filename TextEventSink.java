@@ -0,0 +1,128 @@
+
+/**
+ *
+ * The default EventSink, writing the 312 trace as text.
+ *
+ * Events are formatted straight into one reusable char buffer and handed to
+ * the output in large chunks, instead of building a String and calling the
+ * synchronized, auto-flushing PrintStream.println per event.  The text is
+ * exactly what println would have written.
+ *
+ **/
+
+import java.io.* ;
+
+public class TextEventSink implements EventSink
+{
+    /** Size of the reusable event buffer, in chars. */
+    private static final int BUFFER_SIZE = 1 << 16 ;
+    /** The platform line separator println would have used. */
+    private static final String NEWLINE = System.lineSeparator() ;
+
+    /** Where the trace ends up. */
+    private final Writer out ;
+    /** Events waiting to be written. */
+    private final char[] buffer = new char[BUFFER_SIZE] ;
+    /** Number of chars held in the buffer. */
+    private int count ;
+
+    /** Creates a sink writing to the given stream in the platform's default charset.
+
+      @param os The stream to write the trace to.
+     */
+    public TextEventSink( OutputStream os ) {
+        out = new OutputStreamWriter( os ) ;
+    } // end of constructor method
+
+    public void insertTerminal( int symbol, CharSequence text, int lineNumber ) {
+        append( "312TOKEN " ) ;
+        append( Token.getName( symbol ) ) ;
+
+        if( (symbol == Token.identifier) || (symbol == Token.numberConstant) || (symbol == Token.stringConstant) ) {
+            append( " '" ) ;
+            append( text ) ;
+            append( '\'' ) ;
+        }
+
+        append( " on line " ) ;
+        append( lineNumber ) ;
+        append( NEWLINE ) ;
+    } // end of method insertTerminal
+
+    public void commenceNonterminal( String name ) {
+        append( "312BEGIN " ) ;
+        append( name ) ;
+        append( NEWLINE ) ;
+    } // end of method commenceNonterminal
+
+    public void finishNonterminal( String name ) {
+        append( "312END " ) ;
+        append( name ) ;
+        append( NEWLINE ) ;
+    } // end of method finishNonterminal
+
+    public void reportSuccess() {
+        append( "312SUCCESS" ) ;
+        append( NEWLINE ) ;
+    } // end of method reportSuccess
+
+    public void flush() {
+        try {
+            drain() ;
+            out.flush() ;
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e ) ;
+        }
+    } // end of method flush
+
+    /** Hands the buffered chars to the writer and empties the buffer. */
+    private void drain() throws IOException {
+        out.write( buffer, 0, count ) ;
+        count = 0 ;
+    } // end of method drain
+
+    /** Makes room for at least the given number of chars. */
+    private void reserve( int n ) {
+        if( buffer.length - count < n ) {
+            try {
+                drain() ;
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e ) ;
+            }
+        }
+    } // end of method reserve
+
+    private void append( char c ) {
+        reserve( 1 ) ;
+        buffer[count++] = c ;
+    } // end of method append
+
+    private void append( CharSequence s ) {
+        int length = s.length() ;
+        for( int i = 0; i < length; i++ )
+            append( s.charAt(i) ) ;
+    } // end of method append
+
+    /** Appends the decimal form of a number without going through a String. */
+    private void append( int n ) {
+        if( n < 0 ) {
+            if( n == Integer.MIN_VALUE ) {
+                append( Integer.toString(n) ) ;
+                return ;
+            }
+            append( '-' ) ;
+            n = -n ;
+        }
+
+        int digits = 1 ;
+        for( int d = n; d >= 10; d /= 10 )
+            digits++ ;
+        reserve( digits ) ;
+        for( int i = count + digits - 1; i >= count; i-- ) {
+            buffer[i] = (char)('0' + n % 10) ;
+            n /= 10 ;
+        }
+        count += digits ;
+    } // end of method append
+
+} // end of class TextEventSink
@@ -80,17 +80,32 @@ public class Token
 		lineNumber = l ;
 	} // end of constructor method
 
-	/** Constructs a new token from a StringBuffer, given type and line number.
+	/** Constructs a new token from any character sequence, given type and line number.
 
 
 	  @param s The type of symbol, typically as a class constant from Token.
 	  @param t The original string recognised from the source file.
 	  @param l The line number of the original string.
 	 */
-	public Token(int s, StringBuffer t, int l)
+	public Token(int s, CharSequence t, int l)
 	{
 		symbol = s ;
-		text = new String(t) ;
+		text = t.toString() ;
+		lineNumber = l ;
+	} // end of constructor method
+
+	/** Constructs a new token from a slice of a char buffer, given type and line number.
+
+	  @param s The type of symbol, typically as a class constant from Token.
+	  @param t The buffer holding the original string recognised from the source file.
+	  @param offset Where the string starts in the buffer.
+	  @param length The length of the string.
+	  @param l The line number of the original string.
+	 */
+	public Token(int s, char[] t, int offset, int length, int l)
+	{
+		symbol = s ;
+		text = new String(t, offset, length) ;
 		lineNumber = l ;
 	} // end of constructor method
 
@@ -0,0 +1,34 @@
+
+/**
+ *
+ * A position in a sequence of tokens, read without needing a Token object
+ * per token.
+ *
+ * The parser drives one of these: LexicalAnalyser itself scans on demand,
+ * TokenStream replays tokens that were read earlier.
+ *
+ **/
+
+import java.io.* ;
+
+public interface TokenCursor
+{
+    /** @return the symbol of the current token, a class constant from Token. */
+    int symbol() ;
+
+    /** @return the text of the current token; it may change once the cursor moves. */
+    CharSequence text() ;
+
+    /** @return the line number of the current token. */
+    int lineNumber() ;
+
+    /** @return the current token as a Token object, for when one is really needed. */
+    Token token() ;
+
+    /** Moves on to the next token; the first call moves onto the first token.
+
+      @throws IOException in the event that the tokens cannot be read.
+     */
+    void advance() throws IOException ;
+
+} // end of interface TokenCursor
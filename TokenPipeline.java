@@ -0,0 +1,232 @@
+
+/**
+ *
+ * Runs a LexicalAnalyser on a thread of its own, ahead of the parser that
+ * reads its tokens, so that reading and scanning the source overlap with
+ * parsing on a second core.
+ *
+ * The lexer thread writes each token into a bounded ring of primitive
+ * records: its symbol, its line and where its text lies in a ring of
+ * chars, or a String for the rare token too long for that.  There is one
+ * writer and one reader, so the rings need no lock: each side publishes
+ * how far it has got through a volatile count and waits while the other
+ * has not got far enough.  A full ring holds the lexer back, so memory
+ * stays the same however long the source.
+ *
+ * The parser sees what it would have seen reading the lexer directly: the
+ * same tokens, and if the source cannot be read the same exception at the
+ * same point.  close() stops the lexer thread, which may be well ahead
+ * when the parser stops early at a syntax error.
+ *
+ **/
+
+import java.io.* ;
+import java.util.concurrent.locks.LockSupport ;
+
+public class TokenPipeline implements TokenCursor, AutoCloseable
+{
+    /** Number of token records in the ring, a power of two. */
+    private static final int TOKENS = 4096 ;
+    /** Number of chars in the text ring, a power of two. */
+    private static final int CHARS = 1 << 16 ;
+    /** The longest text put in the text ring; longer text is passed as a String. */
+    private static final int LONGEST_TEXT = CHARS / 16 ;
+
+    private final LexicalAnalyser lex ;
+    private final Thread lexer ;
+
+    /* The token ring: token i is in slot i % TOKENS. */
+    private final int[] symbols = new int[TOKENS] ;
+    private final int[] lines = new int[TOKENS] ;
+    /** Where each token's text starts, counting every char ever put in the text ring. */
+    private final long[] textStarts = new long[TOKENS] ;
+    private final int[] textLengths = new int[TOKENS] ;
+    /** The text of a token too long for the text ring, else null. */
+    private final String[] longTexts = new String[TOKENS] ;
+    private final char[] text = new char[CHARS] ;
+
+    /** Number of tokens the lexer has written; only the lexer thread changes it. */
+    private volatile long written ;
+    /** What stopped the lexer before it reached EOF, or null. */
+    private volatile Throwable failure ;
+    /** The index of the parser's current token, whose slot and text are still in use; only the parser changes it. */
+    private volatile long current = -1 ;
+    /** Set by close() to stop the lexer. */
+    private volatile boolean closed ;
+
+    /* The parser's copy of the current token. */
+    private int symbol ;
+    private int line ;
+    private final Slice view = new Slice() ;
+    private String longText ;
+    /** The parser's last sight of written, so it only looks again once it catches up. */
+    private long available ;
+
+    /** Starts lexing ahead.
+
+      @param lex A lexer that has not been advanced yet; only the lexer thread uses it from now on.
+     */
+    public TokenPipeline( LexicalAnalyser lex ) {
+        this.lex = lex ;
+        lexer = new Thread( this::lex, "312-lexer" ) ;
+        lexer.setDaemon( true ) ;
+        lexer.start() ;
+    } // end of constructor method
+
+    /** The lexer thread: writes tokens into the ring up to and including EOF. */
+    private void lex() {
+        long tail = 0 ;
+        // how far the rings may be filled before looking at the parser's progress again;
+        // to start with the parser has read nothing
+        long room = TOKENS - 2, textRoom = CHARS ;
+        try {
+            for( long i = 0; !closed; i++ ) {
+                lex.advance() ;
+                CharSequence t = lex.text() ;
+                int length = t.length() ;
+                String longer = null ;
+                if( length > LONGEST_TEXT ) {
+                    longer = t.toString() ;
+                    length = 0 ;
+                } else if( (int) (tail & (CHARS - 1)) + length > CHARS ) {
+                    // text never wraps round the end of the ring, so the parser can look at it in place
+                    tail += CHARS - (tail & (CHARS - 1)) ;
+                }
+                for( int round = 0; (i > room) || (tail + length > textRoom); round++ ) {
+                    if( closed )
+                        return ;
+                    idle( round ) ;
+                    long c = current ;
+                    room = c + TOKENS - 1 ;
+                    textRoom = ((c < 0) ? 0 : textStarts[(int) c & (TOKENS - 1)]) + CHARS ;
+                }
+
+                int slot = (int) i & (TOKENS - 1) ;
+                int at = (int) (tail & (CHARS - 1)) ;
+                if( t instanceof String )
+                    ((String) t).getChars( 0, length, text, at ) ;
+                else
+                    for( int j = 0; j < length; j++ )
+                        text[at + j] = t.charAt( j ) ;
+                symbols[slot] = lex.symbol() ;
+                lines[slot] = lex.lineNumber() ;
+                textStarts[slot] = tail ;
+                textLengths[slot] = length ;
+                longTexts[slot] = longer ;
+                tail += length ;
+                written = i + 1 ;
+                if( lex.symbol() == Token.eofSymbol )
+                    return ;
+            }
+        } catch( Throwable e ) {
+            failure = e ;
+        }
+    } // end of method lex
+
+    /** Waits a little longer each round: spinning, then yielding, then sleeping. */
+    private static void idle( int round ) {
+        if( round < 100 )
+            Thread.onSpinWait() ;
+        else if( round < 200 )
+            Thread.yield() ;
+        else
+            LockSupport.parkNanos( 50_000L ) ;
+    } // end of method idle
+
+    public int symbol() {
+        return symbol ;
+    } // end of method symbol
+
+    public CharSequence text() {
+        return (longText != null) ? longText : view ;
+    } // end of method text
+
+    public int lineNumber() {
+        return line ;
+    } // end of method lineNumber
+
+    public Token token() {
+        return new Token( symbol, text().toString(), line ) ;
+    } // end of method token
+
+    /** Moves on to the next token, waiting for the lexer if it has not got there yet; past the end it stays on EOF.
+
+      @throws IOException if the lexer could not read the source this far.
+     */
+    public void advance() throws IOException {
+        long next = current + 1 ;
+        if( (next > 0) && (symbol == Token.eofSymbol) )
+            return ;
+        for( int round = 0; next >= available; round++ ) {
+            available = written ;
+            if( next < available )
+                break ;
+            if( failure != null ) {
+                // the lexer publishes every token it read before it failed
+                available = written ;
+                if( next < available )
+                    break ;
+                throw rethrow( failure ) ;
+            }
+            idle( round ) ;
+        }
+        int slot = (int) next & (TOKENS - 1) ;
+        symbol = symbols[slot] ;
+        line = lines[slot] ;
+        longText = longTexts[slot] ;
+        view.start = (int) (textStarts[slot] & (CHARS - 1)) ;
+        view.length = textLengths[slot] ;
+        current = next ;
+    } // end of method advance
+
+    /** @return what the lexer threw, as the parser's own exception. */
+    private static IOException rethrow( Throwable e ) {
+        if( e instanceof IOException )
+            return (IOException) e ;
+        if( e instanceof RuntimeException )
+            throw (RuntimeException) e ;
+        if( e instanceof Error )
+            throw (Error) e ;
+        return new IOException( e ) ;
+    } // end of method rethrow
+
+    /** Stops the lexer thread, if it is still going, and waits for it to finish with the source. */
+    public void close() {
+        closed = true ;
+        boolean interrupted = false ;
+        while( true ) {
+            try {
+                lexer.join() ;
+                break ;
+            } catch( InterruptedException e ) {
+                interrupted = true ;
+            }
+        }
+        if( interrupted )
+            Thread.currentThread().interrupt() ;
+    } // end of method close
+
+    /** A CharSequence looking straight at a token's text in the text ring. */
+    private class Slice implements CharSequence {
+
+        int start, length ;
+
+        public int length() {
+            return length ;
+        } // end of method length
+
+        public char charAt( int index ) {
+            return text[start + index] ;
+        } // end of method charAt
+
+        public CharSequence subSequence( int from, int to ) {
+            return new String( text, start + from, to - from ) ;
+        } // end of method subSequence
+
+        public String toString() {
+            return new String( text, start, length ) ;
+        } // end of method toString
+
+    } // end of class Slice
+
+} // end of class TokenPipeline
@@ -0,0 +1,343 @@
+
+/**
+ *
+ * A whole file's tokens held in parallel primitive arrays.
+ *
+ * Each token is a symbol, the offset and length of its text in the source
+ * buffer and a line number; there is no object per token.  Text is only
+ * made into a String when text(int) or token(int) asks for it.
+ *
+ **/
+
+import java.io.* ;
+import java.util.* ;
+
+public class TokenStream
+{
+    /** The source text the offsets refer to. */
+    private char[] source ;
+
+    /* One entry per token. */
+    private int[] symbols = new int[256] ;
+    private int[] starts = new int[256] ;
+    private int[] lengths = new int[256] ;
+    private int[] lines = new int[256] ;
+    /** Strings made so far by text(int), or null before the first one. */
+    private String[] texts ;
+    /** Number of tokens held. */
+    private int size ;
+    /** The tokens [damageStart, damageEnd) are the ones changed by the last edit(). */
+    private int damageStart, damageEnd ;
+
+    private TokenStream( char[] source ) {
+        this.source = source ;
+    } // end of constructor method
+
+    /** Reads every token up to and including EOF from a lexer working on a char buffer.
+
+      @param lex A lexer that has not been advanced yet.
+      @return the tokens.
+      @throws IOException in the event that the source cannot be read.
+     */
+    public static TokenStream read( LexicalAnalyser lex ) throws IOException {
+        TokenStream stream = new TokenStream( lex.source() ) ;
+        do {
+            lex.advance() ;
+            stream.add( lex.symbol(), lex.tokenStart(), lex.tokenEnd() - lex.tokenStart(), lex.lineNumber() ) ;
+        } while( lex.symbol() != Token.eofSymbol ) ;
+        return stream ;
+    } // end of method read
+
+    /** Brings the tokens up to date with an edit of the source, re-lexing only around it.
+
+      Lexing restarts at the last token starting before the edit, since the
+      edit may extend it, and stops at the first token past the edited text
+      that starts where an old token did: the text from there on is
+      unchanged, so it lexes exactly as before, only shifted.  The tokens
+      after that are kept with their offsets and lines moved.
+
+      @param text The whole source after the edit.
+      @param length The number of chars of text holding source.
+      @param offset Where the edit happened.
+      @param removed The number of chars the edit removed.
+      @param inserted The number of chars the edit inserted in their place.
+      @throws IOException in the event that the source cannot be read.
+     */
+    void edit( char[] text, int length, int offset, int removed, int inserted ) throws IOException {
+        int delta = inserted - removed ;
+        int from = lastStartingBefore( offset ) ;
+        // EOF "starts" at the last line break, which is no place to start lexing
+        if( (from >= 0) && (symbols[from] == Token.eofSymbol) )
+            from-- ;
+        LexicalAnalyser lex ;
+        if( from < 0 ) {
+            from = 0 ;
+            lex = new LexicalAnalyser( text, length ) ;
+        } else
+            lex = new LexicalAnalyser( text, starts[from], length - starts[from], lines[from] ) ;
+
+        TokenStream fresh = new TokenStream( text ) ;
+        int to = from, lineDelta = 0 ;
+        while( true ) {
+            lex.advance() ;
+            int start = lex.tokenStart() ;
+            if( start >= offset + inserted ) {
+                while( (to < size) && (starts[to] < start - delta) )
+                    to++ ;
+                if( (to < size) && (starts[to] == start - delta) && (symbols[to] == lex.symbol()) ) {
+                    lineDelta = lex.lineNumber() - lines[to] ;
+                    break ;
+                }
+            }
+            fresh.add( lex.symbol(), start, lex.tokenEnd() - start, lex.lineNumber() ) ;
+            if( lex.symbol() == Token.eofSymbol ) {
+                to = size ;
+                break ;
+            }
+        }
+
+        // tokens lexed again wholly before the edit usually come out the same
+        int same = 0 ;
+        while( (same < fresh.size) && (from + same < to) && (starts[from + same] + lengths[from + same] <= offset)
+                && (fresh.symbols[same] == symbols[from + same]) && (fresh.starts[same] == starts[from + same])
+                && (fresh.lengths[same] == lengths[from + same]) )
+            same++ ;
+
+        splice( from, to, fresh, delta, lineDelta ) ;
+        source = text ;
+        damageStart = from + same ;
+        damageEnd = from + fresh.size ;
+    } // end of method edit
+
+    /** @return the last token starting before the given offset, or -1 if there is none. */
+    private int lastStartingBefore( int offset ) {
+        int low = 0, high = size - 1 ;
+        while( low <= high ) {
+            int mid = (low + high) >>> 1 ;
+            if( starts[mid] < offset )
+                low = mid + 1 ;
+            else
+                high = mid - 1 ;
+        }
+        return high ;
+    } // end of method lastStartingBefore
+
+    /** Replaces the tokens [from, to) with those of another stream, moving the ones after by the given offset and line deltas. */
+    private void splice( int from, int to, TokenStream fresh, int delta, int lineDelta ) {
+        int tail = size - to ;
+        int newSize = from + fresh.size + tail ;
+        ensureCapacity( newSize ) ;
+        int moved = from + fresh.size ;
+        System.arraycopy( symbols, to, symbols, moved, tail ) ;
+        System.arraycopy( starts, to, starts, moved, tail ) ;
+        System.arraycopy( lengths, to, lengths, moved, tail ) ;
+        System.arraycopy( lines, to, lines, moved, tail ) ;
+        System.arraycopy( fresh.symbols, 0, symbols, from, fresh.size ) ;
+        System.arraycopy( fresh.starts, 0, starts, from, fresh.size ) ;
+        System.arraycopy( fresh.lengths, 0, lengths, from, fresh.size ) ;
+        System.arraycopy( fresh.lines, 0, lines, from, fresh.size ) ;
+        for( int i = moved; i < newSize; i++ ) {
+            starts[i] += delta ;
+            lines[i] += lineDelta ;
+        }
+
+        if( texts != null ) {
+            String[] kept = new String[newSize] ;
+            System.arraycopy( texts, 0, kept, 0, from ) ;
+            System.arraycopy( texts, to, kept, moved, tail ) ;
+            texts = kept ;
+        }
+        size = newSize ;
+    } // end of method splice
+
+    /** @return the first token changed by the last edit(). */
+    int damageStart() {
+        return damageStart ;
+    } // end of method damageStart
+
+    /** @return the index just past the last token changed by the last edit(). */
+    int damageEnd() {
+        return damageEnd ;
+    } // end of method damageEnd
+
+    private void ensureCapacity( int capacity ) {
+        if( capacity > symbols.length ) {
+            capacity = Math.max( capacity, 2 * symbols.length ) ;
+            symbols = Arrays.copyOf( symbols, capacity ) ;
+            starts = Arrays.copyOf( starts, capacity ) ;
+            lengths = Arrays.copyOf( lengths, capacity ) ;
+            lines = Arrays.copyOf( lines, capacity ) ;
+        }
+    } // end of method ensureCapacity
+
+    private void add( int symbol, int start, int length, int line ) {
+        ensureCapacity( size + 1 ) ;
+        symbols[size] = symbol ;
+        starts[size] = start ;
+        lengths[size] = length ;
+        lines[size] = line ;
+        size++ ;
+    } // end of method add
+
+    /** @return the number of tokens, including the final EOF. */
+    public int size() {
+        return size ;
+    } // end of method size
+
+    /** @return the symbol of token i, a class constant from Token. */
+    public int symbol( int i ) {
+        return symbols[i] ;
+    } // end of method symbol
+
+    /** @return the source offset token i starts at, including any quotes. */
+    public int start( int i ) {
+        return starts[i] ;
+    } // end of method start
+
+    /** @return the number of source chars token i covers, including any quotes. */
+    public int length( int i ) {
+        return lengths[i] ;
+    } // end of method length
+
+    /** @return the line number of token i. */
+    public int lineNumber( int i ) {
+        return lines[i] ;
+    } // end of method lineNumber
+
+    /** @return the text of token i as the lexer reports it, made into a String on first use. */
+    public String text( int i ) {
+        if( texts == null )
+            texts = new String[size] ;
+        if( texts[i] == null )
+            texts[i] = textOf( i, null ).toString() ;
+        return texts[i] ;
+    } // end of method text
+
+    /** @return token i as a Token object. */
+    public Token token( int i ) {
+        return new Token( symbols[i], text(i), lines[i] ) ;
+    } // end of method token
+
+    /** Returns the text of token i without copying it where that can be avoided.
+
+      String constants lose their quotes, and any line terminator inside
+      one reads as '\n' as it does in the lexer.
+
+      @param view A slice to point at the text, or null to make a String.
+     */
+    private CharSequence textOf( int i, Slice view ) {
+        int start = starts[i], length = lengths[i] ;
+        if( symbols[i] == Token.stringConstant ) {
+            start++ ;
+            length -= 2 ;
+            for( int j = start; j < start + length; j++ )
+                if( source[j] == '\r' )
+                    return withNewlines( start, length ) ;
+        }
+        if( view == null )
+            return new String( source, start, length ) ;
+        view.start = start ;
+        view.length = length ;
+        return view ;
+    } // end of method textOf
+
+    private String withNewlines( int start, int length ) {
+        StringBuilder text = new StringBuilder( length ) ;
+        for( int j = start; j < start + length; j++ ) {
+            if( source[j] != '\r' )
+                text.append( source[j] ) ;
+            else {
+                text.append( '\n' ) ;
+                if( (j + 1 < start + length) && (source[j + 1] == '\n') )
+                    j++ ;
+            }
+        }
+        return text.toString() ;
+    } // end of method withNewlines
+
+    /** @return a cursor positioned before the first token. */
+    public Cursor cursor() {
+        return new Cursor( 0 ) ;
+    } // end of method cursor
+
+    /** @return a cursor positioned so that advance() moves onto token i. */
+    public Cursor cursor( int i ) {
+        return new Cursor( i ) ;
+    } // end of method cursor
+
+    /** A TokenCursor over this stream; text is a view on the source, not a copy. */
+    public class Cursor implements TokenCursor {
+
+        /** The index advance() moves onto next. */
+        private int next ;
+        /** The current token's index, -1 before the first advance(). */
+        private int current = -1 ;
+        /** Reused to hand out the current token's text. */
+        private final Slice view = new Slice() ;
+
+        private Cursor( int first ) {
+            next = first ;
+        } // end of constructor method
+
+        /** @return the index of the current token in the stream. */
+        public int index() {
+            return current ;
+        } // end of method index
+
+        public int symbol() {
+            return symbols[current] ;
+        } // end of method symbol
+
+        public CharSequence text() {
+            if( (texts != null) && (texts[current] != null) )
+                return texts[current] ;
+            return textOf( current, view ) ;
+        } // end of method text
+
+        public int lineNumber() {
+            return lines[current] ;
+        } // end of method lineNumber
+
+        public Token token() {
+            return TokenStream.this.token( current ) ;
+        } // end of method token
+
+        /** Moves straight to token i, as if advance() had just moved onto it. */
+        void moveTo( int i ) {
+            current = i ;
+            next = i + 1 ;
+        } // end of method moveTo
+
+        /** Moves on to the next token; past the end it stays on the final EOF. */
+        public void advance() {
+            current = Math.min( next, size - 1 ) ;
+            if( next < size )
+                next++ ;
+        } // end of method advance
+
+    } // end of class Cursor
+
+    /** A CharSequence looking straight at part of the source. */
+    private class Slice implements CharSequence {
+
+        int start, length ;
+
+        public int length() {
+            return length ;
+        } // end of method length
+
+        public char charAt( int index ) {
+            return source[start + index] ;
+        } // end of method charAt
+
+        public CharSequence subSequence( int from, int to ) {
+            return new String( source, start + from, to - from ) ;
+        } // end of method subSequence
+
+        public String toString() {
+            return new String( source, start, length ) ;
+        } // end of method toString
+
+    } // end of class Slice
+
+} // end of class TokenStream
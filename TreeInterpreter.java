@@ -0,0 +1,231 @@
+
+/**
+ *
+ * Runs a program straight from its parse tree, the simple way: it walks
+ * the tree for every statement it executes and keeps variables in a map
+ * of boxed values.  It is the yardstick IRProgram is measured against,
+ * and gives the same results; see there for what the program means.
+ *
+ **/
+
+import java.io.* ;
+import java.util.* ;
+
+public class TreeInterpreter
+{
+    private final ParseTree tree ;
+    private final ProgramIO io ;
+    /** Each variable's value, a Double or a String; a variable not yet assigned is 0. */
+    private final HashMap<String, Object> variables = new HashMap<String, Object>() ;
+    private static final Double ZERO = 0.0 ;
+    /** The line of the assignment, condition or call being run, for its errors. */
+    private int line ;
+
+    private TreeInterpreter( ParseTree tree, ProgramIO io ) {
+        this.tree = tree ;
+        this.io = io ;
+    } // end of constructor method
+
+    /** Runs a parsed program.
+
+      @param tree The program's parse tree.
+      @param io Where call get and call put go.
+      @throws CompilationException if it did not parse, or calls a procedure other than get and put.
+      @throws IOException in the event that io fails.
+      @throws ProgramException if the program goes wrong.
+     */
+    public static void run( ParseTree tree, ProgramIO io ) throws CompilationException, IOException {
+        if( !tree.succeeded() )
+            throw new CompilationException( "the program has syntax errors" ) ;
+        IRProgram.checkProcedures( tree ) ;
+        TreeInterpreter t = new TreeInterpreter( tree, io ) ;
+        t.statementList( t.child( tree.root(), "<statementList>" ) ) ;
+    } // end of method run
+
+    private void statementList( int list ) throws CompilationException, IOException {
+        for( int l = list; l >= 0; ) {
+            int statement = tree.firstChild( l ) ;
+            statement( tree.firstChild( statement ) ) ;
+            int semicolon = tree.nextSibling( statement ) ;
+            l = (semicolon < 0) ? -1 : tree.nextSibling( semicolon ) ;
+        }
+    } // end of method statementList
+
+    private void statement( int s ) throws CompilationException, IOException {
+        String kind = tree.name( s ) ;
+        if( kind.equals( "<assignment>" ) )
+            assignment( s ) ;
+        else if( kind.equals( "<ifStatement>" ) ) {
+            int then = child( s, "<statementList>" ) ;
+            if( condition( child( s, "<condition>" ) ) )
+                statementList( then ) ;
+            else {
+                int otherwise = next( then, "<statementList>" ) ;
+                if( otherwise >= 0 )
+                    statementList( otherwise ) ;
+            }
+        } else if( kind.equals( "<whileStatement>" ) ) {
+            while( condition( child( s, "<condition>" ) ) )
+                statementList( child( s, "<statementList>" ) ) ;
+        } else if( kind.equals( "<untilStatement>" ) ) {
+            do
+                statementList( child( s, "<statementList>" ) ) ;
+            while( !condition( child( s, "<condition>" ) ) ) ;
+        } else if( kind.equals( "<forStatement>" ) ) {
+            int start = child( s, "<assignment>" ) ;
+            int step = next( start, "<assignment>" ) ;
+            for( assignment( start ); condition( child( s, "<condition>" ) ); assignment( step ) )
+                statementList( child( s, "<statementList>" ) ) ;
+        } else
+            procedure( s ) ;
+    } // end of method statement
+
+    private void assignment( int a ) {
+        int name = tree.firstChild( a ) ;
+        int value = tree.nextSibling( tree.nextSibling( name ) ) ;
+        line = line( name ) ;
+        variables.put( text( name ), tree.isTerminal( value ) ? text( value ) : expression( value ) ) ;
+    } // end of method assignment
+
+    private void procedure( int p ) throws CompilationException, IOException {
+        int name = tree.nextSibling( tree.firstChild( p ) ) ;
+        String procedure = text( name ) ;
+        line = line( tree.firstChild( p ) ) ;
+        List<String> arguments = new ArrayList<String>() ;
+        for( int list = child( p, "<argumentList>" ); list >= 0; ) {
+            int argument = tree.firstChild( list ) ;
+            arguments.add( text( argument ) ) ;
+            int comma = tree.nextSibling( argument ) ;
+            list = (comma < 0) ? -1 : tree.nextSibling( comma ) ;
+        }
+        if( procedure.equals( "get" ) ) {
+            for( String argument : arguments ) {
+                String input = io.get() ;
+                if( input == null )
+                    throw new ProgramException( "no input left for " + argument, line ) ;
+                variables.put( argument, IRProgram.isNumber( input ) ? (Object) Double.valueOf( input ) : input ) ;
+            }
+        } else if( procedure.equals( "put" ) ) {
+            StringBuilder line = new StringBuilder() ;
+            for( String argument : arguments ) {
+                if( line.length() > 0 )
+                    line.append( ' ' ) ;
+                Object v = value( argument ) ;
+                line.append( (v instanceof String) ? (String) v : IRProgram.format( (Double) v ) ) ;
+            }
+            io.put( line.toString() ) ;
+        } else
+            throw new CompilationException( "unknown procedure " + procedure + " on line " + line ) ;
+    } // end of method procedure
+
+    private boolean condition( int c ) {
+        int left = tree.firstChild( c ) ;
+        int operator = tree.nextSibling( left ) ;
+        int right = tree.nextSibling( operator ) ;
+        line = line( left ) ;
+        Object a = value( text( left ) ) ;
+        Object b = (tree.kind( right ) == Token.identifier) ? value( text( right ) )
+                 : (tree.kind( right ) == Token.numberConstant) ? (Object) Double.valueOf( text( right ) )
+                 : text( right ) ;
+        int op ;
+        switch( tree.kind( tree.firstChild( operator ) ) ) {
+            case Token.lessThanSymbol:     op = IRProgram.JLT ; break ;
+            case Token.lessEqualSymbol:    op = IRProgram.JLE ; break ;
+            case Token.greaterThanSymbol:  op = IRProgram.JGT ; break ;
+            case Token.greaterEqualSymbol: op = IRProgram.JGE ; break ;
+            case Token.equalSymbol:        op = IRProgram.JEQ ; break ;
+            default:                       op = IRProgram.JNE ; break ;
+        }
+        if( (a instanceof Double) && (b instanceof Double) )
+            return IRProgram.compare( op, (Double) a, (Double) b ) ;
+        return IRProgram.compare( op, (a instanceof String) ? (String) a : null, (b instanceof String) ? (String) b : null ) ;
+    } // end of method condition
+
+    /** Evaluates a right-nested <expression> from left to right.  Each operation
+      checks its operands when it is applied, after both have been evaluated, as
+      IRProgram does; a lone variable may hold a string. */
+    private Object expression( int e ) {
+        int operand = tree.firstChild( e ) ;
+        Object result = term( operand ) ;
+        for( int operator = tree.nextSibling( operand ); operator >= 0; operator = tree.nextSibling( operand ) ) {
+            int left = operand ;
+            operand = tree.firstChild( tree.nextSibling( operator ) ) ;
+            result = arithmetic( operator, result, left, term( operand ), operand ) ;
+        }
+        return result ;
+    } // end of method expression
+
+    private Object term( int t ) {
+        int operand = tree.firstChild( t ) ;
+        Object result = factor( operand ) ;
+        for( int operator = tree.nextSibling( operand ); operator >= 0; operator = tree.nextSibling( operand ) ) {
+            int left = operand ;
+            operand = tree.firstChild( tree.nextSibling( operator ) ) ;
+            result = arithmetic( operator, result, left, factor( operand ), operand ) ;
+        }
+        return result ;
+    } // end of method term
+
+    private Object factor( int f ) {
+        int c = tree.firstChild( f ) ;
+        switch( tree.kind( c ) ) {
+            case Token.identifier:
+                return value( text( c ) ) ;
+            case Token.numberConstant:
+                return Double.valueOf( text( c ) ) ;
+            default:
+                return expression( tree.nextSibling( c ) ) ;
+        }
+    } // end of method factor
+
+    /** Applies an operator to two values, the nodes being where they came from. */
+    private Double arithmetic( int operator, Object a, int aNode, Object b, int bNode ) {
+        if( (a instanceof String) || (b instanceof String) ) {
+            int from = (a instanceof String) ? aNode : bNode ;
+            while( !tree.isTerminal( from ) )
+                from = tree.firstChild( from ) ;
+            throw new ProgramException( "arithmetic on the string " + text( from ), line ) ;
+        }
+        double x = (Double) a, y = (Double) b ;
+        switch( tree.kind( operator ) ) {
+            case Token.plusSymbol:
+                return x + y ;
+            case Token.minusSymbol:
+                return x - y ;
+            case Token.timesSymbol:
+                return x * y ;
+            default:
+                if( y == 0 )
+                    throw new ProgramException( "division by zero", line ) ;
+                return x / y ;
+        }
+    } // end of method arithmetic
+
+    private Object value( String variable ) {
+        Object v = variables.get( variable ) ;
+        return (v == null) ? ZERO : v ;
+    } // end of method value
+
+    private String text( int terminal ) {
+        return tree.tokenText( tree.token( terminal ) ) ;
+    } // end of method text
+
+    private int line( int terminal ) {
+        return tree.tokenLine( tree.token( terminal ) ) ;
+    } // end of method line
+
+    /** @return the first child of a node with the given name, or -1. */
+    private int child( int node, String name ) {
+        int c = tree.firstChild( node ) ;
+        return (c < 0) ? -1 : name.equals( tree.name( c ) ) ? c : next( c, name ) ;
+    } // end of method child
+
+    /** @return the next sibling after a node with the given name, or -1. */
+    private int next( int node, String name ) {
+        for( int n = tree.nextSibling( node ); n >= 0; n = tree.nextSibling( n ) )
+            if( name.equals( tree.name( n ) ) )
+                return n ;
+        return -1 ;
+    } // end of method next
+
+} // end of class TreeInterpreter
@@ -0,0 +1,75 @@
+
+/**
+ *
+ * The compiler side of bench.Harness; see there for why it exists.
+ *
+ **/
+
+import java.io.* ;
+
+public class BenchHarness implements bench.Harness
+{
+    private final PrintStream discard = new PrintStream( OutputStream.nullOutputStream() ) ;
+    private final EventSink noEvents = new NullEventSink() ;
+
+    public long lex( String file ) throws IOException {
+        LexicalAnalyser lex = new LexicalAnalyser( file ) ;
+        long tokens = 0 ;
+        do {
+            lex.advance() ;
+            tokens++ ;
+        } while( lex.symbol() != Token.eofSymbol ) ;
+        return tokens ;
+    } // end of method lex
+
+    public void parse( String file ) throws IOException {
+        new SyntaxAnalyser( file ).parse( discard, noEvents ) ;
+    } // end of method parse
+
+    public void parseTable( String file ) throws IOException {
+        new TableParser( file ).parse( discard, noEvents ) ;
+    } // end of method parseTable
+
+    public void parsePipelined( String file ) throws IOException {
+        SyntaxAnalyser syn = new SyntaxAnalyser( file ) ;
+        try( TokenPipeline pipe = new TokenPipeline( syn.lex ) ) {
+            syn.tokens = pipe ;
+            syn.parse( discard, noEvents ) ;
+        }
+    } // end of method parsePipelined
+
+    public void parseSplit( String file ) throws IOException {
+        ParallelParser.parse( file, false, discard, noEvents ) ;
+    } // end of method parseSplit
+
+    public void compile( String file ) throws IOException {
+        Compile.compileFile( file, discard, discard, new TextEventSink(discard) ) ;
+    } // end of method compile
+
+    /** A program ready to run any way. */
+    private static class Loaded {
+        final ParseTree tree = new ParseTree() ;
+        IRProgram code ;
+        JvmProgram compiled ;
+    } // end of class Loaded
+
+    public Object load( String file ) throws Exception {
+        Loaded program = new Loaded() ;
+        new SyntaxAnalyser( file ).parse( discard, program.tree ) ;
+        program.code = IRProgram.lower( program.tree ) ;
+        program.compiled = JvmProgram.compile( program.code ) ;
+        return program ;
+    } // end of method load
+
+    public void run( Object program, String engine ) throws Exception {
+        Loaded p = (Loaded) program ;
+        ProgramIO io = new ProgramIO.Streams( Reader.nullReader(), discard ) ;
+        if( engine.equals( "tree" ) )
+            TreeInterpreter.run( p.tree, io ) ;
+        else if( engine.equals( "jvm" ) && (p.compiled != null) )
+            p.compiled.run( io ) ;
+        else
+            p.code.run( io ) ;
+    } // end of method run
+
+} // end of class BenchHarness
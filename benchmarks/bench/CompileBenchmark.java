@@ -0,0 +1,39 @@
+package bench ;
+
+/**
+ *
+ * Measures the full Compile pipeline for one program: lexing, parsing
+ * and writing the 312 trace, with the output thrown away.
+ *
+ **/
+
+import java.util.concurrent.TimeUnit ;
+import org.openjdk.jmh.annotations.* ;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class CompileBenchmark
+{
+    /** Input size in MB. */
+    @Param( { "1", "10", "100" } )
+    public int megabytes ;
+
+    private String file ;
+    private Harness harness ;
+
+    @Setup( Level.Trial )
+    public void setUp() throws Exception {
+        file = ProgramScaler.scaled( megabytes ).toString() ;
+        harness = (Harness) Class.forName( "BenchHarness" ).getDeclaredConstructor().newInstance() ;
+    } // end of method setUp
+
+    @Benchmark
+    public void compile() throws Exception {
+        harness.compile( file ) ;
+    } // end of method compile
+
+} // end of class CompileBenchmark
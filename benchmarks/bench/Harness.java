@@ -0,0 +1,49 @@
+package bench ;
+
+/**
+ *
+ * What the benchmarks call into the compiler through.
+ *
+ * The compiler's classes are in the unnamed package, which JMH cannot
+ * generate code for and no named package can import, so BenchHarness
+ * (unnamed package) implements this and is loaded by name once per trial.
+ *
+ **/
+
+public interface Harness
+{
+    /** Lexes a file to EOF.
+
+      @return the number of tokens read, including EOF.
+     */
+    long lex( String file ) throws Exception ;
+
+    /** Parses a file with the 312 trace switched off. */
+    void parse( String file ) throws Exception ;
+
+    /** Parses a file with TableParser rather than SyntaxAnalyser, the 312 trace switched off. */
+    void parseTable( String file ) throws Exception ;
+
+    /** Parses a file with SyntaxAnalyser reading its tokens through a TokenPipeline, the 312 trace switched off. */
+    void parsePipelined( String file ) throws Exception ;
+
+    /** Parses a file with ParallelParser, in pieces on several cores, the 312 trace switched off. */
+    void parseSplit( String file ) throws Exception ;
+
+    /** Runs the full Compile pipeline on a file, throwing its output away. */
+    void compile( String file ) throws Exception ;
+
+    /** Parses a program and lowers it for the interpreter benchmarks.
+
+      @return the program, to be passed to run().
+     */
+    Object load( String file ) throws Exception ;
+
+    /** Runs a program from load(), throwing its output away.
+
+      @param engine "ir" to interpret its IRProgram code, "tree" to walk its
+        parse tree, or "jvm" to run it compiled to bytecode by JvmProgram.
+     */
+    void run( Object program, String engine ) throws Exception ;
+
+} // end of interface Harness
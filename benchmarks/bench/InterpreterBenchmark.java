@@ -0,0 +1,51 @@
+package bench ;
+
+/**
+ *
+ * Compares running a program as IRProgram code against walking its parse
+ * tree with TreeInterpreter and against its JvmProgram bytecode, on a
+ * numeric loop.  Parsing, lowering and generating the bytecode are done
+ * once, outside the measurement.
+ *
+ **/
+
+import java.util.concurrent.TimeUnit ;
+import org.openjdk.jmh.annotations.* ;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class InterpreterBenchmark
+{
+    /** Times round the loop per run. */
+    @Param( { "100000", "1000000" } )
+    public int iterations ;
+
+    private Object program ;
+    private Harness harness ;
+
+    @Setup( Level.Trial )
+    public void setUp() throws Exception {
+        harness = (Harness) Class.forName( "BenchHarness" ).getDeclaredConstructor().newInstance() ;
+        program = harness.load( ProgramScaler.loop( iterations ).toString() ) ;
+    } // end of method setUp
+
+    @Benchmark
+    public void registerCode() throws Exception {
+        harness.run( program, "ir" ) ;
+    } // end of method registerCode
+
+    @Benchmark
+    public void treeWalk() throws Exception {
+        harness.run( program, "tree" ) ;
+    } // end of method treeWalk
+
+    @Benchmark
+    public void bytecode() throws Exception {
+        harness.run( program, "jvm" ) ;
+    } // end of method bytecode
+
+} // end of class InterpreterBenchmark
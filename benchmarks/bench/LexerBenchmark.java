@@ -0,0 +1,48 @@
+package bench ;
+
+/**
+ *
+ * Measures LexicalAnalyser throughput in tokens per second over the
+ * scaled-up sample programs.
+ *
+ **/
+
+import java.util.concurrent.TimeUnit ;
+import org.openjdk.jmh.annotations.* ;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class LexerBenchmark
+{
+    /** Input size in MB. */
+    @Param( { "1", "10", "100" } )
+    public int megabytes ;
+
+    private String file ;
+    private Harness harness ;
+
+    /** Tokens read, reported by JMH as a rate alongside the per-file score. */
+    @State( Scope.Thread )
+    @AuxCounters( AuxCounters.Type.OPERATIONS )
+    public static class Counters {
+        public long tokens ;
+    } // end of class Counters
+
+    @Setup( Level.Trial )
+    public void setUp() throws Exception {
+        file = ProgramScaler.scaled( megabytes ).toString() ;
+        harness = (Harness) Class.forName( "BenchHarness" ).getDeclaredConstructor().newInstance() ;
+    } // end of method setUp
+
+    @Benchmark
+    public long lex( Counters counters ) throws Exception {
+        long tokens = harness.lex( file ) ;
+        counters.tokens += tokens ;
+        return tokens ;
+    } // end of method lex
+
+} // end of class LexerBenchmark
@@ -0,0 +1,57 @@
+package bench ;
+
+/**
+ *
+ * Measures parse throughput with the 312 trace switched off, so only
+ * lexing and recognition are timed: SyntaxAnalyser's recursive descent
+ * against TableParser's LL(1) tables, and recursive descent with the
+ * lexer running ahead on a thread of its own or with the program parsed
+ * in pieces on several cores.
+ *
+ **/
+
+import java.util.concurrent.TimeUnit ;
+import org.openjdk.jmh.annotations.* ;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class ParserBenchmark
+{
+    /** Input size in MB. */
+    @Param( { "1", "10", "100" } )
+    public int megabytes ;
+
+    private String file ;
+    private Harness harness ;
+
+    @Setup( Level.Trial )
+    public void setUp() throws Exception {
+        file = ProgramScaler.scaled( megabytes ).toString() ;
+        harness = (Harness) Class.forName( "BenchHarness" ).getDeclaredConstructor().newInstance() ;
+    } // end of method setUp
+
+    @Benchmark
+    public void recursiveDescent() throws Exception {
+        harness.parse( file ) ;
+    } // end of method recursiveDescent
+
+    @Benchmark
+    public void tableDriven() throws Exception {
+        harness.parseTable( file ) ;
+    } // end of method tableDriven
+
+    @Benchmark
+    public void pipelined() throws Exception {
+        harness.parsePipelined( file ) ;
+    } // end of method pipelined
+
+    @Benchmark
+    public void split() throws Exception {
+        harness.parseSplit( file ) ;
+    } // end of method split
+
+} // end of class ParserBenchmark
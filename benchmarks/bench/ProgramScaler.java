@@ -0,0 +1,94 @@
+package bench ;
+
+/**
+ *
+ * Generates large, valid input programs for the benchmarks by repeating
+ * the statements of one of the sample programs inside a single
+ * begin ... end block.
+ *
+ **/
+
+import java.io.* ;
+import java.nio.charset.StandardCharsets ;
+import java.nio.file.* ;
+
+public class ProgramScaler
+{
+    /** The sample whose statements are repeated; it compiles cleanly. */
+    static final String SAMPLE = "Programs Folder" + File.separator + "program0" ;
+    /** Where generated programs are kept between runs. */
+    static final String DATA_DIR = "benchmarks" + File.separator + "data" ;
+
+    /** Returns a program of at least the given size, generating it if it is not on disk yet.
+
+      @param megabytes The size wanted, in MB.
+      @return the path of the program.
+      @throws IOException if the sample cannot be read or the program written.
+     */
+    public static Path scaled( int megabytes ) throws IOException {
+        Path file = Paths.get( DATA_DIR, "program-" + megabytes + "MB" ) ;
+        if( !Files.exists(file) )
+            write( Paths.get(SAMPLE), (long) megabytes << 20, file ) ;
+        return file ;
+    } // end of method scaled
+
+    /** Writes sample's statements over and over, separated by ';', until the file reaches size bytes. */
+    static void write( Path sample, long size, Path file ) throws IOException {
+        String text = new String( Files.readAllBytes(sample), StandardCharsets.ISO_8859_1 ) ;
+        int begin = text.indexOf( "begin" ) ;
+        int end = text.lastIndexOf( "end" ) ;
+        if( (begin < 0) || (end < begin) )
+            throw new IOException( sample + " has no begin ... end block" ) ;
+        byte[] body = text.substring( begin + "begin".length(), end ).getBytes( StandardCharsets.ISO_8859_1 ) ;
+        byte[] separator = ";\n".getBytes( StandardCharsets.ISO_8859_1 ) ;
+
+        Files.createDirectories( file.toAbsolutePath().getParent() ) ;
+        Path partial = Paths.get( file + ".partial" ) ;
+        try( OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16) ) {
+            out.write( "begin".getBytes(StandardCharsets.ISO_8859_1) ) ;
+            out.write( body ) ;
+            for( long written = body.length; written < size; written += separator.length + body.length ) {
+                out.write( separator ) ;
+                out.write( body ) ;
+            }
+            out.write( "end\n".getBytes(StandardCharsets.ISO_8859_1) ) ;
+        }
+        Files.move( partial, file, StandardCopyOption.REPLACE_EXISTING ) ;
+    } // end of method write
+
+    /** Returns a program that runs a numeric loop the given number of times,
+      writing it if it is not on disk yet.
+
+      @param iterations How many times the loop body runs.
+      @return the path of the program.
+      @throws IOException if the program cannot be written.
+     */
+    public static Path loop( int iterations ) throws IOException {
+        Path file = Paths.get( DATA_DIR, "loop-" + iterations ) ;
+        if( !Files.exists(file) ) {
+            String text = "begin\n"
+                + "n := " + iterations + " ;\n"
+                + "s := 0 ;\n"
+                + "i := 0 ;\n"
+                + "while i < n loop\n"
+                + "    s := s + i * 3 - i / 2 ;\n"
+                + "    if s > 1000000 then s := s - 1000000 end if ;\n"
+                + "    i := i + 1\n"
+                + "end loop ;\n"
+                + "call put(s)\n"
+                + "end\n" ;
+            Files.createDirectories( file.toAbsolutePath().getParent() ) ;
+            Files.write( file, text.getBytes(StandardCharsets.ISO_8859_1) ) ;
+        }
+        return file ;
+    } // end of method loop
+
+    /** Generates the benchmark inputs: java ProgramScaler [megabytes ...] */
+    public static void main( String[] args ) throws IOException {
+        if( args.length == 0 )
+            args = new String[] { "1", "10", "100" } ;
+        for( String mb : args )
+            System.out.println( scaled(Integer.parseInt(mb)) ) ;
+    } // end of main method
+
+} // end of class ProgramScaler